@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.benchmark;
+
+import de.mhus.commons.io.CSVBufferReader;
+import de.mhus.commons.io.CSVParallelReader;
+import de.mhus.commons.io.CSVReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reading 1000 csv lines with six columns with CSVReader and CSVBufferReader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CSVReaderBenchmark {
+
+    private String csv;
+    private ByteBuffer bytes;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder("id,name,city,amount,date,comment\n");
+        for (int i = 0; i < 1000; i++)
+            sb.append(i).append(",name ").append(i).append(",Berlin,").append(i * 3).append(".25,2020-01-01,")
+                    .append("\"quoted, text ").append(i).append("\"\n");
+        csv = sb.toString();
+        bytes = ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public int readLines() throws IOException {
+        CSVReader reader = new CSVReader(new StringReader(csv));
+        reader.readHeader(false);
+        int sum = 0;
+        while (reader.next())
+            sum += reader.get("comment").length();
+        reader.close();
+        return sum;
+    }
+
+    @Benchmark
+    public int readLinesBuffer() throws IOException {
+        CSVBufferReader reader = new CSVBufferReader(new StringReader(csv));
+        reader.readHeader(false);
+        int comment = reader.getIndex("comment");
+        int sum = 0;
+        while (reader.next())
+            sum += reader.length(comment);
+        reader.close();
+        return sum;
+    }
+
+    @Benchmark
+    public double readNumbers() throws IOException {
+        CSVReader reader = new CSVReader(new StringReader(csv));
+        reader.readHeader(false);
+        double sum = 0;
+        while (reader.next())
+            sum += Integer.parseInt(reader.get("id")) + Double.parseDouble(reader.get("amount"));
+        reader.close();
+        return sum;
+    }
+
+    @Benchmark
+    public double readNumbersBuffer() throws IOException {
+        CSVBufferReader reader = new CSVBufferReader(new StringReader(csv));
+        reader.readHeader(false);
+        int id = reader.getIndex("id");
+        int amount = reader.getIndex("amount");
+        double sum = 0;
+        while (reader.next())
+            sum += reader.getInt(id) + reader.getDouble(amount);
+        reader.close();
+        return sum;
+    }
+
+    @Benchmark
+    public long readParallel() throws IOException {
+        CSVParallelReader reader = new CSVParallelReader();
+        reader.setHeader(true);
+        reader.setChunkSize(16 * 1024);
+        LongAdder sum = new LongAdder();
+        reader.setOrdered(false);
+        reader.read(bytes, batch -> {
+            for (String[] row : batch)
+                sum.add(row[5].length());
+        });
+        return sum.sum();
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.benchmark;
+
+import de.mhus.commons.util.ConcurrentSoftHashMap;
+import de.mhus.commons.util.SoftHashMap;
+import de.mhus.commons.util.TimeoutMap;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache maps, single threaded and with concurrent readers and a writer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheMapBenchmark {
+
+    private TimeoutMap<String, String> timeoutMap;
+    private SoftHashMap<String, String> softMap;
+    private ConcurrentSoftHashMap<String, String> concurrentSoftMap;
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        timeoutMap = new TimeoutMap<>(60000);
+        softMap = new SoftHashMap<>();
+        concurrentSoftMap = new ConcurrentSoftHashMap<>();
+        keys = new String[256];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "key" + i;
+            timeoutMap.put(keys[i], "value" + i);
+            softMap.put(keys[i], "value" + i);
+            concurrentSoftMap.put(keys[i], "value" + i);
+        }
+    }
+
+    @Benchmark
+    public String timeoutMapGet() {
+        return timeoutMap.get(keys[(int) (System.nanoTime() & 255)]);
+    }
+
+    @Benchmark
+    public String softMapGet() {
+        return softMap.get(keys[(int) (System.nanoTime() & 255)]);
+    }
+
+    @Benchmark
+    @Group("timeoutMapConcurrent")
+    @GroupThreads(3)
+    public String timeoutMapConcurrentGet() {
+        return timeoutMap.get(keys[(int) (System.nanoTime() & 255)]);
+    }
+
+    @Benchmark
+    @Group("timeoutMapConcurrent")
+    @GroupThreads(1)
+    public String timeoutMapConcurrentPut() {
+        int i = (int) (System.nanoTime() & 255);
+        return timeoutMap.put(keys[i], "value" + i);
+    }
+
+    @Benchmark
+    @Group("softMapConcurrent")
+    @GroupThreads(3)
+    public String softMapConcurrentGet() {
+        return softMap.get(keys[(int) (System.nanoTime() & 255)]);
+    }
+
+    @Benchmark
+    @Group("softMapConcurrent")
+    @GroupThreads(1)
+    public String softMapConcurrentPut() {
+        int i = (int) (System.nanoTime() & 255);
+        return softMap.put(keys[i], "value" + i);
+    }
+
+    @Benchmark
+    public String concurrentSoftMapGet() {
+        return concurrentSoftMap.get(keys[(int) (System.nanoTime() & 255)]);
+    }
+
+    @Benchmark
+    @Group("concurrentSoftMapConcurrent")
+    @GroupThreads(3)
+    public String concurrentSoftMapConcurrentGet() {
+        return concurrentSoftMap.get(keys[(int) (System.nanoTime() & 255)]);
+    }
+
+    @Benchmark
+    @Group("concurrentSoftMapConcurrent")
+    @GroupThreads(1)
+    public String concurrentSoftMapConcurrentPut() {
+        int i = (int) (System.nanoTime() & 255);
+        return concurrentSoftMap.put(keys[i], "value" + i);
+    }
+}
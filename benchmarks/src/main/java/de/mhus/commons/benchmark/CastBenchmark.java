@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.benchmark;
+
+import de.mhus.commons.tools.MCast;
+import de.mhus.commons.tools.MDate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MCast.toType() conversions as used by the pojo attribute setters and date parsing and formatting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CastBenchmark {
+
+    public enum Color {
+        RED, GREEN, BLUE, CYAN, MAGENTA, YELLOW, BLACK, WHITE
+    }
+
+    private Object number = "12345";
+    private Object boxed = Integer.valueOf(12345);
+    private Object color = "WHITE";
+    private Object decimal = "123.45";
+    private Object array = new String[] { "1", "2", "3", "4" };
+    private Object list = Arrays.asList("1", "2", "3", "4");
+    private Object isoDate = "2020-12-01T13:20:10.223+02:00";
+    private Object germanDate = "01.12.2020 13:20:10";
+    private Date date = new Date(1606828810223L);
+
+    @Benchmark
+    public Object stringToInt() {
+        return MCast.toType(number, int.class, null);
+    }
+
+    @Benchmark
+    public Object stringToInteger() {
+        return MCast.toType(number, Integer.class, null);
+    }
+
+    @Benchmark
+    public Object integerToInteger() {
+        return MCast.toType(boxed, Integer.class, null);
+    }
+
+    @Benchmark
+    public Object integerToString() {
+        return MCast.toType(boxed, String.class, null);
+    }
+
+    @Benchmark
+    public Object stringToEnum() {
+        return MCast.toType(color, Color.class, null);
+    }
+
+    @Benchmark
+    public Object stringToBigDecimal() {
+        return MCast.toType(decimal, BigDecimal.class, null);
+    }
+
+    @Benchmark
+    public Object arrayToIntArray() {
+        return MCast.toType(array, int[].class, null);
+    }
+
+    @Benchmark
+    public Object listToLongArray() {
+        return MCast.toType(list, long[].class, null);
+    }
+
+    @Benchmark
+    public Object stringToList() {
+        return MCast.toType("[1, 2, 3]", List.class, null);
+    }
+
+    @Benchmark
+    public Object stringToDateIso() {
+        return MCast.toType(isoDate, Date.class, null);
+    }
+
+    @Benchmark
+    public Object stringToDateLenient() {
+        return MCast.toType(germanDate, Date.class, null);
+    }
+
+    @Benchmark
+    public Object dateToIso8601() {
+        return MDate.toIso8601(date);
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.benchmark;
+
+import de.mhus.commons.crypt.ChunkedAes;
+import de.mhus.commons.crypt.CipherBlockRotate;
+import de.mhus.commons.crypt.CipherInputStream;
+import de.mhus.commons.crypt.CipherOutputStream;
+import de.mhus.commons.crypt.DefaultRandom;
+import de.mhus.commons.crypt.SaltInputStream;
+import de.mhus.commons.crypt.SaltOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cipher and salt streams with 64 kB of data, in microseconds per stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptStreamBenchmark {
+
+    private byte[] data = new byte[64 * 1024];
+    private byte[] encoded;
+    private byte[] salted;
+    private byte[] buffer = new byte[8192];
+    private byte[] aesKey = new byte[16];
+    private ChunkedAes chunkedAes;
+    private Cipher gcm;
+    private SecretKeySpec gcmKey;
+    private long ivCounter;
+
+    @Setup
+    public void setup() throws IOException, GeneralSecurityException {
+        for (int i = 0; i < data.length; i++)
+            data[i] = (byte) (i * 31);
+        for (int i = 0; i < aesKey.length; i++)
+            aesKey[i] = (byte) i;
+        chunkedAes = new ChunkedAes(aesKey);
+        chunkedAes.setChunkSize(16 * 1024);
+        gcm = Cipher.getInstance("AES/GCM/NoPadding");
+        gcmKey = new SecretKeySpec(aesKey, "AES");
+        encoded = cipherWrite();
+        salted = saltWrite();
+    }
+
+    @Benchmark
+    public byte[] cipherWrite() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+        try (OutputStream os = new CipherOutputStream(out, newCipher())) {
+            os.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public int cipherRead() throws IOException {
+        return drain(new CipherInputStream(new ByteArrayInputStream(encoded), newCipher()));
+    }
+
+    @Benchmark
+    public byte[] saltWrite() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 2);
+        try (OutputStream os = new SaltOutputStream(out, new DefaultRandom(), 256, true)) {
+            os.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public int saltRead() throws IOException {
+        return drain(new SaltInputStream(new ByteArrayInputStream(salted), true));
+    }
+
+    // single threaded AES-GCM over the whole content as baseline for the chunks
+    @Benchmark
+    public byte[] aesGcmEncrypt() throws GeneralSecurityException {
+        byte[] iv = new byte[12];
+        ByteBuffer.wrap(iv).putLong(++ivCounter);
+        gcm.init(Cipher.ENCRYPT_MODE, gcmKey, new GCMParameterSpec(128, iv));
+        return gcm.doFinal(data);
+    }
+
+    @Benchmark
+    public byte[] aesChunkedEncrypt() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + 1024);
+        chunkedAes.encrypt(new ByteArrayInputStream(data), out);
+        return out.toByteArray();
+    }
+
+    private int drain(InputStream is) throws IOException {
+        int sum = 0;
+        try (is) {
+            int len;
+            while ((len = is.read(buffer)) > 0)
+                sum += len;
+        }
+        return sum;
+    }
+
+    private static CipherBlockRotate newCipher() {
+        CipherBlockRotate cipher = new CipherBlockRotate(16);
+        byte[] block = cipher.getBlock();
+        for (int i = 0; i < block.length; i++)
+            block[i] = (byte) (i * 7 + 3);
+        return cipher;
+    }
+}
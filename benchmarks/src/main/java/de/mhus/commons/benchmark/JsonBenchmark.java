@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.benchmark;
+
+import de.mhus.commons.errors.MException;
+import de.mhus.commons.tree.ITreeNode;
+import de.mhus.commons.tree.JsonStreamNodeBuilder;
+import de.mhus.commons.tree.LazyJsonNodeBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and writing a json document of about 30 kB with 200 objects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    private JsonStreamNodeBuilder builder = new JsonStreamNodeBuilder();
+    private LazyJsonNodeBuilder lazyBuilder = new LazyJsonNodeBuilder();
+    private String json;
+    private ITreeNode node;
+
+    @Setup
+    public void setup() throws MException {
+        StringBuilder sb = new StringBuilder("{\"name\":\"root\",\"items\":[");
+        for (int i = 0; i < 200; i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append("{\"id\":").append(i).append(",\"name\":\"item ").append(i)
+                    .append("\",\"price\":").append(i * 1.5).append(",\"active\":true,\"tags\":[{\"t\":\"a\"},{\"t\":\"b\"}]")
+                    .append(",\"meta\":{\"created\":\"2020-01-01\",\"owner\":\"user").append(i).append("\"}}");
+        }
+        sb.append("]}");
+        json = sb.toString();
+        node = builder.readFromString(json);
+    }
+
+    @Benchmark
+    public ITreeNode read() throws MException {
+        return builder.readFromString(json);
+    }
+
+    @Benchmark
+    public String readLazyOneKey() throws MException {
+        return lazyBuilder.readFromString(json).getString("name", null);
+    }
+
+    @Benchmark
+    public String write() throws MException {
+        return builder.writeToString(node);
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.benchmark;
+
+import de.mhus.commons.errors.MException;
+import de.mhus.commons.matcher.Condition;
+import de.mhus.commons.matcher.Matcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of precompiled matchers and conditions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatcherBenchmark {
+
+    private Matcher matcher;
+    private Condition condition;
+    private HashMap<String, Object> values = new HashMap<>();
+
+    @Setup
+    public void setup() throws MException {
+        matcher = new Matcher(".*aaa.* or .*bbb.* and not .*ccc.*");
+        condition = new Condition("$param1 fs al* and $param2 sql n%");
+        values.put("param1", "aloa");
+        values.put("param2", "nix");
+    }
+
+    @Benchmark
+    public boolean matcher() {
+        return matcher.matches("blablaaabla");
+    }
+
+    @Benchmark
+    public boolean condition() {
+        return condition.matches(values);
+    }
+
+    @Benchmark
+    public Matcher compileMatcher() throws MException {
+        return new Matcher(".*aaa.* or .*bbb.* and not .*ccc.*");
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.benchmark;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.mhus.commons.pojo.MPojo;
+import de.mhus.commons.tools.MJson;
+import de.mhus.commons.tree.ITreeNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pojo to node and json and back with the default model factory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PojoBenchmark {
+
+    private Person person;
+    private ITreeNode node;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws IOException {
+        person = new Person();
+        person.setName("Jane Doe");
+        person.setAge(42);
+        person.setHeight(1.72);
+        person.setActive(true);
+        person.setCity("Berlin");
+        node = MPojo.pojoToNode(person);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        MPojo.pojoToJson(person, os);
+        json = os.toByteArray();
+    }
+
+    @Benchmark
+    public ITreeNode pojoToNode() throws IOException {
+        return MPojo.pojoToNode(person);
+    }
+
+    @Benchmark
+    public Person nodeToPojo() throws IOException {
+        Person out = new Person();
+        MPojo.nodeToPojo(node, out);
+        return out;
+    }
+
+    @Benchmark
+    public byte[] pojoToJsonTree() throws IOException {
+        ObjectNode out = MJson.createObjectNode();
+        MPojo.pojoToJson(person, out);
+        return MJson.getMapper().writeValueAsBytes(out);
+    }
+
+    @Benchmark
+    public byte[] pojoToJsonStream() throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream(256);
+        MPojo.pojoToJson(person, os);
+        return os.toByteArray();
+    }
+
+    @Benchmark
+    public Person jsonToPojoTree() throws IOException {
+        Person out = new Person();
+        MPojo.jsonToPojo(MJson.load(new ByteArrayInputStream(json)), out);
+        return out;
+    }
+
+    @Benchmark
+    public Person jsonToPojoStream() throws IOException {
+        Person out = new Person();
+        MPojo.jsonToPojo(new ByteArrayInputStream(json), out);
+        return out;
+    }
+
+    public static class Person {
+
+        private String name;
+        private int age;
+        private double height;
+        private boolean active;
+        private String city;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+
+        public double getHeight() {
+            return height;
+        }
+
+        public void setHeight(double height) {
+            this.height = height;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+
+        public String getCity() {
+            return city;
+        }
+
+        public void setCity(String city) {
+            this.city = city;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.benchmark;
+
+import de.mhus.commons.tree.MProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Typed getters of MProperties. The legacy methods reproduce the former cast path (String.valueOf, prefix checks,
+ * parse with exception and OptionalInt) to compare with the current allocation free parsers. Run with -prof gc to see
+ * the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertiesGetterBenchmark {
+
+    private MProperties properties;
+
+    @Setup
+    public void setup() {
+        properties = new MProperties();
+        properties.put("string", "12345");
+        properties.put("number", 12345);
+        properties.put("invalid", "12a45");
+        properties.put("double", "123.45");
+        properties.put("bool", "true");
+    }
+
+    @Benchmark
+    public int getIntFromString() {
+        return properties.getInt("string", 0);
+    }
+
+    @Benchmark
+    public int getIntFromNumber() {
+        return properties.getInt("number", 0);
+    }
+
+    @Benchmark
+    public int getIntInvalid() {
+        return properties.getInt("invalid", 0);
+    }
+
+    @Benchmark
+    public long getLongFromString() {
+        return properties.getLong("string", 0);
+    }
+
+    @Benchmark
+    public double getDoubleFromString() {
+        return properties.getDouble("double", 0);
+    }
+
+    @Benchmark
+    public boolean getBooleanFromString() {
+        return properties.getBoolean("bool", false);
+    }
+
+    @Benchmark
+    public int legacyGetIntFromString() {
+        return legacyToInt(properties.get("string")).orElse(0);
+    }
+
+    @Benchmark
+    public int legacyGetIntInvalid() {
+        return legacyToInt(properties.get("invalid")).orElse(0);
+    }
+
+    @Benchmark
+    public double legacyGetDoubleFromString() {
+        try {
+            return Double.parseDouble(String.valueOf(properties.get("double")));
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    @Benchmark
+    public boolean legacyGetBooleanFromString() {
+        String ins = properties.get("bool").toString().toLowerCase().trim();
+        return ins.equals("yes") || ins.equals("true") || ins.equals("1") || ins.equals("y") || ins.equals("on");
+    }
+
+    private static OptionalInt legacyToInt(Object in) {
+        if (in == null)
+            return OptionalInt.empty();
+        if (in instanceof Number)
+            return OptionalInt.of(((Number) in).intValue());
+        String ins = String.valueOf(in);
+        try {
+            if (ins.startsWith("0x") || ins.startsWith("-0x") || ins.startsWith("+0x"))
+                return OptionalInt.of(Integer.parseInt(ins.substring(ins.indexOf('x') + 1), 16));
+            return OptionalInt.of(Integer.parseInt(ins));
+        } catch (Exception e) {
+            return OptionalInt.empty();
+        }
+    }
+}
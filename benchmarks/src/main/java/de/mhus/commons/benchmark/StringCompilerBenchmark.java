@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.benchmark;
+
+import de.mhus.commons.errors.MException;
+import de.mhus.commons.parser.CompiledString;
+import de.mhus.commons.parser.StringCompiler;
+import de.mhus.commons.util.MapValuesProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Template compilation and execution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringCompilerBenchmark {
+
+    private static final String TEMPLATE = "Hello ${firstName} ${lastName}, your order $orderId$ of ${amount}"
+            + " will be shipped to ${street}, ${city}.";
+
+    private CompiledString compiled;
+    private HashMap<String, Object> attributes = new HashMap<>();
+    private MapValuesProvider values;
+    private StringCompiler compiler = new StringCompiler();
+    private StringBuilder buffer = new StringBuilder();
+
+    @Setup
+    public void setup() {
+        compiled = StringCompiler.compile(TEMPLATE);
+        attributes.put("firstName", "Jane");
+        attributes.put("lastName", "Doe");
+        attributes.put("orderId", 4711);
+        attributes.put("amount", "12.50 EUR");
+        attributes.put("street", "Main Street 1");
+        attributes.put("city", "Berlin");
+        values = new MapValuesProvider(attributes);
+    }
+
+    @Benchmark
+    public CompiledString compile() {
+        return StringCompiler.compile(TEMPLATE);
+    }
+
+    @Benchmark
+    public CompiledString compileUncached() {
+        return compiler.compileString(TEMPLATE);
+    }
+
+    @Benchmark
+    public String execute() throws MException {
+        return compiled.execute(attributes);
+    }
+
+    @Benchmark
+    public String compileAndExecute() throws MException {
+        return StringCompiler.compile(TEMPLATE).execute(attributes);
+    }
+
+    @Benchmark
+    public int executeIntoBuffer() throws MException {
+        buffer.setLength(0);
+        compiled.execute(buffer, values);
+        return buffer.length();
+    }
+}
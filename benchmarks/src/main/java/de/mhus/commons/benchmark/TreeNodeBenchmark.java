@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.benchmark;
+
+import de.mhus.commons.tree.DefaultNodeFactory;
+import de.mhus.commons.tree.ITreeNode;
+import de.mhus.commons.tree.TreeNode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TreeNode property access with the different backing stores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeNodeBenchmark {
+
+    @Param({ DefaultNodeFactory.STORE_HASHTABLE, DefaultNodeFactory.STORE_COMPACT })
+    public String store;
+
+    private ITreeNode node;
+    private String[] keys;
+    private int index;
+
+    @Setup
+    public void setup() {
+        node = new TreeNode(DefaultNodeFactory.toStoreFactory(store).get());
+        keys = new String[32];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "key" + i;
+            node.setString(keys[i], "value" + i);
+        }
+        node.createObject("sub").setString("a", "b");
+    }
+
+    @Benchmark
+    public Object get() {
+        index = (index + 1) & 31;
+        return node.get(keys[index]);
+    }
+
+    @Benchmark
+    public String getString() {
+        index = (index + 1) & 31;
+        return node.getString(keys[index], null);
+    }
+
+    @Benchmark
+    public Object getObject() {
+        return node.getObject("sub").get();
+    }
+
+    @Benchmark
+    public Object put() {
+        index = (index + 1) & 31;
+        return node.put(keys[index], "value");
+    }
+
+    @Benchmark
+    public ITreeNode create() {
+        ITreeNode n = new TreeNode(DefaultNodeFactory.toStoreFactory(store).get());
+        for (int i = 0; i < 8; i++)
+            n.setString(keys[i], "value");
+        return n;
+    }
+}
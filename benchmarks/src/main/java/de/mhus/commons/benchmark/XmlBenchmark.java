@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.benchmark;
+
+import de.mhus.commons.tools.MXml;
+import de.mhus.commons.tree.ITreeNode;
+import de.mhus.commons.tree.XmlTreeNodeBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a xml document with 200 elements into a tree, with DOM and StAX.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlBenchmark {
+
+    private byte[] xml;
+    private XmlTreeNodeBuilder builder = new XmlTreeNodeBuilder();
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder("<root name='config'>");
+        for (int i = 0; i < 200; i++)
+            sb.append("<item id='").append(i).append("' name='item ").append(i).append("'><value>text ").append(i)
+                    .append("</value></item>");
+        sb.append("</root>");
+        xml = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ITreeNode readDom() throws Exception {
+        return builder.readFromElement(MXml.loadXml(new ByteArrayInputStream(xml)).getDocumentElement());
+    }
+
+    @Benchmark
+    public ITreeNode readStream() throws Exception {
+        return builder.read(new ByteArrayInputStream(xml));
+    }
+}
@@ -0,0 +1,324 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.cast;
+
+/**
+ * Number parsers working directly on character sequences. Malformed input returns the default value instead of throwing
+ * an exception and no objects are created while parsing integers. Integers can be decimal or hexadecimal with the
+ * prefix 0x.
+ */
+public final class NumberParser {
+
+    private static final long INVALID = Long.MIN_VALUE;
+    private static final int MAX_SIGNIFICANT = 18;
+    private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13,
+            1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    private NumberParser() {
+    }
+
+    public static boolean isInt(CharSequence in) {
+        return isInteger(in, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    public static int parseInt(CharSequence in, int def) {
+        long value = parseInteger(in, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        if (value == INVALID && !isInt(in))
+            return def;
+        return (int) value;
+    }
+
+    public static boolean isLong(CharSequence in) {
+        return isInteger(in, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    public static long parseLong(CharSequence in, long def) {
+        long value = parseInteger(in, Long.MIN_VALUE, Long.MAX_VALUE);
+        // MIN_VALUE is also a valid result
+        if (value == INVALID && !isLong(in))
+            return def;
+        return value;
+    }
+
+    /**
+     * Check for the syntax accepted by Double.parseDouble() without hexadecimal floating point values.
+     *
+     * @param in
+     *            The text
+     *
+     * @return true if the text can be parsed
+     */
+    public static boolean isDouble(CharSequence in) {
+        if (in == null)
+            return false;
+        int end = in.length();
+        int i = 0;
+        while (i < end && in.charAt(i) <= ' ')
+            i++;
+        while (end > i && in.charAt(end - 1) <= ' ')
+            end--;
+        if (i < end && (in.charAt(i) == '-' || in.charAt(i) == '+'))
+            i++;
+        if (i == end)
+            return false;
+        if (equals(in, i, end, "NaN") || equals(in, i, end, "Infinity"))
+            return true;
+        int digits = 0;
+        while (i < end && isDigit(in.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < end && in.charAt(i) == '.') {
+            i++;
+            while (i < end && isDigit(in.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0)
+            return false;
+        if (i < end && (in.charAt(i) == 'e' || in.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (in.charAt(i) == '-' || in.charAt(i) == '+'))
+                i++;
+            int exp = i;
+            while (i < end && isDigit(in.charAt(i)))
+                i++;
+            if (i == exp)
+                return false;
+        }
+        if (i < end && "dDfF".indexOf(in.charAt(i)) >= 0)
+            i++;
+        return i == end;
+    }
+
+    /**
+     * Parse the syntax of isDouble() in one pass. Values with up to 18 significant digits and a decimal exponent up to
+     * 22 are calculated exactly without creating objects, other values are delegated to Double.parseDouble().
+     *
+     * @param in
+     *            The text
+     * @param def
+     *            Returned if the text is not a valid double
+     *
+     * @return The value or def
+     */
+    public static double parseDouble(CharSequence in, double def) {
+        if (in == null)
+            return def;
+        int end = in.length();
+        int i = 0;
+        while (i < end && in.charAt(i) <= ' ')
+            i++;
+        while (end > i && in.charAt(end - 1) <= ' ')
+            end--;
+        int start = i;
+        boolean negative = false;
+        if (i < end && (in.charAt(i) == '-' || in.charAt(i) == '+')) {
+            negative = in.charAt(i) == '-';
+            i++;
+        }
+        if (i == end)
+            return def;
+        if (equals(in, i, end, "NaN"))
+            return Double.NaN;
+        if (equals(in, i, end, "Infinity"))
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        long mantissa = 0;
+        int significant = 0;
+        int exp10 = 0;
+        int digits = 0;
+        boolean exact = true;
+        char c;
+        while (i < end && isDigit(c = in.charAt(i))) {
+            if (significant < MAX_SIGNIFICANT) {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0)
+                    significant++;
+            } else {
+                exp10++;
+                exact &= c == '0';
+            }
+            digits++;
+            i++;
+        }
+        if (i < end && in.charAt(i) == '.') {
+            i++;
+            while (i < end && isDigit(c = in.charAt(i))) {
+                if (significant < MAX_SIGNIFICANT) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0)
+                        significant++;
+                    exp10--;
+                } else
+                    exact &= c == '0';
+                digits++;
+                i++;
+            }
+        }
+        if (digits == 0)
+            return def;
+        if (i < end && (in.charAt(i) == 'e' || in.charAt(i) == 'E')) {
+            i++;
+            boolean expNegative = false;
+            if (i < end && (in.charAt(i) == '-' || in.charAt(i) == '+')) {
+                expNegative = in.charAt(i) == '-';
+                i++;
+            }
+            int expStart = i;
+            int exp = 0;
+            while (i < end && isDigit(c = in.charAt(i))) {
+                if (exp < 100000)
+                    exp = exp * 10 + (c - '0');
+                i++;
+            }
+            if (i == expStart)
+                return def;
+            exp10 += expNegative ? -exp : exp;
+        }
+        if (i < end && "dDfF".indexOf(in.charAt(i)) >= 0)
+            i++;
+        if (i != end)
+            return def;
+        if (exact && mantissa < 1L << 53 && exp10 >= -22 && exp10 <= 22) {
+            // both values are exact doubles, the result is correctly rounded
+            double value = mantissa;
+            value = exp10 >= 0 ? value * POW10[exp10] : value / POW10[-exp10];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(in.subSequence(start, end).toString());
+    }
+
+    public static float parseFloat(CharSequence in, float def) {
+        if (!isDouble(in))
+            return def;
+        return Float.parseFloat(in.toString());
+    }
+
+    private static boolean isInteger(CharSequence in, long min, long max) {
+        if (in == null)
+            return false;
+        int len = in.length();
+        if (len == 0)
+            return false;
+        int i = 0;
+        boolean negative = false;
+        char c = in.charAt(0);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+        if (isHex(in, i)) {
+            // hex values are not range checked, like before
+            i += 2;
+            if (i == len)
+                return false;
+            for (; i < len; i++)
+                if (hexDigit(in.charAt(i)) < 0)
+                    return false;
+            return true;
+        }
+        if (i == len)
+            return false;
+        // accumulate negative to reach MIN_VALUE
+        long limit = negative ? min : -max;
+        long multmin = limit / 10;
+        long result = 0;
+        for (; i < len; i++) {
+            c = in.charAt(i);
+            if (!isDigit(c) || result < multmin)
+                return false;
+            result *= 10;
+            if (result < limit + (c - '0'))
+                return false;
+            result -= c - '0';
+        }
+        return true;
+    }
+
+    // validate and parse in one pass, returns INVALID if the syntax is wrong or the value is out of range
+    private static long parseInteger(CharSequence in, long min, long max) {
+        if (in == null)
+            return INVALID;
+        int len = in.length();
+        if (len == 0)
+            return INVALID;
+        int i = 0;
+        boolean negative = false;
+        char c = in.charAt(0);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+        if (isHex(in, i)) {
+            // hex values are not range checked, like before
+            i += 2;
+            if (i == len)
+                return INVALID;
+            long result = 0;
+            for (; i < len; i++) {
+                int d = hexDigit(in.charAt(i));
+                if (d < 0)
+                    return INVALID;
+                result = result * 16 + d;
+            }
+            return negative ? -result : result;
+        }
+        if (i == len)
+            return INVALID;
+        // accumulate negative to reach MIN_VALUE
+        long limit = negative ? min : -max;
+        long multmin = limit / 10;
+        long result = 0;
+        for (; i < len; i++) {
+            c = in.charAt(i);
+            if (!isDigit(c) || result < multmin)
+                return INVALID;
+            result *= 10;
+            if (result < limit + (c - '0'))
+                return INVALID;
+            result -= c - '0';
+        }
+        return negative ? result : -result;
+    }
+
+    private static boolean isHex(CharSequence in, int i) {
+        return in.length() > i + 1 && in.charAt(i) == '0' && in.charAt(i + 1) == 'x';
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9')
+            return c - '0';
+        if (c >= 'a' && c <= 'f')
+            return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F')
+            return c - 'A' + 10;
+        return -1;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean equals(CharSequence in, int start, int end, String value) {
+        if (end - start != value.length())
+            return false;
+        for (int i = 0; i < value.length(); i++)
+            if (in.charAt(start + i) != value.charAt(i))
+                return false;
+        return true;
+    }
+}
@@ -36,37 +36,116 @@ public class ObjectToBoolean implements Caster<Object, Boolean> {
     }
 
     public OptionalBoolean toBoolean(Object in) {
-        if (in == null)
+        switch (parse(in)) {
+        case 1:
+            return OptionalBoolean.of(true);
+        case 0:
+            return OptionalBoolean.of(false);
+        default:
             return OptionalBoolean.empty();
+        }
+    }
 
-        if (in instanceof Boolean)
-            return OptionalBoolean.of((Boolean) in);
+    public boolean toBoolean(Object in, boolean def) {
+        switch (parse(in)) {
+        case 1:
+            return true;
+        case 0:
+            return false;
+        default:
+            return def;
+        }
+    }
 
+    // 1 for true, 0 for false and -1 if unknown
+    private static int parse(Object in) {
+        if (in == null)
+            return -1;
+        if (in instanceof Boolean)
+            return ((Boolean) in) ? 1 : 0;
         if (in instanceof Number)
-            return OptionalBoolean.of(!(((Number) in).intValue() == 0));
-
-        String ins = in.toString().toLowerCase().trim();
-
-        if (ins.equals("yes") || ins.equals("true") || ins.equals("1") || ins.equals("y") || ins.equals("on")
-                || ins.equals("t") || ins.equals("ja") // :-)
-                || ins.equals("tak") // :-)
-                || ins.equals("oui") // :-)
-                || ins.equals("si") // :-)
-                || ins.equals("\u4fc2") // :-) chinese
-                || ins.equals("HIja'") // :-) // klingon
-                || ins.equals("\u2612")) {
-            return OptionalBoolean.of(true);
+            return ((Number) in).intValue() == 0 ? 0 : 1;
+        if (in instanceof String) {
+            // fast path for the usual lower case values, the string hash is cached
+            switch ((String) in) {
+            case "true":
+            case "yes":
+            case "1":
+                return 1;
+            case "false":
+            case "no":
+            case "0":
+                return 0;
+            default:
+                break;
+            }
         }
-
-        if (ins.equals("no") || ins.equals("false") || ins.equals("0") || ins.equals("off") || ins.equals("n")
-                || ins.equals("f") || ins.equals("-1") || ins.equals("nein") // :-)
-                || ins.equals("nie") // :-)
-                || ins.equals("non") // :-)
-                || ins.equals("\u5514\u4fc2") // :-) chinese
-                || ins.equals("Qo'") // :-) klingon
-                || ins.equals("\u2610")) {
-            return OptionalBoolean.of(false);
+        CharSequence ins = in instanceof CharSequence ? (CharSequence) in : in.toString();
+        int start = 0;
+        int end = ins.length();
+        while (start < end && ins.charAt(start) <= ' ')
+            start++;
+        while (end > start && ins.charAt(end - 1) <= ' ')
+            end--;
+        // yes, true, 1, y, on, t, ja, tak, oui, si, chinese, klingon and a checked box are true,
+        // no, false, 0, off, n, f, -1, nein, nie, non, chinese, klingon and an unchecked box are false
+        switch (end - start) {
+        case 1:
+            switch (lower(ins.charAt(start))) {
+            case '1':
+            case 'y':
+            case 't':
+            case '\u4fc2':
+            case '\u2612':
+                return 1;
+            case '0':
+            case 'n':
+            case 'f':
+            case '\u2610':
+                return 0;
+            default:
+                return -1;
+            }
+        case 2:
+            if (is(ins, start, "on") || is(ins, start, "ja") || is(ins, start, "si"))
+                return 1;
+            if (is(ins, start, "no") || is(ins, start, "-1") || is(ins, start, "\u5514\u4fc2"))
+                return 0;
+            return -1;
+        case 3:
+            if (is(ins, start, "yes") || is(ins, start, "tak") || is(ins, start, "oui"))
+                return 1;
+            if (is(ins, start, "off") || is(ins, start, "nie") || is(ins, start, "non") || is(ins, start, "qo'"))
+                return 0;
+            return -1;
+        case 4:
+            if (is(ins, start, "true"))
+                return 1;
+            if (is(ins, start, "nein"))
+                return 0;
+            return -1;
+        case 5:
+            if (is(ins, start, "false"))
+                return 0;
+            if (is(ins, start, "hija'"))
+                return 1;
+            return -1;
+        default:
+            return -1;
         }
-        return OptionalBoolean.empty();
+    }
+
+    // compare with a lower case value of the same length
+    private static boolean is(CharSequence in, int start, String value) {
+        for (int i = 0; i < value.length(); i++)
+            if (lower(in.charAt(start + i)) != value.charAt(i))
+                return false;
+        return true;
+    }
+
+    private static char lower(char c) {
+        if (c >= 'A' && c <= 'Z')
+            return (char) (c + ('a' - 'A'));
+        return c < 128 ? c : Character.toLowerCase(c);
     }
 }
@@ -17,8 +17,10 @@ package de.mhus.commons.cast;
 
 import de.mhus.commons.tools.MCast;
 import de.mhus.commons.tools.MString;
+import de.mhus.commons.util.DateFormats;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.ZonedDateTime;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
@@ -29,6 +31,10 @@ import java.util.TimeZone;
  * Accepted formats:
  *
  * <p>
+ * Strict ISO-8601 dates are parsed by DateFormats without creating temporary strings, all other formats are parsed
+ * lenient.
+ *
+ * <p>
  * now, jetzt integer as timestamp &lt;&lt;date&gt;&gt;[[ |_|T]&lt;&lt;time&gt;&gt;] date: yyyy-mm-dd dd.mm.yyyy
  * yyyy-mm-dd dd.mm.yyyy dd/mm/yyyy mm/dd/yyyy + locale == US time: MM:HH:ss[.SSS][Z][zone] MM-HH-ss[.SSS][Z][zone]
  * MM:HH am/pm[Z][zone] Jan 1, 2000 1:00 am[Z][zone]
@@ -125,16 +131,21 @@ public class ObjectToCalendar implements Caster<Object, Calendar> {
 
         try {
 
-            Calendar c = Calendar.getInstance();
             if (in.equals("now") || in.equals("jetzt")) {
-                return c;
+                return Calendar.getInstance();
             }
 
+            String date = in.trim();
+
+            // fast path for strict iso dates
+            ZonedDateTime iso = DateFormats.parseIso8601(date, null);
+            if (iso != null)
+                return DateFormats.toCalendar(iso);
+
             boolean retOk = false;
+            Calendar c = DateFormats.newCalendar(null);
             c.clear();
 
-            String date = in.trim();
-
             // check if date and time
             char sep = '?';
             if (MString.isIndex(date, '_'))
@@ -15,8 +15,13 @@
  */
 package de.mhus.commons.cast;
 
+import de.mhus.commons.util.DateFormats;
+
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
@@ -51,8 +56,17 @@ public class ObjectToDate implements Caster<Object, Date> {
             return java.sql.Timestamp.valueOf((LocalDateTime) in);
         if (in instanceof LocalDate)
             return java.sql.Date.valueOf((LocalDate) in);
+        if (in instanceof Instant)
+            return new Date(((Instant) in).toEpochMilli());
+        if (in instanceof ZonedDateTime)
+            return new Date(((ZonedDateTime) in).toInstant().toEpochMilli());
+        if (in instanceof OffsetDateTime)
+            return new Date(((OffsetDateTime) in).toInstant().toEpochMilli());
         try {
             String ins = String.valueOf(in);
+            ZonedDateTime iso = DateFormats.parseIso8601(ins.trim(), null);
+            if (iso != null)
+                return new Date(iso.toInstant().toEpochMilli());
             Calendar c = ObjectToCalendar.toCalendar(ins, locale);
             if (c == null)
                 return def;
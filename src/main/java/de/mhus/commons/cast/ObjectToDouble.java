@@ -41,16 +41,22 @@ public class ObjectToDouble implements Caster<Object, Double> {
     public OptionalDouble toDouble(Object in) {
         if (in == null)
             return OptionalDouble.empty();
-        if (in instanceof Number) {
-            double r = ((Number) in).doubleValue();
-            return OptionalDouble.of(r);
-        }
-        try {
-            double r = Double.parseDouble(String.valueOf(in));
-            return OptionalDouble.of(r);
-        } catch (Exception e) {
-            LOGGER.trace("cast to double failed {}", in, e.toString());
-        }
+        if (in instanceof Number)
+            return OptionalDouble.of(((Number) in).doubleValue());
+        CharSequence ins = in instanceof CharSequence ? (CharSequence) in : String.valueOf(in);
+        if (NumberParser.isDouble(ins))
+            return OptionalDouble.of(NumberParser.parseDouble(ins, 0));
+        LOGGER.trace("cast to double failed {}", in);
         return OptionalDouble.empty();
     }
+
+    public double toDouble(Object in, double def) {
+        if (in == null)
+            return def;
+        if (in instanceof Number)
+            return ((Number) in).doubleValue();
+        if (in instanceof CharSequence)
+            return NumberParser.parseDouble((CharSequence) in, def);
+        return NumberParser.parseDouble(String.valueOf(in), def);
+    }
 }
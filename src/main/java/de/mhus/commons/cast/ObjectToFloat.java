@@ -47,14 +47,14 @@ public class ObjectToFloat implements Caster<Object, Float> {
                 ret.setValue(r);
             return r;
         }
-        try {
-            float r = Float.parseFloat(String.valueOf(in));
+        CharSequence ins = in instanceof CharSequence ? (CharSequence) in : String.valueOf(in);
+        if (NumberParser.isDouble(ins)) {
+            float r = NumberParser.parseFloat(ins, def);
             if (ret != null)
                 ret.setValue(r);
             return r;
-        } catch (Exception e) {
-            LOGGER.trace("cast to float failed {}", in, e.toString());
         }
+        LOGGER.trace("cast to float failed {}", in);
         return def;
     }
 }
@@ -43,45 +43,30 @@ public class ObjectToInteger implements Caster<Object, Integer> {
     public OptionalInt toInt(Object in) {
         if (in == null)
             return OptionalInt.empty();
-        if (in instanceof Integer) {
-            return OptionalInt.of(((Integer) in).intValue());
-        }
-        if (in instanceof Number) {
-            int r = ((Number) in).intValue();
-            return OptionalInt.of(r);
-        }
-
-        String _in = String.valueOf(in);
-        try {
-            if (_in.startsWith("0x") || _in.startsWith("-0x") || _in.startsWith("+0x")) {
-                int start = 2;
-                if (_in.startsWith("-"))
-                    start = 3;
-                int out = 0;
-                for (int i = start; i < _in.length(); i++) {
-                    int s = -1;
-                    char c = _in.charAt(i);
-                    if (c >= '0' && c <= '9')
-                        s = c - '0';
-                    else if (c >= 'a' && c <= 'f')
-                        s = c - 'a' + 10;
-                    else if (c >= 'A' && c <= 'F')
-                        s = c - 'A' + 10;
-
-                    if (s == -1)
-                        throw new NumberFormatException(_in);
-                    out = out * 16 + s;
-                }
-                if (_in.startsWith("-"))
-                    out = -out;
-                return OptionalInt.of(out);
-            }
+        if (in instanceof Number)
+            return OptionalInt.of(((Number) in).intValue());
+        CharSequence ins = in instanceof CharSequence ? (CharSequence) in : String.valueOf(in);
+        if (NumberParser.isInt(ins))
+            return OptionalInt.of(NumberParser.parseInt(ins, 0));
+        LOGGER.trace("Error: {}", ins);
+        return OptionalInt.empty();
+    }
 
-            int r = Integer.parseInt(_in);
-            return OptionalInt.of(r);
-        } catch (Exception e) {
-            LOGGER.trace("Error: {}", _in, e.toString());
-            return OptionalInt.empty();
-        }
+    /**
+     * Convert to int without creating temporary objects for numbers and character sequences.
+     *
+     * @param in
+     * @param def
+     *
+     * @return The value or def
+     */
+    public int toInt(Object in, int def) {
+        if (in == null)
+            return def;
+        if (in instanceof Number)
+            return ((Number) in).intValue();
+        if (in instanceof CharSequence)
+            return NumberParser.parseInt((CharSequence) in, def);
+        return NumberParser.parseInt(String.valueOf(in), def);
     }
 }
@@ -41,44 +41,30 @@ public class ObjectToLong implements Caster<Object, Long> {
     public OptionalLong toLong(Object in) {
         if (in == null)
             return OptionalLong.empty();
-        if (in instanceof Number) {
-            long r = ((Number) in).longValue();
-            return OptionalLong.of(r);
-        }
-        String ins = String.valueOf(in);
-
-        try {
-
-            if (ins.startsWith("0x") || ins.startsWith("-0x") || ins.startsWith("+0x")) {
-                int start = 2;
-                if (ins.startsWith("-"))
-                    start = 3;
-                long out = 0;
-                for (int i = start; i < ins.length(); i++) {
-                    int s = -1;
-                    char c = ins.charAt(i);
-                    if (c >= '0' && c <= '9')
-                        s = c - '0';
-                    else if (c >= 'a' && c <= 'f')
-                        s = c - 'a' + 10;
-                    else if (c >= 'A' && c <= 'F')
-                        s = c - 'A' + 10;
-
-                    if (s == -1)
-                        throw new NumberFormatException(ins);
-                    out = out * 16 + s;
-                }
-                if (ins.startsWith("-"))
-                    out = -out;
-                return OptionalLong.of(out);
-            }
-
-            long r = Long.parseLong(ins);
-            return OptionalLong.of(r);
-
-        } catch (Exception e) {
-            LOGGER.trace("Error: {}", ins, e.toString());
-        }
+        if (in instanceof Number)
+            return OptionalLong.of(((Number) in).longValue());
+        CharSequence ins = in instanceof CharSequence ? (CharSequence) in : String.valueOf(in);
+        if (NumberParser.isLong(ins))
+            return OptionalLong.of(NumberParser.parseLong(ins, 0));
+        LOGGER.trace("Error: {}", ins);
         return OptionalLong.empty();
     }
+
+    /**
+     * Convert to long without creating temporary objects for numbers and character sequences.
+     *
+     * @param in
+     * @param def
+     *
+     * @return The value or def
+     */
+    public long toLong(Object in, long def) {
+        if (in == null)
+            return def;
+        if (in instanceof Number)
+            return ((Number) in).longValue();
+        if (in instanceof CharSequence)
+            return NumberParser.parseLong((CharSequence) in, def);
+        return NumberParser.parseLong(String.valueOf(in), def);
+    }
 }
@@ -0,0 +1,368 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.crypt;
+
+import de.mhus.commons.tools.MSystem;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * AES-GCM encryption of streams and files in independently authenticated chunks. The chunks are encrypted in parallel
+ * with a limited number of chunks in memory, so the size of the content is not limited by the heap.
+ *
+ * <p>
+ * Format: header 'M' 'A' 'G' version(1) chunkSize(int) nonce(8 bytes), followed by the chunks: last(1 byte) length(int)
+ * ciphertext with tag. The IV of a chunk is the nonce and the chunk index, the index and the last flag are
+ * authenticated, so reordered or truncated content is detected.
+ */
+public class ChunkedAes {
+
+    public static final int CFG_CHUNK_SIZE = MSystem.getEnv(ChunkedAes.class, "chunkSize", 64 * 1024);
+    // the chunk size of the header is not authenticated, it is checked before buffers are allocated
+    public static final int CFG_MAX_CHUNK_SIZE = MSystem.getEnv(ChunkedAes.class, "maxChunkSize", 64 * 1024 * 1024);
+    public static final int CFG_PARALLELISM = MSystem.getEnv(ChunkedAes.class, "parallelism",
+            Runtime.getRuntime().availableProcessors());
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int CHUNK_HEADER_SIZE = 5;
+    private static final int TAG_SIZE = 16;
+    // the chunk index is a 32 bit counter in the IV
+    private static final long MAX_CHUNKS = 0xFFFFFFFFL;
+
+    private final SecretKeySpec key;
+    private int chunkSize = CFG_CHUNK_SIZE;
+    private int parallelism = CFG_PARALLELISM;
+    private ExecutorService executor;
+
+    /**
+     * @param key
+     *            The key with 16, 24 or 32 bytes.
+     */
+    public ChunkedAes(byte[] key) {
+        this.key = new SecretKeySpec(key, MBouncy.ALGORITHM_AES);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Size of the plain chunks for encryption, decryption uses the size from the header. The size is limited by
+     * CFG_MAX_CHUNK_SIZE.
+     *
+     * @param chunkSize
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1 || chunkSize > CFG_MAX_CHUNK_SIZE)
+            throw new IllegalArgumentException("chunkSize must be between 1 and " + CFG_MAX_CHUNK_SIZE);
+        this.chunkSize = chunkSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Maximum number of chunks processed at the same time, twice of this is kept in memory.
+     *
+     * @param parallelism
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Executor for the chunks, default is the common pool.
+     *
+     * @param executor
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public void encrypt(InputStream in, OutputStream out) throws IOException {
+        int size = chunkSize;
+        byte[] nonce = createNonce();
+        out.write(createHeader(size, nonce).array());
+        Window<byte[]> window = new Window<>();
+        byte[] current = in.readNBytes(size);
+        long index = 0;
+        while (true) {
+            byte[] next = current.length < size ? null : in.readNBytes(size);
+            boolean last = next == null || next.length == 0;
+            byte[] plain = current;
+            long i = index;
+            byte[] done = window.submit(() -> encryptChunk(nonce, i, last, plain, 0, plain.length));
+            if (done != null)
+                out.write(done);
+            if (last)
+                break;
+            current = next;
+            index++;
+        }
+        while (!window.isEmpty())
+            out.write(window.next());
+        out.flush();
+    }
+
+    public void decrypt(InputStream in, OutputStream out) throws IOException {
+        ByteBuffer header = ByteBuffer.wrap(readFully(in, HEADER_SIZE));
+        int size = readHeader(header);
+        byte[] nonce = new byte[8];
+        header.get(nonce);
+        Window<byte[]> window = new Window<>();
+        long index = 0;
+        while (true) {
+            int flag = in.read();
+            if (flag < 0)
+                throw new EOFException("encrypted stream is truncated");
+            int len = ByteBuffer.wrap(readFully(in, 4)).getInt();
+            boolean last = flag == 1;
+            checkChunk(flag, len, size, last);
+            byte[] data = readFully(in, len);
+            long i = index;
+            byte[] done = window.submit(() -> decryptChunk(nonce, i, last, data, 0, len));
+            if (done != null)
+                out.write(done);
+            if (last)
+                break;
+            index++;
+        }
+        if (in.read() >= 0)
+            throw new IOException("data after the last chunk");
+        while (!window.isEmpty())
+            out.write(window.next());
+        out.flush();
+    }
+
+    /**
+     * Encrypt the content of the channel from position 0, the chunks are read and written in parallel.
+     *
+     * @param in
+     * @param out
+     *
+     * @throws IOException
+     */
+    public void encrypt(FileChannel in, FileChannel out) throws IOException {
+        int size = chunkSize;
+        byte[] nonce = createNonce();
+        long length = in.size();
+        long chunks = Math.max(1, (length + size - 1) / size);
+        long recordSize = CHUNK_HEADER_SIZE + size + TAG_SIZE;
+        writeFully(out, createHeader(size, nonce), 0);
+        Window<Boolean> window = new Window<>();
+        for (long index = 0; index < chunks; index++) {
+            long i = index;
+            window.submit(() -> {
+                long pos = i * size;
+                ByteBuffer plain = ByteBuffer.allocate((int) Math.min(size, length - pos));
+                readFully(in, plain, pos);
+                byte[] record = encryptChunk(nonce, i, i == chunks - 1, plain.array(), 0, plain.capacity());
+                writeFully(out, ByteBuffer.wrap(record), HEADER_SIZE + i * recordSize);
+                return Boolean.TRUE;
+            });
+        }
+        while (!window.isEmpty())
+            window.next();
+        out.truncate(
+                HEADER_SIZE + (chunks - 1) * recordSize + CHUNK_HEADER_SIZE + length - (chunks - 1) * size + TAG_SIZE);
+    }
+
+    /**
+     * Decrypt the content of the channel from position 0, the chunks are read and written in parallel.
+     *
+     * @param in
+     * @param out
+     *
+     * @throws IOException
+     */
+    public void decrypt(FileChannel in, FileChannel out) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(in, header, 0);
+        header.flip();
+        int size = readHeader(header);
+        byte[] nonce = new byte[8];
+        header.get(nonce);
+        long recordSize = CHUNK_HEADER_SIZE + size + TAG_SIZE;
+        long length = in.size() - HEADER_SIZE;
+        long chunks = Math.max(1, (length + recordSize - 1) / recordSize);
+        long lastSize = length - (chunks - 1) * recordSize;
+        if (lastSize < CHUNK_HEADER_SIZE + TAG_SIZE)
+            throw new EOFException("encrypted file is truncated");
+        Window<Boolean> window = new Window<>();
+        for (long index = 0; index < chunks; index++) {
+            long i = index;
+            window.submit(() -> {
+                boolean last = i == chunks - 1;
+                ByteBuffer record = ByteBuffer.allocate((int) (last ? lastSize : recordSize));
+                readFully(in, record, HEADER_SIZE + i * recordSize);
+                record.flip();
+                int flag = record.get();
+                int len = record.getInt();
+                checkChunk(flag, len, size, last);
+                if (len != record.remaining())
+                    throw new IOException("invalid length of chunk " + i);
+                byte[] plain = decryptChunk(nonce, i, last, record.array(), CHUNK_HEADER_SIZE, len);
+                writeFully(out, ByteBuffer.wrap(plain), i * size);
+                return Boolean.TRUE;
+            });
+        }
+        while (!window.isEmpty())
+            window.next();
+        out.truncate((chunks - 1) * size + lastSize - CHUNK_HEADER_SIZE - TAG_SIZE);
+    }
+
+    private byte[] encryptChunk(byte[] nonce, long index, boolean last, byte[] plain, int off, int len)
+            throws GeneralSecurityException {
+        Cipher cipher = init(Cipher.ENCRYPT_MODE, nonce, index, last);
+        byte[] record = new byte[CHUNK_HEADER_SIZE + len + TAG_SIZE];
+        ByteBuffer.wrap(record).put((byte) (last ? 1 : 0)).putInt(len + TAG_SIZE);
+        cipher.doFinal(plain, off, len, record, CHUNK_HEADER_SIZE);
+        return record;
+    }
+
+    private byte[] decryptChunk(byte[] nonce, long index, boolean last, byte[] data, int off, int len)
+            throws GeneralSecurityException {
+        Cipher cipher = init(Cipher.DECRYPT_MODE, nonce, index, last);
+        return cipher.doFinal(data, off, len);
+    }
+
+    private Cipher init(int mode, byte[] nonce, long index, boolean last) throws GeneralSecurityException {
+        if (index > MAX_CHUNKS)
+            throw new GeneralSecurityException("too many chunks, increase the chunk size");
+        byte[] iv = new byte[12];
+        System.arraycopy(nonce, 0, iv, 0, 8);
+        ByteBuffer.wrap(iv, 8, 4).putInt((int) index);
+        Cipher cipher = MBouncy.getCipher(TRANSFORMATION);
+        cipher.init(mode, key, new GCMParameterSpec(TAG_SIZE * 8, iv));
+        cipher.updateAAD(ByteBuffer.allocate(9).putLong(index).put((byte) (last ? 1 : 0)).array());
+        return cipher;
+    }
+
+    private static byte[] createNonce() {
+        byte[] nonce = new byte[8];
+        new SecureRandom().nextBytes(nonce);
+        return nonce;
+    }
+
+    private static ByteBuffer createHeader(int size, byte[] nonce) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put((byte) 'M').put((byte) 'A').put((byte) 'G').put((byte) VERSION).putInt(size).put(nonce);
+        header.flip();
+        return header;
+    }
+
+    private static int readHeader(ByteBuffer header) throws IOException {
+        if (header.get() != 'M' || header.get() != 'A' || header.get() != 'G')
+            throw new IOException("not a chunked aes header");
+        int version = header.get();
+        if (version != VERSION)
+            throw new IOException("unsupported chunked aes version: " + version);
+        int size = header.getInt();
+        if (size < 1 || size > CFG_MAX_CHUNK_SIZE)
+            throw new IOException("invalid chunk size: " + size);
+        return size;
+    }
+
+    private static void checkChunk(int flag, int len, int size, boolean last) throws IOException {
+        if (flag != 0 && flag != 1 || last != (flag == 1))
+            throw new IOException("invalid chunk flag");
+        if (len < TAG_SIZE || len > size + TAG_SIZE || !last && len != size + TAG_SIZE)
+            throw new IOException("invalid chunk length: " + len);
+    }
+
+    private static byte[] readFully(InputStream in, int len) throws IOException {
+        byte[] data = in.readNBytes(len);
+        if (data.length < len)
+            throw new EOFException("encrypted stream is truncated");
+        return data;
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long pos) throws IOException {
+        while (buffer.hasRemaining()) {
+            int len = in.read(buffer, pos);
+            if (len < 0)
+                throw new EOFException("unexpected end of file");
+            pos += len;
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer, long pos) throws IOException {
+        while (buffer.hasRemaining())
+            pos += out.write(buffer, pos);
+    }
+
+    /**
+     * Submitted tasks in order of submission, the oldest result is returned if the window is full.
+     */
+    private class Window<T> {
+
+        private final ArrayDeque<Future<T>> pending = new ArrayDeque<>();
+        private final ExecutorService exec = executor == null ? ForkJoinPool.commonPool() : executor;
+
+        T submit(Callable<T> task) throws IOException {
+            pending.add(exec.submit(task));
+            if (pending.size() < parallelism * 2)
+                return null;
+            return next();
+        }
+
+        boolean isEmpty() {
+            return pending.isEmpty();
+        }
+
+        T next() throws IOException {
+            Future<T> future = pending.poll();
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted", e);
+            } catch (ExecutionException e) {
+                cancel();
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException)
+                    throw (IOException) cause;
+                throw new IOException("chunk processing failed", cause);
+            }
+        }
+
+        private void cancel() {
+            for (Future<T> future : pending)
+                future.cancel(false);
+            pending.clear();
+        }
+    }
+}
@@ -22,4 +22,28 @@ public interface CipherBlock {
     byte encode(byte in);
 
     byte decode(byte in);
+
+    /**
+     * Encode the bytes in place.
+     *
+     * @param data
+     * @param off
+     * @param len
+     */
+    default void encode(byte[] data, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            data[i] = encode(data[i]);
+    }
+
+    /**
+     * Decode the bytes in place.
+     *
+     * @param data
+     * @param off
+     * @param len
+     */
+    default void decode(byte[] data, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            data[i] = decode(data[i]);
+    }
 }
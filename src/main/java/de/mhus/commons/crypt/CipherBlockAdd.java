@@ -62,6 +62,28 @@ public class CipherBlockAdd implements CipherBlock {
         return in;
     }
 
+    @Override
+    public void encode(byte[] data, int off, int len) {
+        int p = pos;
+        for (int i = off; i < off + len; i++) {
+            data[i] = MMath.addRotate(data[i], block[p]);
+            if (++p == block.length)
+                p = 0;
+        }
+        pos = p;
+    }
+
+    @Override
+    public void decode(byte[] data, int off, int len) {
+        int p = pos;
+        for (int i = off; i < off + len; i++) {
+            data[i] = MMath.subRotate(data[i], block[p]);
+            if (++p == block.length)
+                p = 0;
+        }
+        pos = p;
+    }
+
     private void next() {
         pos = (pos + 1) % block.length;
     }
@@ -44,4 +44,14 @@ public class CipherBlockBundle extends LinkedList<CipherBlock> implements Cipher
     public byte decode(byte in) {
         return current.decode(in);
     }
+
+    @Override
+    public void encode(byte[] data, int off, int len) {
+        current.encode(data, off, len);
+    }
+
+    @Override
+    public void decode(byte[] data, int off, int len) {
+        current.decode(data, off, len);
+    }
 }
@@ -42,6 +42,24 @@ public class CipherInputStream extends InputStream {
         return MMath.unsignetByteToInt(cipher.decode((byte) out));
     }
 
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int cnt = is.read(b, off, len);
+        if (cnt > 0 && cipher != null)
+            cipher.decode(b, off, cnt);
+        return cnt;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return is.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        is.close();
+    }
+
     public CipherBlock getCipher() {
         return cipher;
     }
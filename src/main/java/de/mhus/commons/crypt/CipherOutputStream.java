@@ -22,6 +22,7 @@ public class CipherOutputStream extends OutputStream {
 
     private CipherBlock cipher;
     private OutputStream os;
+    private byte[] buffer;
 
     public CipherOutputStream(OutputStream os, CipherBlock cipher) {
         this.os = os;
@@ -40,6 +41,35 @@ public class CipherOutputStream extends OutputStream {
             os.write(cipher.encode((byte) b));
     }
 
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (cipher == null) {
+            os.write(b, off, len);
+            return;
+        }
+        // encode a copy, the data of the caller must not be changed
+        if (buffer == null)
+            buffer = new byte[8192];
+        while (len > 0) {
+            int cnt = Math.min(len, buffer.length);
+            System.arraycopy(b, off, buffer, 0, cnt);
+            cipher.encode(buffer, 0, cnt);
+            os.write(buffer, 0, cnt);
+            off += cnt;
+            len -= cnt;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        os.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        os.close();
+    }
+
     public CipherBlock getCipher() {
         return cipher;
     }
@@ -16,12 +16,8 @@
 package de.mhus.commons.crypt;
 
 import de.mhus.commons.M;
-import de.mhus.commons.services.MService;
 import de.mhus.commons.tools.MCast;
-import de.mhus.commons.tools.MPeriod;
 import de.mhus.commons.tools.MString;
-import de.mhus.commons.tools.MSystem;
-import de.mhus.commons.tools.MThread;
 import de.mhus.commons.crypt.pem.PemBlock;
 import de.mhus.commons.crypt.pem.PemBlockModel;
 import de.mhus.commons.crypt.pem.PemUtil;
@@ -31,8 +27,12 @@ import javax.crypto.Cipher;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.KeyFactory;
 import java.security.KeyPair;
@@ -48,7 +48,10 @@ import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * This utility uses explicit bouncy castle methods for cryptography. It depends on BC but not JCE. For some
@@ -92,11 +95,33 @@ public class MBouncy {
     private static final String TRANSFORMATION_ECC = "SHA512WITHECDSA";
     private static final String ALGORITHM_ECC = "ECDSA";
 
-    private static LinkedList<KeyPair> keyPool = new LinkedList<>();
-    private static long keyPoolUpdate = 0;
-    private static final long CFG_POOL_UPDATE_TIME = MSystem.getEnv(MBouncy.class, "poolUpdateTime",
-            MPeriod.MINUTE_IN_MILLISECONDS * 10);
-    private static final int CFG_POOL_SIZE = MSystem.getEnv(MBouncy.class, "poolSize", 10);
+    // Cipher.getInstance() is expensive, instances are reused per thread and initialized for each usage
+    private static final ThreadLocal<HashMap<String, Cipher>> CIPHERS = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<HashMap<String, Signature>> SIGNATURES = ThreadLocal.withInitial(HashMap::new);
+    // the converted keys do not reference the original keys, entries are removed with the original key
+    private static final Map<Key, Key> ECC_KEYS = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final ThreadLocal<KeyFactory> ECC_KEY_FACTORY = new ThreadLocal<>();
+
+    /**
+     * Return a cipher of the BC provider for the current thread. The cipher must be initialized before usage and must
+     * not be shared with other threads.
+     *
+     * @param transformation
+     *
+     * @return The cipher instance of this thread
+     *
+     * @throws GeneralSecurityException
+     */
+    public static Cipher getCipher(String transformation) throws GeneralSecurityException {
+        HashMap<String, Cipher> ciphers = CIPHERS.get();
+        Cipher cipher = ciphers.get(transformation);
+        if (cipher == null) {
+            init();
+            cipher = Cipher.getInstance(transformation, PROVIDER);
+            ciphers.put(transformation, cipher);
+        }
+        return cipher;
+    }
 
     /**
      * Generate a RSA key pair with 1024 bits.
@@ -221,7 +246,7 @@ public class MBouncy {
         byte[] cipherText = null;
         //
         // get an RSA cipher object and print the provider
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION, PROVIDER);
+        Cipher cipher = getCipher(TRANSFORMATION);
 
         // encrypt the plaintext using the public key
         cipher.init(Cipher.ENCRYPT_MODE, key);
@@ -242,7 +267,7 @@ public class MBouncy {
     public static byte[] encryptRsa(byte[] text, PublicKey key) throws Exception {
         init();
         // get an RSA cipher object and print the provider
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION, PROVIDER);
+        Cipher cipher = getCipher(TRANSFORMATION);
         // encrypt the plaintext using the public key
         cipher.init(Cipher.ENCRYPT_MODE, key);
         ByteArrayOutputStream os = new ByteArrayOutputStream();
@@ -275,7 +300,7 @@ public class MBouncy {
      */
     public static byte[] decryptRsa(byte[] text, PrivateKey key, RSA_KEY_SIZE size) throws Exception {
         init();
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION, PROVIDER);
+        Cipher cipher = getCipher(TRANSFORMATION);
         cipher.init(Cipher.DECRYPT_MODE, key);
 
         ByteArrayOutputStream os = new ByteArrayOutputStream();
@@ -328,7 +353,7 @@ public class MBouncy {
     public static byte[] decryptRsa117(byte[] text, PrivateKey key) throws Exception {
         init();
         byte[] dectyptedText = null;
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION, PROVIDER);
+        Cipher cipher = getCipher(TRANSFORMATION);
         cipher.init(Cipher.DECRYPT_MODE, key);
         dectyptedText = cipher.doFinal(text);
         return dectyptedText;
@@ -346,7 +371,7 @@ public class MBouncy {
      */
     public static String decryptRsa117(String text, PrivateKey key) throws Exception {
         init();
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION, PROVIDER);
+        Cipher cipher = getCipher(TRANSFORMATION);
         cipher.init(Cipher.DECRYPT_MODE, key);
         byte[] enc = decodeBase64(text);
         byte[] dectyptedText = cipher.doFinal(enc);
@@ -404,7 +429,7 @@ public class MBouncy {
     public static byte[] encryptAes(byte[] key, byte[] data) {
         init();
         try {
-            Cipher cipher = Cipher.getInstance(ALGORITHM_AES, PROVIDER);
+            Cipher cipher = getCipher(ALGORITHM_AES);
             Key skeySpec = generateAesKeySpec(key);
             cipher.init(Cipher.ENCRYPT_MODE, skeySpec);
             byte[] encrypted = cipher.doFinal(data);
@@ -450,7 +475,7 @@ public class MBouncy {
     public static byte[] decryptAes(byte[] key, byte[] encrypted) {
         init();
         try {
-            Cipher cipher = Cipher.getInstance(ALGORITHM_AES, PROVIDER);
+            Cipher cipher = getCipher(ALGORITHM_AES);
             Key skeySpec = generateAesKeySpec(key);
             cipher.init(Cipher.DECRYPT_MODE, skeySpec);
             byte[] decrypted = cipher.doFinal(encrypted);
@@ -473,30 +498,69 @@ public class MBouncy {
         return new String(dec, STRING_ENCODING);
     }
 
+    /**
+     * Encrypt the stream with AES-GCM in authenticated chunks. The chunks are processed in parallel, the content is not
+     * loaded into memory. The format is not compatible with encryptAes(byte[], byte[]). See ChunkedAes.
+     *
+     * @param key
+     *            The key with 16, 24 or 32 bytes.
+     * @param in
+     * @param out
+     *
+     * @throws IOException
+     */
+    public static void encryptAesGcmChunked(byte[] key, InputStream in, OutputStream out) throws IOException {
+        new ChunkedAes(key).encrypt(in, out);
+    }
+
+    /**
+     * Decrypt a stream created by encryptAesGcmChunked(key, InputStream, OutputStream).
+     *
+     * @param key
+     * @param in
+     * @param out
+     *
+     * @throws IOException
+     *             If the stream is not authentic or truncated
+     */
+    public static void decryptAesGcmChunked(byte[] key, InputStream in, OutputStream out) throws IOException {
+        new ChunkedAes(key).decrypt(in, out);
+    }
+
+    /**
+     * Encrypt the file content with AES-GCM, reading and writing of the chunks is done in parallel.
+     *
+     * @param key
+     * @param in
+     * @param out
+     *
+     * @throws IOException
+     */
+    public static void encryptAesGcmChunked(byte[] key, FileChannel in, FileChannel out) throws IOException {
+        new ChunkedAes(key).encrypt(in, out);
+    }
+
+    /**
+     * Decrypt a file created by one of the encryptAesGcmChunked() methods.
+     *
+     * @param key
+     * @param in
+     * @param out
+     *
+     * @throws IOException
+     */
+    public static void decryptAesGcmChunked(byte[] key, FileChannel in, FileChannel out) throws IOException {
+        new ChunkedAes(key).decrypt(in, out);
+    }
+
     /**
      * Generating RSA keys needs a lot of resources (ca 100ms per key). Therefore you can use a keypool. The keypool
-     * will regularly renew the keys.
+     * will regularly renew the keys in the background, see RsaKeyPool.
      *
      * @return A key from the pool
      */
-    public static synchronized KeyPair getRsaKeyFromPool() {
-        if (MPeriod.isTimeOut(keyPoolUpdate, CFG_POOL_UPDATE_TIME)) {
-            if (keyPool.size() > 0)
-                keyPool.removeFirst();
-            keyPoolUpdate = System.currentTimeMillis();
-        }
-        if (keyPool.size() < CFG_POOL_SIZE) {
-            try {
-                KeyPair key = generateRsaKey(RSA_KEY_SIZE_DEFAULT);
-                keyPool.add(key);
-                return key;
-            } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
-                throw new RuntimeException(e);
-            }
-        }
-        int pos = (int) (MService.getService(MRandom.class).getDouble() * keyPool.size()); // use a simple random
-                                                                                           // function
-        return keyPool.get(pos);
+    public static KeyPair getRsaKeyFromPool() {
+        return RsaKeyPool.getDefault().get();
     }
 
     public static KeyPair generateEccKey(ECC_SPEC spec) {
@@ -523,24 +587,31 @@ public class MBouncy {
 
     public static boolean validateSignature(PublicKey key, InputStream is, String sign) {
         try {
-            byte[] encKey = key.getEncoded();
-            X509EncodedKeySpec pubKeySpec = new X509EncodedKeySpec(encKey);
-            KeyFactory keyFactory = KeyFactory.getInstance(ALGORITHM_ECC, PROVIDER);
-            PublicKey pubKey = keyFactory.generatePublic(pubKeySpec);
-
-            Signature sig = Signature.getInstance(TRANSFORMATION_ECC, PROVIDER);
-            sig.initVerify(pubKey);
-
-            byte[] buffer = new byte[1024 * 10];
-            while (true) {
-                int len = is.read(buffer);
-                if (len < 0)
-                    break;
-                if (len == 0)
-                    MThread.sleep(200);
-                else
-                    sig.update(buffer, 0, len);
-            }
+            Signature sig = getSignature(TRANSFORMATION_ECC);
+            sig.initVerify(toEccKey(key));
+            new MultiDigest().addSignature(sig).update(is);
+            PemBlock signBlock = PemUtil.parse(sign);
+            return sig.verify(signBlock.getBytesBlock());
+        } catch (Exception t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * Validate the signature of the channel content from the current position. The file is memory mapped and not copied
+     * into the heap.
+     *
+     * @param key
+     * @param channel
+     * @param sign
+     *
+     * @return true if the signature is valid
+     */
+    public static boolean validateSignature(PublicKey key, FileChannel channel, String sign) {
+        try {
+            Signature sig = getSignature(TRANSFORMATION_ECC);
+            sig.initVerify(toEccKey(key));
+            new MultiDigest().addSignature(sig).update(channel);
             PemBlock signBlock = PemUtil.parse(sign);
             return sig.verify(signBlock.getBytesBlock());
         } catch (Exception t) {
@@ -558,28 +629,82 @@ public class MBouncy {
 
     public static String createSignature(PrivateKey key, InputStream is) {
         try {
-            byte[] encKey = key.getEncoded();
-            PKCS8EncodedKeySpec privKeySpec = new PKCS8EncodedKeySpec(encKey);
-            KeyFactory keyFactory = KeyFactory.getInstance(ALGORITHM_ECC, PROVIDER);
-            PrivateKey privKey = keyFactory.generatePrivate(privKeySpec);
-
-            Signature sig = Signature.getInstance(TRANSFORMATION_ECC, PROVIDER);
-            sig.initSign(privKey);
-            byte[] buffer = new byte[1024 * 10];
-            while (true) {
-                int len = is.read(buffer);
-                if (len < 0)
-                    break;
-                if (len == 0)
-                    MThread.sleep(200);
-                else
-                    sig.update(buffer, 0, len);
-            }
-            PemBlockModel pem = new PemBlockModel(PemBlock.BLOCK_SIGN, sig.sign());
-            pem.setString(PemBlock.METHOD, key.getAlgorithm());
-            return pem.toString();
+            Signature sig = getSignature(TRANSFORMATION_ECC);
+            sig.initSign(toEccKey(key));
+            new MultiDigest().addSignature(sig).update(is);
+            return toSignaturePem(key, sig.sign());
+        } catch (Exception t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * Create the signature of the channel content from the current position. The file is memory mapped and not copied
+     * into the heap.
+     *
+     * @param key
+     * @param channel
+     *
+     * @return The signature as pem block
+     */
+    public static String createSignature(PrivateKey key, FileChannel channel) {
+        try {
+            Signature sig = getSignature(TRANSFORMATION_ECC);
+            sig.initSign(toEccKey(key));
+            new MultiDigest().addSignature(sig).update(channel);
+            return toSignaturePem(key, sig.sign());
         } catch (Exception t) {
             throw new RuntimeException(t);
         }
     }
+
+    private static String toSignaturePem(PrivateKey key, byte[] sign) {
+        PemBlockModel pem = new PemBlockModel(PemBlock.BLOCK_SIGN, sign);
+        pem.setString(PemBlock.METHOD, key.getAlgorithm());
+        return pem.toString();
+    }
+
+    /**
+     * Return a signature of the BC provider for the current thread. It must be initialized before usage.
+     *
+     * @param algorithm
+     *
+     * @return The signature instance of this thread
+     *
+     * @throws GeneralSecurityException
+     */
+    public static Signature getSignature(String algorithm) throws GeneralSecurityException {
+        HashMap<String, Signature> signatures = SIGNATURES.get();
+        Signature signature = signatures.get(algorithm);
+        if (signature == null) {
+            init();
+            signature = Signature.getInstance(algorithm, PROVIDER);
+            signatures.put(algorithm, signature);
+        }
+        return signature;
+    }
+
+    // keys are converted to BC ECC keys once, only the lookup is locked, the KeyFactory is reused per thread
+    private static <K extends Key> K toEccKey(K key) throws GeneralSecurityException {
+        Key converted = ECC_KEYS.get(key);
+        if (converted == null) {
+            KeyFactory factory = ECC_KEY_FACTORY.get();
+            if (factory == null) {
+                init();
+                factory = KeyFactory.getInstance(ALGORITHM_ECC, PROVIDER);
+                ECC_KEY_FACTORY.set(factory);
+            }
+            if (key instanceof PublicKey)
+                converted = factory.generatePublic(new X509EncodedKeySpec(key.getEncoded()));
+            else
+                converted = factory.generatePrivate(new PKCS8EncodedKeySpec(key.getEncoded()));
+            // a concurrent conversion of the same key is equal, keep the first
+            Key existing = ECC_KEYS.putIfAbsent(key, converted);
+            if (existing != null)
+                converted = existing;
+        }
+        @SuppressWarnings("unchecked")
+        K out = (K) converted;
+        return out;
+    }
 }
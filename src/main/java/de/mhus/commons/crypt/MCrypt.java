@@ -21,7 +21,6 @@ import de.mhus.commons.tools.MCast;
 import de.mhus.commons.tools.MFile;
 import de.mhus.commons.tools.MMath;
 import de.mhus.commons.tools.MString;
-import de.mhus.commons.tools.MThread;
 import de.mhus.commons.errors.RC;
 import de.mhus.commons.errors.MRuntimeException;
 import de.mhus.commons.services.MService;
@@ -35,6 +34,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
@@ -524,20 +525,31 @@ public class MCrypt {
 
     public static String sha256(InputStream is) throws IOException {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] buffer = new byte[1024 * 10];
-            while (true) {
-                int len = is.read(buffer);
-                if (len < 0)
-                    break;
-                if (len == 0)
-                    MThread.sleep(200);
-                else
-                    digest.update(buffer, 0, len);
-            }
-            byte[] hash = digest.digest();
-            return Base64.getEncoder().encodeToString(hash);
-        } catch (NoSuchAlgorithmException e) {
+            MultiDigest digest = new MultiDigest("SHA-256");
+            digest.update(is);
+            return Base64.getEncoder().encodeToString(digest.digest("SHA-256"));
+        } catch (GeneralSecurityException e) {
+            LOGGER.warn("Error", e);
+        }
+        return null;
+    }
+
+    /**
+     * Return the base64 encoded SHA-256 of the channel content from the current position. The file is memory mapped and
+     * not copied into the heap.
+     *
+     * @param channel
+     *
+     * @return The hash as base64
+     *
+     * @throws IOException
+     */
+    public static String sha256(FileChannel channel) throws IOException {
+        try {
+            MultiDigest digest = new MultiDigest("SHA-256");
+            digest.update(channel);
+            return Base64.getEncoder().encodeToString(digest.digest("SHA-256"));
+        } catch (GeneralSecurityException e) {
             LOGGER.warn("Error", e);
         }
         return null;
@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.crypt;
+
+import de.mhus.commons.tools.MSystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Calculate multiple digests and signatures in one pass over the data. Files are read with memory mapped segments
+ * without copying into the heap.
+ *
+ * <pre>
+ * MultiDigest digest = new MultiDigest("MD5", "SHA-256");
+ * try (FileChannel channel = FileChannel.open(path)) {
+ *     digest.update(channel);
+ * }
+ * byte[] sha = digest.digest("SHA-256");
+ * </pre>
+ */
+public class MultiDigest {
+
+    public static final int CFG_MAP_SIZE = MSystem.getEnv(MultiDigest.class, "mapSize", 64 * 1024 * 1024);
+    public static final int CFG_MIN_MAP_SIZE = MSystem.getEnv(MultiDigest.class, "minMapSize", 1024 * 1024);
+    public static final int CFG_TREE_CHUNK_SIZE = MSystem.getEnv(MultiDigest.class, "treeChunkSize", 4 * 1024 * 1024);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final LinkedHashMap<String, MessageDigest> digests = new LinkedHashMap<>();
+    private final List<Signature> signatures = new ArrayList<>();
+    private byte[] buffer;
+
+    /**
+     * @param algorithms
+     *            Names of the message digests, e.g. MD5, SHA-256
+     *
+     * @throws NoSuchAlgorithmException
+     */
+    public MultiDigest(String... algorithms) throws NoSuchAlgorithmException {
+        for (String algorithm : algorithms)
+            addDigest(algorithm);
+    }
+
+    public MultiDigest addDigest(String algorithm) throws NoSuchAlgorithmException {
+        digests.put(algorithm, MessageDigest.getInstance(algorithm));
+        return this;
+    }
+
+    /**
+     * Add a signature, it must be initialized for signing or verifying.
+     *
+     * @param signature
+     *
+     * @return this
+     */
+    public MultiDigest addSignature(Signature signature) {
+        signatures.add(signature);
+        return this;
+    }
+
+    public void update(byte[] data, int off, int len) throws SignatureException {
+        for (MessageDigest digest : digests.values())
+            digest.update(data, off, len);
+        for (Signature signature : signatures)
+            signature.update(data, off, len);
+    }
+
+    /**
+     * Update with the remaining bytes of the buffer, the buffer is consumed. Direct and mapped buffers are not copied
+     * into the heap.
+     *
+     * @param buffer
+     *
+     * @throws SignatureException
+     */
+    public void update(ByteBuffer buffer) throws SignatureException {
+        for (MessageDigest digest : digests.values())
+            digest.update(buffer.duplicate());
+        for (Signature signature : signatures)
+            signature.update(buffer.duplicate());
+        buffer.position(buffer.limit());
+    }
+
+    public void update(InputStream is) throws IOException, SignatureException {
+        byte[] buffer = getBuffer();
+        int len;
+        while ((len = is.read(buffer)) >= 0)
+            if (len > 0)
+                update(buffer, 0, len);
+    }
+
+    /**
+     * Update with the content of the channel from the current position to the end. Large files are mapped in segments,
+     * small files are read into a reused heap buffer.
+     *
+     * @param channel
+     *
+     * @throws IOException
+     * @throws SignatureException
+     */
+    public void update(FileChannel channel) throws IOException, SignatureException {
+        long pos = channel.position();
+        long size = channel.size();
+        if (size - pos >= CFG_MIN_MAP_SIZE) {
+            while (pos < size) {
+                long len = Math.min(CFG_MAP_SIZE, size - pos);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+                update(buffer);
+                pos += len;
+            }
+            channel.position(pos);
+        } else {
+            byte[] buffer = getBuffer();
+            ByteBuffer wrap = ByteBuffer.wrap(buffer);
+            int len;
+            while ((len = channel.read(wrap)) >= 0) {
+                if (len > 0)
+                    update(buffer, 0, len);
+                wrap.clear();
+            }
+        }
+    }
+
+    private byte[] getBuffer() {
+        if (buffer == null)
+            buffer = new byte[BUFFER_SIZE];
+        return buffer;
+    }
+
+    /**
+     * Complete the digest and return the hash. The digest is reset after this call.
+     *
+     * @param algorithm
+     *
+     * @return The hash or null if the algorithm is not part of the digest
+     */
+    public byte[] digest(String algorithm) {
+        MessageDigest digest = digests.get(algorithm);
+        return digest == null ? null : digest.digest();
+    }
+
+    /**
+     * Complete all digests.
+     *
+     * @return Hash for each algorithm in the order of the algorithms
+     */
+    public Map<String, byte[]> digest() {
+        LinkedHashMap<String, byte[]> out = new LinkedHashMap<>();
+        for (Map.Entry<String, MessageDigest> entry : digests.entrySet())
+            out.put(entry.getKey(), entry.getValue().digest());
+        return out;
+    }
+
+    /**
+     * Calculate a tree hash of the channel content from the current position to the end, like
+     * {@link #update(FileChannel)} the channel is positioned at the end afterwards. The chunks are hashed in parallel.
+     * The result is the hash over the hashes of the chunks, it is not the same as the plain hash of the content. Use
+     * the same chunk size to compare tree hashes.
+     *
+     * @param channel
+     * @param algorithm
+     *            Message digest, e.g. SHA-256
+     * @param chunkSize
+     *            Size of the chunks, or 0 for the default
+     * @param executor
+     *            The executor or null for the common pool
+     *
+     * @return The root hash
+     *
+     * @throws IOException
+     * @throws NoSuchAlgorithmException
+     */
+    public static byte[] treeHash(FileChannel channel, String algorithm, int chunkSize, ExecutorService executor)
+            throws IOException, NoSuchAlgorithmException {
+        int size = chunkSize > 0 ? chunkSize : CFG_TREE_CHUNK_SIZE;
+        ExecutorService exec = executor == null ? ForkJoinPool.commonPool() : executor;
+        MessageDigest.getInstance(algorithm); // fail fast
+        long start = channel.position();
+        long length = Math.max(0, channel.size() - start);
+        long chunks = Math.max(1, (length + size - 1) / size);
+        List<Future<byte[]>> leaves = new ArrayList<>();
+        for (long index = 0; index < chunks; index++) {
+            long pos = start + index * size;
+            long len = Math.min(size, start + length - pos);
+            leaves.add(exec.submit(() -> {
+                MessageDigest digest = MessageDigest.getInstance(algorithm);
+                digest.update((byte) 0); // leaf
+                if (len > 0)
+                    digest.update(channel.map(FileChannel.MapMode.READ_ONLY, pos, len));
+                return digest.digest();
+            }));
+        }
+        MessageDigest root = MessageDigest.getInstance(algorithm);
+        root.update((byte) 1); // node
+        try {
+            for (Future<byte[]> leaf : leaves)
+                root.update(leaf.get());
+        } catch (InterruptedException e) {
+            leaves.forEach(f -> f.cancel(false));
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted", e);
+        } catch (ExecutionException e) {
+            leaves.forEach(f -> f.cancel(false));
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            throw new IOException(cause);
+        }
+        channel.position(start + length);
+        return root.digest();
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.crypt;
+
+import de.mhus.commons.tools.MPeriod;
+import de.mhus.commons.tools.MSystem;
+import lombok.extern.slf4j.Slf4j;
+
+import java.security.KeyPair;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of pre generated RSA keys. The keys are generated and renewed by a background thread, consumers get a random key
+ * of the pool without locking. Only if the pool is empty the key is generated by the caller.
+ */
+@Slf4j
+public class RsaKeyPool {
+
+    public static final long CFG_POOL_UPDATE_TIME = MSystem.getEnv(MBouncy.class, "poolUpdateTime",
+            MPeriod.MINUTE_IN_MILLISECONDS * 10);
+    public static final int CFG_POOL_SIZE = MSystem.getEnv(MBouncy.class, "poolSize", 10);
+
+    private final MBouncy.RSA_KEY_SIZE keySize;
+    private final int poolSize;
+    private final long updateTime;
+    private final AtomicReference<KeyPair[]> keys = new AtomicReference<>(new KeyPair[0]);
+    private final Object monitor = new Object();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder generated = new LongAdder();
+    private volatile Thread generator;
+    private volatile boolean closed;
+
+    public RsaKeyPool(MBouncy.RSA_KEY_SIZE keySize, int poolSize, long updateTime) {
+        this.keySize = keySize;
+        this.poolSize = Math.max(1, poolSize);
+        this.updateTime = updateTime;
+    }
+
+    public static RsaKeyPool getDefault() {
+        return DefaultHolder.POOL;
+    }
+
+    /**
+     * Return a random key of the pool. The keys are not removed, the same key can be returned more then once.
+     *
+     * @return A key from the pool
+     */
+    public KeyPair get() {
+        requests.increment();
+        startGenerator();
+        KeyPair[] current = keys.get();
+        if (current.length > 0)
+            return current[ThreadLocalRandom.current().nextInt(current.length)];
+        // the pool is empty, do not wait for the generator
+        misses.increment();
+        long start = System.nanoTime();
+        KeyPair key = generate();
+        add(key);
+        waitNanos.add(System.nanoTime() - start);
+        return key;
+    }
+
+    /**
+     * Start the background generator to fill the pool.
+     */
+    public void start() {
+        startGenerator();
+    }
+
+    /**
+     * Stop the background generator, the current keys are still used.
+     */
+    public void close() {
+        closed = true;
+        synchronized (monitor) {
+            monitor.notifyAll();
+        }
+    }
+
+    private void startGenerator() {
+        if (generator != null || closed)
+            return;
+        synchronized (monitor) {
+            if (generator != null)
+                return;
+            Thread thread = new Thread(this::run, "RsaKeyPool");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            generator = thread;
+            thread.start();
+        }
+    }
+
+    private void run() {
+        long lastUpdate = System.currentTimeMillis();
+        while (!closed) {
+            try {
+                if (keys.get().length < poolSize) {
+                    add(generate());
+                    continue;
+                }
+                long wait = lastUpdate + updateTime - System.currentTimeMillis();
+                if (wait <= 0) {
+                    // renew the oldest key
+                    KeyPair key = generate();
+                    keys.updateAndGet(current -> {
+                        KeyPair[] next = Arrays.copyOfRange(current, 1, current.length + 1);
+                        next[next.length - 1] = key;
+                        return next;
+                    });
+                    lastUpdate = System.currentTimeMillis();
+                    continue;
+                }
+                synchronized (monitor) {
+                    if (!closed)
+                        monitor.wait(wait);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable t) {
+                LOGGER.error("Generation of RSA key failed", t);
+                try {
+                    Thread.sleep(MPeriod.SECOND_IN_MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        generator = null;
+    }
+
+    private void add(KeyPair key) {
+        keys.updateAndGet(current -> {
+            if (current.length >= poolSize)
+                return current;
+            KeyPair[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = key;
+            return next;
+        });
+    }
+
+    private KeyPair generate() {
+        try {
+            KeyPair key = MBouncy.generateRsaKey(keySize);
+            generated.increment();
+            return key;
+        } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Current number of keys in the pool.
+     */
+    public int getDepth() {
+        return keys.get().length;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * Number of requests with an empty pool, the key was generated by the caller.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Summary time in nanoseconds callers spent generating keys because the pool was empty.
+     */
+    public long getWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    public long getGenerated() {
+        return generated.sum();
+    }
+
+    public boolean isGeneratorRunning() {
+        return generator != null;
+    }
+
+    // created on first use without locking getDefault()
+    private static final class DefaultHolder {
+        private static final RsaKeyPool POOL = new RsaKeyPool(MBouncy.RSA_KEY_SIZE_DEFAULT, CFG_POOL_SIZE,
+                CFG_POOL_UPDATE_TIME);
+    }
+}
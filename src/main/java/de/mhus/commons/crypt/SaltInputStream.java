@@ -26,6 +26,7 @@ public class SaltInputStream extends InputStream {
     private boolean hasRandomBlocks;
     private int cnt;
     private byte salt;
+    private byte[] skip;
 
     public SaltInputStream(InputStream previous, boolean hasRandomBlocks) {
         this.previous = previous;
@@ -66,6 +67,48 @@ public class SaltInputStream extends InputStream {
         return out;
     }
 
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        int done = 0;
+        while (done < len) {
+            cnt--;
+            if (cnt <= 0 && !readHeader())
+                break;
+            // the current byte and cnt - 1 following bytes use the same salt
+            int blockLen = Math.min(len - done, Math.max(cnt, 1));
+            int r = previous.read(b, off + done, blockLen);
+            if (r <= 0)
+                break;
+            for (int i = off + done; i < off + done + r; i++)
+                b[i] = MMath.subRotate(b[i], salt);
+            cnt -= r - 1;
+            done += r;
+            if (r < blockLen)
+                break; // do not block for more data
+        }
+        return done == 0 ? -1 : done;
+    }
+
+    private boolean readHeader() throws IOException {
+        if (hasRandomBlocks) {
+            int c = previous.read();
+            if (c < 0)
+                return false;
+            if (skip == null)
+                skip = new byte[256];
+            if (previous.readNBytes(skip, 0, c) < c)
+                return false;
+        }
+        int s = previous.read();
+        if (s < 0)
+            return false;
+        salt = (byte) s;
+        cnt = previous.read();
+        return cnt >= 0;
+    }
+
     @Override
     public void close() throws IOException {
         previous.close();
@@ -19,6 +19,7 @@ import de.mhus.commons.tools.MMath;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.security.SecureRandom;
 
 public class SaltOutputStream extends OutputStream {
 
@@ -28,6 +29,12 @@ public class SaltOutputStream extends OutputStream {
     private boolean addRandomBlocks;
     private byte salt;
     private int maxBlockSize;
+    private byte[] buffer;
+    private int bufferPos;
+    // random bytes are created in bulk, the filler blocks are copied from the pool
+    private SecureRandom secureRandom;
+    private byte[] pool;
+    private int poolPos;
 
     /**
      * @param next
@@ -49,14 +56,14 @@ public class SaltOutputStream extends OutputStream {
         if (cnt <= 0) {
 
             if (addRandomBlocks) {
-                cnt = MMath.unsignetByteToInt(random.getByte()) % maxBlockSize;
+                cnt = MMath.unsignetByteToInt(randomByte()) % maxBlockSize;
                 next.write(cnt);
-                for (int i = 0; i < cnt; i++)
-                    next.write(random.getByte());
+                int pos = random(cnt);
+                next.write(pool, pos, cnt);
             }
 
-            salt = random.getByte();
-            cnt = MMath.unsignetByteToInt(random.getByte()) % maxBlockSize;
+            salt = randomByte();
+            cnt = MMath.unsignetByteToInt(randomByte()) % maxBlockSize;
             next.write(salt);
             next.write(cnt);
         }
@@ -65,6 +72,75 @@ public class SaltOutputStream extends OutputStream {
         next.write(b);
     }
 
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (buffer == null)
+            buffer = new byte[8192];
+        while (len > 0) {
+            cnt--;
+            if (cnt <= 0) {
+                if (addRandomBlocks) {
+                    cnt = MMath.unsignetByteToInt(randomByte()) % maxBlockSize;
+                    put((byte) cnt);
+                    int pos = random(cnt);
+                    put(pool, pos, cnt);
+                }
+                salt = randomByte();
+                cnt = MMath.unsignetByteToInt(randomByte()) % maxBlockSize;
+                put(salt);
+                put((byte) cnt);
+            }
+            // the current byte and cnt - 1 following bytes use the same salt
+            int blockLen = Math.min(len, Math.max(cnt, 1));
+            for (int i = 0; i < blockLen; i++)
+                put(MMath.addRotate(b[off + i], salt));
+            cnt -= blockLen - 1;
+            off += blockLen;
+            len -= blockLen;
+        }
+        // nothing is kept between calls
+        next.write(buffer, 0, bufferPos);
+        bufferPos = 0;
+    }
+
+    private void put(byte b) throws IOException {
+        if (bufferPos == buffer.length) {
+            next.write(buffer, 0, bufferPos);
+            bufferPos = 0;
+        }
+        buffer[bufferPos++] = b;
+    }
+
+    private void put(byte[] b, int off, int len) throws IOException {
+        if (bufferPos + len > buffer.length) {
+            next.write(buffer, 0, bufferPos);
+            bufferPos = 0;
+        }
+        System.arraycopy(b, off, buffer, bufferPos, len);
+        bufferPos += len;
+    }
+
+    // position of len random bytes in the pool, a block is at most 255 bytes
+    private int random(int len) {
+        if (pool == null) {
+            secureRandom = random.getSecureRandom();
+            pool = new byte[1024];
+            poolPos = pool.length;
+        }
+        if (poolPos + len > pool.length) {
+            secureRandom.nextBytes(pool);
+            poolPos = 0;
+        }
+        int pos = poolPos;
+        poolPos += len;
+        return pos;
+    }
+
+    private byte randomByte() {
+        int pos = random(1);
+        return pool[pos];
+    }
+
     @Override
     public void close() throws IOException {
         next.close();
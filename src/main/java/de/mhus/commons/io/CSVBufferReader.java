@@ -0,0 +1,452 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.io;
+
+import de.mhus.commons.cast.NumberParser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Read CSV rows from a reusable char buffer. The fields of the current row are slices of the buffer and are not copied,
+ * numbers are decoded directly from the buffer. The slices are valid until the next call of next(), use getString() or
+ * readBatch() to keep values.
+ *
+ * <p>
+ * The format is the same as for CSVReader: quoted fields with doubled quotes, optional multi line fields and trimming.
+ * Other than CSVReader white spaces inside of fields and line breaks inside of multi line fields are returned as they
+ * are in the source.
+ */
+public class CSVBufferReader implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private Reader r;
+    private final char separator;
+    private final char quote;
+    private final boolean allowMultiLineFields;
+    private final boolean trim;
+
+    private char[] buf;
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    // fields of the current row
+    private int columns;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] escaped = new boolean[16];
+
+    private int lineCount;
+    private int rowLines;
+    private HashMap<String, Integer> headerIndex;
+    private final Slice slice = new Slice(0, 0);
+
+    /**
+     * Default to comma separator, " for quote, no multi line fields, with trimming.
+     *
+     * @param r
+     *            Source of the csv
+     */
+    public CSVBufferReader(Reader r) {
+        this(r, ',', '\"', false, true, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CSVBufferReader(Reader r, char separator, char quote, boolean allowMultiLineFields, boolean trim) {
+        this(r, separator, quote, allowMultiLineFields, trim, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CSVBufferReader(Reader r, char separator, char quote, boolean allowMultiLineFields, boolean trim,
+            int bufferSize) {
+        if (r == null)
+            throw new IllegalArgumentException("invalid Reader");
+        this.r = r;
+        this.separator = separator;
+        this.quote = quote;
+        this.allowMultiLineFields = allowMultiLineFields;
+        this.trim = trim;
+        this.buf = new char[Math.max(bufferSize, 16)];
+    }
+
+    /**
+     * Read the next row.
+     *
+     * @return false at the end of the source
+     *
+     * @throws IOException
+     *             Malformed csv or problems to read the source
+     */
+    public boolean next() throws IOException {
+        if (r == null)
+            throw new IllegalArgumentException("attempt to use a closed CSVBufferReader");
+        while (true) {
+            if (pos == limit && eof) {
+                columns = 0;
+                return false;
+            }
+            int end = parseRow();
+            if (end >= 0) {
+                unescape();
+                pos = end;
+                lineCount += rowLines;
+                return true;
+            }
+            // row is not complete in the buffer, load more and parse again
+            fill();
+        }
+    }
+
+    /**
+     * Parse the row at pos and store the field positions.
+     *
+     * @return position of the next row or -1 if more data is needed
+     */
+    private int parseRow() throws IOException {
+        columns = 0;
+        rowLines = 1;
+        int i = pos;
+        while (true) {
+            // skip leading white spaces
+            while (i < limit && isBlank(buf[i]))
+                i++;
+            if (i == limit && !eof)
+                return -1;
+            int start;
+            int end;
+            boolean esc = false;
+            if (i < limit && buf[i] == quote && quote != 0) {
+                i++;
+                start = i;
+                while (true) {
+                    if (i == limit) {
+                        if (!eof)
+                            return -1;
+                        throw new IOException("Malformed CSV stream. Missing quote (\") after field on line "
+                                + (lineCount + rowLines));
+                    }
+                    char c = buf[i];
+                    if (c == quote) {
+                        if (i + 1 == limit && !eof)
+                            return -1;
+                        if (i + 1 < limit && buf[i + 1] == quote) {
+                            esc = true;
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    if (c == '\n' || c == '\r') {
+                        if (!allowMultiLineFields)
+                            throw new IOException("Malformed CSV stream. Missing quote (\") after field on line "
+                                    + (lineCount + rowLines));
+                        if (c == '\n')
+                            rowLines++;
+                    }
+                    i++;
+                }
+                end = i;
+                i++;
+                // only blanks up to the separator
+                while (i < limit && isBlank(buf[i]))
+                    i++;
+                if (i == limit && !eof)
+                    return -1;
+                if (i < limit && buf[i] != separator && buf[i] != '\n' && buf[i] != '\r')
+                    throw new IOException(
+                            "Malformed CSV stream, missing separator after field on line " + (lineCount + rowLines));
+            } else {
+                start = i;
+                while (i < limit) {
+                    char c = buf[i];
+                    if (c == separator || c == '\n' || c == '\r')
+                        break;
+                    if (c == quote && quote != 0)
+                        throw new IOException("Malformed CSV stream. Missing quote at start of field on line "
+                                + (lineCount + rowLines));
+                    i++;
+                }
+                if (i == limit && !eof)
+                    return -1;
+                end = i;
+            }
+            addField(start, end, esc);
+            if (i == limit)
+                return i;
+            char c = buf[i];
+            if (c == separator) {
+                i++;
+                continue;
+            }
+            // end of line
+            if (c == '\r') {
+                if (i + 1 == limit && !eof)
+                    return -1;
+                if (i + 1 < limit && buf[i + 1] == '\n')
+                    i++;
+            }
+            return i + 1;
+        }
+    }
+
+    private boolean isBlank(char c) {
+        return c <= ' ' && c != '\n' && c != '\r' && c != separator;
+    }
+
+    private void addField(int start, int end, boolean esc) {
+        if (columns == starts.length) {
+            starts = Arrays.copyOf(starts, columns * 2);
+            ends = Arrays.copyOf(ends, columns * 2);
+            escaped = Arrays.copyOf(escaped, columns * 2);
+        }
+        starts[columns] = start;
+        ends[columns] = end;
+        escaped[columns] = esc;
+        columns++;
+    }
+
+    // the row is complete, remove doubled quotes in place and trim
+    private void unescape() {
+        for (int f = 0; f < columns; f++) {
+            int start = starts[f];
+            int end = ends[f];
+            if (escaped[f]) {
+                int w = start;
+                for (int i = start; i < end; i++) {
+                    buf[w++] = buf[i];
+                    if (buf[i] == quote)
+                        i++;
+                }
+                end = w;
+                escaped[f] = false;
+            }
+            if (trim) {
+                while (start < end && buf[start] <= ' ')
+                    start++;
+                while (end > start && buf[end - 1] <= ' ')
+                    end--;
+            }
+            starts[f] = start;
+            ends[f] = end;
+        }
+    }
+
+    private void fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buf.length)
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        int len = r.read(buf, limit, buf.length - limit);
+        if (len < 0)
+            eof = true;
+        else
+            limit += len;
+    }
+
+    /**
+     * Read up to the given number of rows and return the fields as strings.
+     *
+     * @param rows
+     *            Maximum number of rows
+     *
+     * @return The rows, empty at the end of the source
+     *
+     * @throws IOException
+     */
+    public List<String[]> readBatch(int rows) throws IOException {
+        ArrayList<String[]> out = new ArrayList<>(rows);
+        while (out.size() < rows && next())
+            out.add(getCurrentLine());
+        return out;
+    }
+
+    public void readHeader(boolean lower) throws IOException {
+        headerIndex = new HashMap<>();
+        if (!next())
+            return;
+        for (int i = 0; i < columns; i++) {
+            String name = getString(i);
+            headerIndex.put(lower ? name.toLowerCase() : name, i);
+        }
+    }
+
+    public String[] getRowNames() {
+        return headerIndex.keySet().toArray(new String[headerIndex.size()]);
+    }
+
+    /**
+     * Return the index of the column with the given header name.
+     *
+     * @param row
+     *            Name of the column
+     *
+     * @return The index
+     *
+     * @throws IOException
+     *             if the name is not in the header
+     */
+    public int getIndex(String row) throws IOException {
+        Integer idx = headerIndex == null ? null : headerIndex.get(row);
+        if (idx == null)
+            throw new IOException("row not found " + row);
+        return idx;
+    }
+
+    /**
+     * Return the field as slice of the buffer, valid until the next row is read.
+     *
+     * @param column
+     *
+     * @return The field content
+     */
+    public CharSequence get(int column) {
+        check(column);
+        return new Slice(starts[column], ends[column]);
+    }
+
+    public String getString(int column) {
+        check(column);
+        return new String(buf, starts[column], ends[column] - starts[column]);
+    }
+
+    public String getString(String row) throws IOException {
+        return getString(getIndex(row));
+    }
+
+    public int length(int column) {
+        check(column);
+        return ends[column] - starts[column];
+    }
+
+    /**
+     * Return the int value of the field. An empty field returns 0.
+     *
+     * @param column
+     *
+     * @return The value
+     *
+     * @throws NumberFormatException
+     *             if the field does not contain a well-formed int
+     */
+    public int getInt(int column) {
+        Slice value = slice(column);
+        if (value.length() == 0)
+            return 0;
+        if (!NumberParser.isInt(value))
+            throw new NumberFormatException(value.toString());
+        return NumberParser.parseInt(value, 0);
+    }
+
+    public long getLong(int column) {
+        Slice value = slice(column);
+        if (value.length() == 0)
+            return 0;
+        if (!NumberParser.isLong(value))
+            throw new NumberFormatException(value.toString());
+        return NumberParser.parseLong(value, 0);
+    }
+
+    public double getDouble(int column) {
+        Slice value = slice(column);
+        if (value.length() == 0)
+            return 0;
+        if (!NumberParser.isDouble(value))
+            throw new NumberFormatException(value.toString());
+        return NumberParser.parseDouble(value, 0);
+    }
+
+    public float getFloat(int column) {
+        return (float) getDouble(column);
+    }
+
+    private Slice slice(int column) {
+        check(column);
+        slice.start = starts[column];
+        slice.end = ends[column];
+        return slice;
+    }
+
+    private void check(int column) {
+        if (column < 0 || column >= columns)
+            throw new IndexOutOfBoundsException("column " + column + " of " + columns);
+    }
+
+    public String[] getCurrentLine() {
+        String[] out = new String[columns];
+        for (int i = 0; i < columns; i++)
+            out[i] = getString(i);
+        return out;
+    }
+
+    public int getLineColumns() {
+        return columns;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (r != null) {
+            r.close();
+            r = null;
+        }
+    }
+
+    private final class Slice implements CharSequence {
+
+        private int start;
+        private int end;
+
+        Slice(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= end - start)
+                throw new IndexOutOfBoundsException(index);
+            return buf[start + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            if (from < 0 || to > end - start || from > to)
+                throw new IndexOutOfBoundsException(from);
+            return new Slice(start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return new String(buf, start, end - start);
+        }
+    }
+}
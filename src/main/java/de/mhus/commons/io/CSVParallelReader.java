@@ -0,0 +1,424 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.io;
+
+import de.mhus.commons.tools.MSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Read large csv files in parallel. The file is split into byte ranges aligned on record boundaries, every range is
+ * parsed by a CSVBufferReader in the executor and the rows are delivered in batches.
+ *
+ * <p>
+ * Record boundaries are line breaks (\n) outside of quoted fields. If multi line fields are allowed the quotes of the
+ * ranges are counted in parallel first to know the quoting state at the start of each range. The charset must encode
+ * the line break and the quote as single bytes like UTF-8 or ISO-8859-1.
+ *
+ * <p>
+ * In ordered mode the consumer is called in the thread of read() with the batches in file order. In unordered mode the
+ * consumer is called by the worker threads as soon as a batch is parsed and must be thread safe.
+ */
+public class CSVParallelReader {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    /** Maximum bytes of a range that are mapped and decoded at once, ranges can be larger than 2 GB */
+    public static final int CFG_SEGMENT_SIZE = MSystem.getEnv(CSVParallelReader.class, "segmentSize", 64 * 1024 * 1024);
+
+    private final char separator;
+    private final char quote;
+    private final boolean allowMultiLineFields;
+    private final boolean trim;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private boolean ordered = true;
+    private boolean header = false;
+    private Charset charset = StandardCharsets.UTF_8;
+    private ExecutorService executor;
+    private String[] headerNames;
+
+    /**
+     * Default to comma separator, " for quote, no multi line fields, with trimming.
+     */
+    public CSVParallelReader() {
+        this(',', '\"', false, true);
+    }
+
+    public CSVParallelReader(char separator, char quote, boolean allowMultiLineFields, boolean trim) {
+        this.separator = separator;
+        this.quote = quote;
+        this.allowMultiLineFields = allowMultiLineFields;
+        this.trim = trim;
+    }
+
+    /**
+     * Read the file, the file is mapped into memory range by range.
+     *
+     * @param file
+     *            The csv file
+     * @param consumer
+     *            Receives the row batches
+     *
+     * @return Number of read rows without the header
+     *
+     * @throws IOException
+     */
+    public long read(File file, Consumer<List<String[]>> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            return read(size, (start, len) -> channel.map(FileChannel.MapMode.READ_ONLY, start, len), consumer);
+        }
+    }
+
+    /**
+     * Read the csv content from position to limit of the buffer.
+     *
+     * @param data
+     *            The csv content
+     * @param consumer
+     *            Receives the row batches
+     *
+     * @return Number of read rows without the header
+     *
+     * @throws IOException
+     */
+    public long read(ByteBuffer data, Consumer<List<String[]>> consumer) throws IOException {
+        ByteBuffer base = data.slice();
+        return read(base.remaining(),
+                (start, len) -> base.duplicate().position((int) start).limit((int) start + len).slice(), consumer);
+    }
+
+    private long read(long size, Source source, Consumer<List<String[]>> consumer) throws IOException {
+        ExecutorService exec = executor == null ? ForkJoinPool.commonPool() : executor;
+        long dataStart = 0;
+        headerNames = null;
+        if (header) {
+            dataStart = findBoundary(source, size, 0, false);
+            List<String[]> rows = parse(source, 0, dataStart, 1);
+            headerNames = rows.isEmpty() || rows.get(0).length == 0 ? new String[0] : rows.get(0);
+        }
+        long[] bounds = split(source, size, dataStart, exec);
+
+        // limit parsed but not consumed ranges
+        int window = Math.max(2, 2 * Runtime.getRuntime().availableProcessors());
+        ArrayDeque<Future<Chunk>> running = new ArrayDeque<>();
+        long rows = 0;
+        int next = 0;
+        try {
+            while (next < bounds.length - 1 || !running.isEmpty()) {
+                while (next < bounds.length - 1 && running.size() < window) {
+                    long start = bounds[next];
+                    long end = bounds[next + 1];
+                    next++;
+                    if (start == end)
+                        continue;
+                    running.add(exec.submit(() -> parseChunk(source, start, end, consumer)));
+                }
+                if (running.isEmpty())
+                    continue;
+                Chunk chunk = running.poll().get();
+                rows += chunk.rows;
+                for (List<String[]> batch : chunk.batches)
+                    consumer.accept(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        } finally {
+            for (Future<Chunk> f : running)
+                f.cancel(true);
+        }
+        return rows;
+    }
+
+    private Chunk parseChunk(Source source, long start, long end, Consumer<List<String[]>> consumer)
+            throws IOException {
+        Chunk chunk = new Chunk();
+        try (CSVBufferReader reader = createReader(source, start, end)) {
+            while (true) {
+                List<String[]> batch = reader.readBatch(batchSize);
+                if (batch.isEmpty())
+                    break;
+                chunk.rows += batch.size();
+                if (ordered)
+                    chunk.batches.add(batch);
+                else
+                    consumer.accept(batch);
+            }
+        }
+        return chunk;
+    }
+
+    private List<String[]> parse(Source source, long start, long end, int rows) throws IOException {
+        if (start == end)
+            return Collections.emptyList();
+        try (CSVBufferReader reader = createReader(source, start, end)) {
+            return reader.readBatch(rows);
+        }
+    }
+
+    private CSVBufferReader createReader(Source source, long start, long end) throws IOException {
+        return new CSVBufferReader(new RangeReader(source, start, end, charset), separator, quote, allowMultiLineFields,
+                trim, (int) Math.min(CSVBufferReader.DEFAULT_BUFFER_SIZE, end - start + 16));
+    }
+
+    /**
+     * Split the range into chunks. Returns the offsets of the chunks including the start and the end.
+     */
+    private long[] split(Source source, long size, long start, ExecutorService exec) throws IOException {
+        int count = (int) Math.max(1, (size - start + chunkSize - 1) / chunkSize);
+        long[] nominal = new long[count + 1];
+        for (int i = 0; i < count; i++)
+            nominal[i] = start + (long) i * chunkSize;
+        nominal[count] = size;
+
+        // quoting state at the start of each nominal chunk
+        boolean[] inQuote = new boolean[count];
+        if (allowMultiLineFields && quote != 0 && count > 1) {
+            List<Future<Integer>> counts = new ArrayList<>(count);
+            for (int i = 0; i < count - 1; i++) {
+                long from = nominal[i];
+                int len = (int) (nominal[i + 1] - from);
+                counts.add(exec.submit((Callable<Integer>) () -> countQuotes(source.get(from, len))));
+            }
+            try {
+                boolean state = false;
+                for (int i = 1; i < count; i++) {
+                    if (counts.get(i - 1).get() % 2 == 1)
+                        state = !state;
+                    inQuote[i] = state;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+        }
+
+        long[] bounds = new long[count + 1];
+        bounds[0] = start;
+        for (int i = 1; i < count; i++)
+            bounds[i] = Math.max(bounds[i - 1], findBoundary(source, size, nominal[i], inQuote[i]));
+        bounds[count] = size;
+        return bounds;
+    }
+
+    private int countQuotes(ByteBuffer data) {
+        byte q = (byte) quote;
+        int cnt = 0;
+        while (data.hasRemaining())
+            if (data.get() == q)
+                cnt++;
+        return cnt;
+    }
+
+    // position after the first line break outside of quotes, or size
+    private long findBoundary(Source source, long size, long from, boolean inQuote) throws IOException {
+        byte q = (byte) quote;
+        boolean quoted = allowMultiLineFields && quote != 0;
+        long pos = from;
+        while (pos < size) {
+            int len = (int) Math.min(size - pos, 64 * 1024);
+            ByteBuffer data = source.get(pos, len);
+            for (int i = 0; i < len; i++) {
+                byte b = data.get(i);
+                if (quoted && b == q)
+                    inQuote = !inQuote;
+                else if (b == '\n' && !inQuote)
+                    return pos + i + 1;
+            }
+            pos += len;
+        }
+        return size;
+    }
+
+    public String[] getHeader() {
+        return headerNames;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("chunk size must be positive");
+        this.chunkSize = chunkSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("batch size must be positive");
+        this.batchSize = batchSize;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    public boolean isHeader() {
+        return header;
+    }
+
+    /**
+     * If true the first row is read as header and not delivered to the consumer, see getHeader().
+     *
+     * @param header
+     */
+    public void setHeader(boolean header) {
+        this.header = header;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Set the executor to parse the chunks, default is the common fork join pool.
+     *
+     * @param executor
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    private interface Source {
+        ByteBuffer get(long start, int len) throws IOException;
+    }
+
+    /**
+     * Decode a byte range of the source segment by segment. A character split at the end of a segment is decoded again
+     * from the start of the next segment.
+     */
+    private static class RangeReader extends Reader {
+
+        private final Source source;
+        private final long end;
+        private final CharsetDecoder decoder;
+        private final CharBuffer chars;
+        private long pos;
+        private ByteBuffer segment;
+        private long segmentStart;
+        private boolean eof;
+
+        private RangeReader(Source source, long start, long end, Charset charset) {
+            this.source = source;
+            this.pos = start;
+            this.end = end;
+            decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            chars = CharBuffer.allocate((int) Math.min(CSVBufferReader.DEFAULT_BUFFER_SIZE, end - start + 16));
+            chars.flip();
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+            while (!chars.hasRemaining()) {
+                if (eof)
+                    return -1;
+                fill();
+            }
+            int cnt = Math.min(len, chars.remaining());
+            chars.get(cbuf, off, cnt);
+            return cnt;
+        }
+
+        private void fill() throws IOException {
+            chars.clear();
+            try {
+                if (segment == null || !segment.hasRemaining()) {
+                    if (segment != null)
+                        pos = segmentStart + segment.position();
+                    int len = (int) Math.min(CFG_SEGMENT_SIZE, end - pos);
+                    segmentStart = pos;
+                    segment = len == 0 ? ByteBuffer.allocate(0) : source.get(pos, len);
+                }
+                boolean last = segmentStart + segment.limit() >= end;
+                CoderResult result = decoder.decode(segment, chars, last);
+                if (result.isUnderflow() && segment.hasRemaining()) {
+                    // incomplete character at the end of the segment, decode it with the next segment
+                    if (segment.position() == 0)
+                        throw new IOException("segment too small to decode a character");
+                    pos = segmentStart + segment.position();
+                    segment = null;
+                } else if (result.isUnderflow() && last) {
+                    decoder.flush(chars);
+                    eof = true;
+                } else if (result.isError()) {
+                    result.throwException();
+                }
+            } finally {
+                chars.flip();
+            }
+        }
+
+        @Override
+        public void close() {
+            segment = null;
+        }
+    }
+
+    private static class Chunk {
+        private long rows;
+        private final List<List<String[]>> batches = new ArrayList<>();
+    }
+}
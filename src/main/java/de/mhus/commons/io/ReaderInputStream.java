@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes the characters of a reader into a byte stream. Only a small buffer is used, the content is not loaded at
+ * once.
+ */
+public class ReaderInputStream extends InputStream {
+
+    private final Reader reader;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars;
+    private final ByteBuffer bytes;
+    private boolean eof;
+    private boolean flushed;
+
+    public ReaderInputStream(Reader reader) {
+        this(reader, StandardCharsets.UTF_8);
+    }
+
+    public ReaderInputStream(Reader reader, Charset charset) {
+        this.reader = reader;
+        this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.chars = CharBuffer.allocate(4096);
+        this.chars.flip();
+        this.bytes = ByteBuffer.allocate(8192);
+        this.bytes.flip();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureBytes())
+            return -1;
+        return bytes.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!ensureBytes())
+            return -1;
+        int cnt = Math.min(len, bytes.remaining());
+        bytes.get(b, off, cnt);
+        return cnt;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return bytes.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private boolean ensureBytes() throws IOException {
+        while (!bytes.hasRemaining()) {
+            if (flushed)
+                return false;
+            bytes.clear();
+            // a single remaining char can be the first half of a surrogate pair
+            if (!eof && chars.remaining() < 2) {
+                chars.compact();
+                int len = reader.read(chars);
+                chars.flip();
+                if (len < 0)
+                    eof = true;
+            }
+            CoderResult res = encoder.encode(chars, bytes, eof);
+            if (res.isError())
+                res.throwException();
+            if (eof && !chars.hasRemaining() && res.isUnderflow() && encoder.flush(bytes).isUnderflow())
+                flushed = true;
+            bytes.flip();
+        }
+        return true;
+    }
+}
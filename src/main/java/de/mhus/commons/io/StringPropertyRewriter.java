@@ -15,31 +15,45 @@
  */
 package de.mhus.commons.io;
 
-import de.mhus.commons.tools.MFile;
-import de.mhus.commons.tools.MString;
 import de.mhus.commons.parser.StringPropertyReplacer;
+import de.mhus.commons.parser.StringPropertyReplacerReader;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 
 /**
- * Rewrite the incoming stream using the string replacer. The rewriter need to load the full content of the stream in
- * memory twice.
+ * Rewrite the incoming stream using the string replacer. The content is streamed, only a look-ahead of the maximum key
+ * length is buffered to detect a placeholder. See StringPropertyReplacerReader.
  *
  * @author mikehummel
  */
 public class StringPropertyRewriter implements StreamRewriter {
 
     private StringPropertyReplacer replacer;
+    private boolean cacheValues;
 
     public StringPropertyRewriter(StringPropertyReplacer replacer) {
+        this(replacer, false);
+    }
+
+    /**
+     * @param replacer
+     *            Replacer to find the values
+     * @param cacheValues
+     *            Look up each key only once per content
+     */
+    public StringPropertyRewriter(StringPropertyReplacer replacer, boolean cacheValues) {
         this.replacer = replacer;
+        this.cacheValues = cacheValues;
     }
 
+    /**
+     * The content is replaced while reading the returned stream, it is not loaded into memory.
+     */
     @Override
     public InputStream rewriteContent(String name, InputStream in) {
-        String content = MFile.readFile(in);
-        content = replacer.process(content);
-        return new ByteArrayInputStream(MString.toBytes(content));
+        return new ReaderInputStream(new StringPropertyReplacerReader(new InputStreamReader(in, StandardCharsets.UTF_8),
+                replacer, cacheValues));
     }
 }
@@ -17,8 +17,10 @@ package de.mhus.commons.json;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import de.mhus.commons.tools.MJson;
+import de.mhus.commons.pojo.CachedPojoModelFactory;
 import de.mhus.commons.pojo.DefaultFilter;
 import de.mhus.commons.pojo.PojoModel;
+import de.mhus.commons.pojo.PojoModelFactory;
 import de.mhus.commons.pojo.PojoParser;
 import lombok.extern.slf4j.Slf4j;
 
@@ -27,6 +29,10 @@ import java.lang.reflect.InvocationTargetException;
 
 @Slf4j
 public class TransformHelper {
+
+    private static final PojoModelFactory MODELS = new CachedPojoModelFactory(type -> new PojoParser()
+            .parse(type, "_", null).filter(new DefaultFilter(true, false, true, true, true)).getModel());
+
     int level = 0;
     protected String prefix = "";
     protected TransformStrategy strategy = MJson.DEFAULT_STRATEGY;
@@ -102,9 +108,7 @@ public class TransformHelper {
     }
 
     public PojoModel createPojoModel(Object from) {
-        PojoModel model = new PojoParser().parse(from, "_", null)
-                .filter(new DefaultFilter(true, false, true, true, true)).getModel();
-        return model;
+        return MODELS.createPojoModel(from.getClass());
     }
 
     public void log(String msg) {
@@ -19,6 +19,7 @@ import de.mhus.commons.errors.MException;
 import de.mhus.commons.lang.IValuesProvider;
 import de.mhus.commons.util.MapValuesProvider;
 
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.Map;
 
@@ -65,6 +66,29 @@ public class CompiledString {
         }
     }
 
+    /**
+     * Write the result into the given output, e.g. a reused StringBuilder or a Writer.
+     *
+     * @param out
+     * @param attributes
+     *
+     * @throws MException
+     * @throws IOException
+     */
+    public void execute(Appendable out, IValuesProvider attributes) throws MException, IOException {
+        if (out instanceof StringBuilder) {
+            execute((StringBuilder) out, attributes);
+            return;
+        }
+        for (StringPart part : compiled) {
+            part.execute(out, attributes);
+        }
+    }
+
+    public void execute(Appendable out, Map<String, Object> attributes) throws MException, IOException {
+        execute(out, new MapValuesProvider(attributes));
+    }
+
     /**
      * Return a readable information about the tree structure.
      *
@@ -21,6 +21,7 @@ import de.mhus.commons.tools.MString;
 import de.mhus.commons.tools.MSystem;
 import de.mhus.commons.lang.IValuesProvider;
 
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -30,8 +31,16 @@ public class StringCompiler implements Parser {
 
     protected String separator = "$";
 
+    /**
+     * Compile the template with the default compiler. The result is shared using the default template cache.
+     *
+     * @param in
+     *            The template
+     *
+     * @return The compiled string
+     */
     public static CompiledString compile(String in) {
-        return compile(in, defaultCompiler);
+        return TemplateCache.getDefault().get(StringCompiler.class, in, defaultCompiler::compileString);
     }
 
     public static CompiledString compile(String in, StringCompiler compiler) {
@@ -137,6 +146,11 @@ public class StringCompiler implements Parser {
             out.append(content);
         }
 
+        @Override
+        public void execute(Appendable out, IValuesProvider attributes) throws IOException {
+            out.append(content);
+        }
+
         @Override
         public void dump(int level, StringBuilder out) {
             MString.appendRepeating(level, ' ', out);
@@ -186,6 +200,11 @@ public class StringCompiler implements Parser {
             out.append(value);
         }
 
+        @Override
+        public void execute(Appendable out, IValuesProvider attributes) throws IOException {
+            out.append(value);
+        }
+
         @Override
         public void dump(int level, StringBuilder out) {
             MString.appendRepeating(level, ' ', out);
@@ -239,6 +258,12 @@ public class StringCompiler implements Parser {
                 out.append(attributes.getOrDefault(name, def));
         }
 
+        @Override
+        public void execute(Appendable out, IValuesProvider attributes) throws IOException {
+            if (attributes != null)
+                out.append(String.valueOf(attributes.getOrDefault(name, def)));
+        }
+
         @Override
         public void dump(int level, StringBuilder out) {
             MString.appendRepeating(level, ' ', out);
@@ -18,9 +18,26 @@ package de.mhus.commons.parser;
 import de.mhus.commons.errors.MException;
 import de.mhus.commons.lang.IValuesProvider;
 
+import java.io.IOException;
+
 public interface StringPart {
 
     public void execute(StringBuilder out, IValuesProvider attributes) throws MException;
 
+    /**
+     * Append the part to any kind of output. Overwrite it to avoid the temporary buffer.
+     *
+     * @param out
+     * @param attributes
+     *
+     * @throws MException
+     * @throws IOException
+     */
+    default void execute(Appendable out, IValuesProvider attributes) throws MException, IOException {
+        StringBuilder sb = new StringBuilder();
+        execute(sb, attributes);
+        out.append(sb);
+    }
+
     public void dump(int level, StringBuilder out);
 }
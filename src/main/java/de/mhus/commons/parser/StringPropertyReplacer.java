@@ -15,6 +15,11 @@
  */
 package de.mhus.commons.parser;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+
 /**
  * This class will search and replace properties in the format like ${key}
  *
@@ -22,35 +27,68 @@ package de.mhus.commons.parser;
  */
 public abstract class StringPropertyReplacer {
 
-    public String process(String in) {
-        StringBuilder out = null;
-        while (true) {
-            int p = in.indexOf("${");
-            if (p < 0)
-                break;
-            if (out == null)
-                out = new StringBuilder();
-            out.append(in.substring(0, p));
-            int p2 = in.indexOf('}', p);
-            if (p2 < 0)
-                break;
-            String key = in.substring(p + 2, p2);
-            String val = findValueFor(key);
-            if (val != null)
-                out.append(val);
-            else
-                out.append("${").append(key).append("}");
+    private static final TemplateCache<String[]> CACHE = new TemplateCache<>(TemplateCache.CFG_MAX_SIZE,
+            TemplateCache.CFG_MAX_WEIGHT);
 
-            // reduce 'in'
-            in = in.substring(p2 + 1);
+    public String process(String in) {
+        if (in.indexOf("${") < 0)
+            return in;
+        String[] parts = CACHE.get(StringPropertyReplacer.class, in, StringPropertyReplacer::compile);
+        StringBuilder out = new StringBuilder(in.length());
+        for (int i = 0; i < parts.length; i++) {
+            if (i % 2 == 0) {
+                out.append(parts[i]);
+            } else {
+                String val = findValueFor(parts[i]);
+                if (val != null)
+                    out.append(val);
+                else
+                    out.append("${").append(parts[i]).append("}");
+            }
         }
+        return out.toString();
+    }
 
-        if (out != null) {
-            out.append(in);
-            return out.toString();
-        }
+    /**
+     * Copy the content from the reader to the writer and replace the placeholders. The content is processed in chunks
+     * and not loaded into memory.
+     *
+     * @param in
+     *            Source content
+     * @param out
+     *            Target for the replaced content
+     * @param cacheValues
+     *            Look up each key only once
+     *
+     * @throws IOException
+     */
+    public void process(Reader in, Writer out, boolean cacheValues) throws IOException {
+        StringPropertyReplacerReader reader = new StringPropertyReplacerReader(in, this, cacheValues);
+        char[] buffer = new char[8192];
+        int len;
+        while ((len = reader.read(buffer)) >= 0)
+            out.write(buffer, 0, len);
+    }
 
-        return in;
+    /**
+     * Split the template into content and keys, the keys are at the odd positions.
+     */
+    private static String[] compile(String in) {
+        ArrayList<String> parts = new ArrayList<>();
+        int pos = 0;
+        while (true) {
+            int p = in.indexOf("${", pos);
+            int p2 = p < 0 ? -1 : in.indexOf('}', p);
+            if (p2 < 0) {
+                // no more complete keys
+                parts.add(in.substring(pos));
+                break;
+            }
+            parts.add(in.substring(pos, p));
+            parts.add(in.substring(p + 2, p2));
+            pos = p2 + 1;
+        }
+        return parts.toArray(new String[parts.size()]);
     }
 
     public abstract String findValueFor(String key);
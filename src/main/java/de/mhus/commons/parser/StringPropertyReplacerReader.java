@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.parser;
+
+import de.mhus.commons.tools.MSystem;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+
+/**
+ * Reader replacing ${key} placeholders while reading. The input is scanned once in chunks, the memory usage is limited
+ * by the chunk size, the maximum key length and the length of the values. Keys longer then maxKeyLength are not
+ * replaced and copied as they are.
+ */
+public class StringPropertyReplacerReader extends Reader {
+
+    public static final int CFG_MAX_KEY_LENGTH = MSystem.getEnv(StringPropertyReplacerReader.class, "maxKeyLength",
+            1024);
+    public static final int CFG_MAX_CACHED_VALUES = MSystem.getEnv(StringPropertyReplacerReader.class,
+            "maxCachedValues", 1000);
+
+    private static final String NOT_FOUND = new String("");
+
+    private final Reader in;
+    private final StringPropertyReplacer replacer;
+    private final HashMap<String, String> cache;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder out = new StringBuilder();
+    private final StringBuilder key = new StringBuilder();
+    private int outPos;
+    private boolean inKey;
+    private boolean dollar;
+    private boolean eof;
+    private int maxKeyLength = CFG_MAX_KEY_LENGTH;
+
+    public StringPropertyReplacerReader(Reader in, StringPropertyReplacer replacer) {
+        this(in, replacer, false);
+    }
+
+    /**
+     * @param in
+     *            The source
+     * @param replacer
+     *            Replacer to find the values
+     * @param cacheValues
+     *            Remember the values of found keys, findValueFor() is called only once for each key
+     */
+    public StringPropertyReplacerReader(Reader in, StringPropertyReplacer replacer, boolean cacheValues) {
+        this.in = in;
+        this.replacer = replacer;
+        this.cache = cacheValues ? new HashMap<>() : null;
+    }
+
+    public void setMaxKeyLength(int maxKeyLength) {
+        this.maxKeyLength = maxKeyLength;
+    }
+
+    public int getMaxKeyLength() {
+        return maxKeyLength;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureOutput())
+            return -1;
+        return out.charAt(outPos++);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!ensureOutput())
+            return -1;
+        int cnt = Math.min(len, out.length() - outPos);
+        out.getChars(outPos, outPos + cnt, cbuf, off);
+        outPos += cnt;
+        return cnt;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return outPos < out.length() || in.ready();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean ensureOutput() throws IOException {
+        while (outPos >= out.length()) {
+            if (eof)
+                return false;
+            out.setLength(0);
+            outPos = 0;
+            fill();
+        }
+        return true;
+    }
+
+    private void fill() throws IOException {
+        int len = in.read(buffer);
+        if (len < 0) {
+            eof = true;
+            // incomplete placeholder at the end
+            if (dollar)
+                out.append('$');
+            if (inKey)
+                out.append("${").append(key);
+            return;
+        }
+        int pos = 0;
+        while (pos < len) {
+            char c = buffer[pos];
+            if (inKey) {
+                if (c == '}') {
+                    inKey = false;
+                    append(key.toString());
+                } else if (key.length() >= maxKeyLength) {
+                    inKey = false;
+                    out.append("${").append(key);
+                    continue; // scan the current char again
+                } else
+                    key.append(c);
+                pos++;
+            } else if (dollar) {
+                dollar = false;
+                if (c == '{') {
+                    inKey = true;
+                    key.setLength(0);
+                    pos++;
+                } else
+                    out.append('$'); // scan the current char again
+            } else {
+                // copy the plain content up to the next '$'
+                int start = pos;
+                while (pos < len && buffer[pos] != '$')
+                    pos++;
+                out.append(buffer, start, pos - start);
+                if (pos < len) {
+                    dollar = true;
+                    pos++;
+                }
+            }
+        }
+    }
+
+    private void append(String name) {
+        String value;
+        if (cache == null)
+            value = replacer.findValueFor(name);
+        else {
+            value = cache.get(name);
+            if (value == null) {
+                value = replacer.findValueFor(name);
+                if (cache.size() < CFG_MAX_CACHED_VALUES)
+                    cache.put(name, value == null ? NOT_FOUND : value);
+            } else if (value == NOT_FOUND)
+                value = null;
+        }
+        if (value != null)
+            out.append(value);
+        else
+            out.append("${").append(name).append('}');
+    }
+
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.parser;
+
+import de.mhus.commons.tools.MSystem;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded concurrent cache for compiled templates. Entries are keyed by the compiler type and the template. The cache
+ * is limited by the number of entries and by the weight, the summary length of all cached templates. If a limit is
+ * reached the entries not used since the last cleanup are removed (second chance).
+ *
+ * @param <V>
+ *            Type of the compiled template
+ */
+public class TemplateCache<V> {
+
+    public static final int CFG_MAX_SIZE = MSystem.getEnv(TemplateCache.class, "maxSize", 1000);
+    public static final long CFG_MAX_WEIGHT = MSystem.getEnv(TemplateCache.class, "maxWeight", 1024L * 1024L);
+
+    private static final TemplateCache<CompiledString> DEFAULT = new TemplateCache<>(CFG_MAX_SIZE, CFG_MAX_WEIGHT);
+
+    private final ConcurrentHashMap<Key, Entry<V>> map = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long maxWeight;
+    private final AtomicLong weight = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TemplateCache(int maxSize, long maxWeight) {
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Shared cache for compiled strings of stateless compilers.
+     *
+     * @return The default cache
+     */
+    public static TemplateCache<CompiledString> getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Return the cached value or compile and cache the template.
+     *
+     * @param type
+     *            Type of the compiler, part of the key
+     * @param template
+     *            The template, part of the key
+     * @param compiler
+     *            Used to compile the template if not cached
+     *
+     * @return The compiled template
+     */
+    public V get(Class<?> type, String template, Function<String, V> compiler) {
+        Key key = new Key(type, template);
+        Entry<V> entry = map.get(key);
+        if (entry != null) {
+            hits.increment();
+            entry.used = true;
+            return entry.value;
+        }
+        misses.increment();
+        // compile outside of the map lock, a parallel compile of the same template is harmless
+        V value = compiler.apply(template);
+        if (maxSize <= 0 || template.length() > maxWeight)
+            return value;
+        entry = new Entry<>(value);
+        Entry<V> current = map.putIfAbsent(key, entry);
+        if (current != null)
+            return current.value;
+        // always account the weight, cleanup() subtracts it on eviction
+        long currentWeight = weight.addAndGet(template.length());
+        if (map.size() > maxSize || currentWeight > maxWeight)
+            cleanup();
+        return value;
+    }
+
+    private synchronized void cleanup() {
+        // remove unused entries first, then everything until the limits are reached
+        for (int round = 0; round < 2 && (map.size() > maxSize || weight.get() > maxWeight); round++) {
+            Iterator<Map.Entry<Key, Entry<V>>> iter = map.entrySet().iterator();
+            while (iter.hasNext() && (map.size() > maxSize || weight.get() > maxWeight)) {
+                Map.Entry<Key, Entry<V>> next = iter.next();
+                Entry<V> entry = next.getValue();
+                if (entry.used && round == 0) {
+                    entry.used = false;
+                    continue;
+                }
+                if (map.remove(next.getKey(), entry)) {
+                    weight.addAndGet(-next.getKey().template.length());
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        Iterator<Key> iter = map.keySet().iterator();
+        while (iter.hasNext()) {
+            Key key = iter.next();
+            if (map.remove(key) != null)
+                weight.addAndGet(-key.template.length());
+        }
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public long getWeight() {
+        return weight.get();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "TemplateCache[size=" + size() + ",weight=" + getWeight() + ",hits=" + getHits() + ",misses="
+                + getMisses() + ",evictions=" + getEvictions() + "]";
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private volatile boolean used;
+
+        Entry(V value) {
+            this.value = value;
+        }
+    }
+
+    private static final class Key {
+        private final Class<?> type;
+        private final String template;
+        private final int hash;
+
+        Key(Class<?> type, String template) {
+            this.type = type;
+            this.template = template;
+            this.hash = 31 * type.hashCode() + template.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            Key o = (Key) obj;
+            return type == o.type && hash == o.hash && Objects.equals(template, o.template);
+        }
+    }
+}
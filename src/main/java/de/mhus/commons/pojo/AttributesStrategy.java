@@ -23,6 +23,9 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 
@@ -143,12 +146,28 @@ public class AttributesStrategy implements PojoStrategy {
         private boolean readable;
         private boolean writable;
 
+        // bound handles, null if not accessible, then reflection is used
+        private MethodHandle getter;
+        private MethodHandle setter;
+
         public Attribute(String name, Attribute<Object> parent, Field field, boolean readable, boolean writable) {
             this.name = name;
             this.field = field;
             this.parent = parent;
             this.readable = readable;
             this.writable = writable;
+            // the lookup can not access private fields of other classes without it
+            if (field.trySetAccessible()) {
+                try {
+                    getter = MethodHandles.lookup().unreflectGetter(field)
+                            .asType(MethodType.methodType(Object.class, Object.class));
+                    // like Field.set() an accessible final instance field can be written too
+                    setter = MethodHandles.lookup().unreflectSetter(field)
+                            .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                } catch (Exception e) {
+                    LOGGER.trace("no method handle for {}", field, e);
+                }
+            }
         }
 
         @SuppressWarnings("unchecked")
@@ -158,10 +177,14 @@ public class AttributesStrategy implements PojoStrategy {
                 throw new IOException("field is write only: " + name);
             try {
                 pojo = PojoParser.checkParent(parent, pojo);
+                if (getter != null)
+                    return (T) (Object) getter.invokeExact(pojo);
                 if (!field.canAccess(pojo))
                     field.setAccessible(true);
                 return (T) field.get(pojo);
-            } catch (Exception e) {
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
                 throw new IOException(field.getName(), e);
             }
         }
@@ -173,8 +196,6 @@ public class AttributesStrategy implements PojoStrategy {
                 throw new IOException("field is read only: " + name);
             try {
                 pojo = PojoParser.checkParent(parent, pojo);
-                if (!field.canAccess(pojo))
-                    field.setAccessible(true);
 
                 value = (T) MCast.toType(value, getType(), null);
                 if (getType().isPrimitive() && value == null) {
@@ -182,8 +203,16 @@ public class AttributesStrategy implements PojoStrategy {
                     value = (T) MCast.getDefaultPrimitive(getType());
                 }
 
+                if (setter != null) {
+                    setter.invokeExact(pojo, (Object) value);
+                    return;
+                }
+                if (!field.canAccess(pojo))
+                    field.setAccessible(true);
                 field.set(pojo, value);
-            } catch (Exception e) {
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
                 throw new IOException(field.getName(), e);
             }
         }
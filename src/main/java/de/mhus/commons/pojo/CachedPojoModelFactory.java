@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.pojo;
+
+/**
+ * Creates the model once per class and returns the same model for every following call. The models are stored with the
+ * class itself (ClassValue), they are released together with the class and its class loader.
+ */
+public class CachedPojoModelFactory implements PojoModelFactory {
+
+    private final PojoModelFactory factory;
+    private final ClassValue<PojoModel> cache = new ClassValue<PojoModel>() {
+        @Override
+        protected PojoModel computeValue(Class<?> type) {
+            return factory.createPojoModel(type);
+        }
+    };
+
+    public CachedPojoModelFactory(PojoModelFactory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public PojoModel createPojoModel(Class<?> pojoClass) {
+        return cache.get(pojoClass);
+    }
+
+}
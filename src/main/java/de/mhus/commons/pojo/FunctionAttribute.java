@@ -19,6 +19,9 @@ import de.mhus.commons.tools.MCast;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 
 public class FunctionAttribute<T> implements PojoAttribute<T> {
@@ -28,7 +31,12 @@ public class FunctionAttribute<T> implements PojoAttribute<T> {
     private Method setter;
     private String name;
     private FunctionAttribute<Object> parent;
+    private Class<T> type;
+    // bound handles, null if the method is not accessible, then reflection is used
+    private MethodHandle getterHandle;
+    private MethodHandle setterHandle;
 
+    @SuppressWarnings("unchecked")
     public FunctionAttribute(Class<T> clazz, Method getter, Method setter, String name,
             FunctionAttribute<Object> parent) {
         this.clazz = clazz;
@@ -36,6 +44,22 @@ public class FunctionAttribute<T> implements PojoAttribute<T> {
         this.setter = setter;
         this.name = name;
         this.parent = parent;
+        this.type = (Class<T>) (getter != null ? getter.getReturnType() : setter.getParameterTypes()[0]);
+        getterHandle = unreflect(getter, MethodType.methodType(Object.class, Object.class));
+        setterHandle = unreflect(setter, MethodType.methodType(void.class, Object.class, Object.class));
+    }
+
+    private static MethodHandle unreflect(Method method, MethodType type) {
+        if (method == null)
+            return null;
+        try {
+            // the lookup can not access non public methods of other classes without it
+            if (!method.trySetAccessible())
+                return null;
+            return MethodHandles.lookup().unreflect(method).asType(type);
+        } catch (Exception e) {
+            return null;
+        }
     }
 
     @Override
@@ -53,13 +77,9 @@ public class FunctionAttribute<T> implements PojoAttribute<T> {
         return setter != null;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public Class<T> getType() {
-        if (getter != null)
-            return (Class<T>) getter.getReturnType();
-        else
-            return (Class<T>) setter.getParameterTypes()[0];
+        return type;
     }
 
     @SuppressWarnings("unchecked")
@@ -73,14 +93,19 @@ public class FunctionAttribute<T> implements PojoAttribute<T> {
         // if (!getType().isInstance(pojo))
         // throw new IOException("Object is not instance of " + getType().getCanonicalName());
         try {
-            value = (T) MCast.toType(value, getType(), null);
-            if (getType().isPrimitive() && value == null) {
+            value = (T) MCast.toType(value, type, null);
+            if (type.isPrimitive() && value == null) {
                 // that's not possible
-                value = (T) MCast.getDefaultPrimitive(getType());
+                value = (T) MCast.getDefaultPrimitive(type);
             }
-            setter.invoke(pojo, value);
-        } catch (Exception e) {
-            throw new IOException("Error set: " + name + "(" + getType() + ")=" + value, e);
+            if (setterHandle != null)
+                setterHandle.invokeExact(pojo, (Object) value);
+            else
+                setter.invoke(pojo, value);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IOException("Error set: " + name + "(" + type + ")=" + value, e);
         }
     }
 
@@ -93,8 +118,12 @@ public class FunctionAttribute<T> implements PojoAttribute<T> {
         // if (!getType().isInstance(pojo))
         // throw new IOException("Object is not instance of " + getType().getCanonicalName());
         try {
+            if (getterHandle != null)
+                return (T) (Object) getterHandle.invokeExact(pojo);
             return (T) getter.invoke(pojo);
-        } catch (Exception e) {
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
             throw new IOException("Error get: " + name + "(" + clazz + ")", e);
         }
     }
@@ -15,6 +15,8 @@
  */
 package de.mhus.commons.pojo;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -46,8 +48,10 @@ import java.awt.*;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -63,7 +67,7 @@ public class MPojo {
 
     public static final String DEEP = "deep";
 
-    private static final int MAX_LEVEL = 10;
+    static final int MAX_LEVEL = 10;
     private static PojoModelFactory defaultModelFactory;
 
     private static PojoModelFactory attributesModelFactory;
@@ -71,7 +75,7 @@ public class MPojo {
 
     public static synchronized PojoModelFactory getDefaultModelFactory() {
         if (defaultModelFactory == null)
-            defaultModelFactory = new PojoModelFactory() {
+            defaultModelFactory = new CachedPojoModelFactory(new PojoModelFactory() {
 
                 @Override
                 public PojoModel createPojoModel(Class<?> pojoClass) {
@@ -79,13 +83,13 @@ public class MPojo {
                             .filter(new DefaultFilter(true, false, false, false, true)).getModel();
                     return model;
                 }
-            };
+            });
         return defaultModelFactory;
     }
 
     public static synchronized PojoModelFactory getAttributesModelFactory() {
         if (attributesModelFactory == null)
-            attributesModelFactory = new PojoModelFactory() {
+            attributesModelFactory = new CachedPojoModelFactory(new PojoModelFactory() {
 
                 @Override
                 public PojoModel createPojoModel(Class<?> pojoClass) {
@@ -93,7 +97,7 @@ public class MPojo {
                             .filter(new DefaultFilter(true, false, false, false, true)).getModel();
                     return model;
                 }
-            };
+            });
         return attributesModelFactory;
     }
 
@@ -801,6 +805,44 @@ public class MPojo {
         }
     }
 
+    /**
+     * Write the pojo as json without building a json tree first.
+     *
+     * @param from
+     *            The pojo
+     * @param to
+     *            Target stream, encoded as UTF-8
+     *
+     * @throws IOException
+     */
+    public static void pojoToJson(Object from, OutputStream to) throws IOException {
+        new PojoJsonCodec().write(from, to);
+    }
+
+    public static void pojoToJson(Object from, JsonGenerator to, PojoModelFactory factory, boolean verbose,
+            boolean useAnnotations) throws IOException {
+        new PojoJsonCodec(factory, verbose, useAnnotations, false).write(from, to);
+    }
+
+    /**
+     * Read json into the pojo without building a json tree first.
+     *
+     * @param from
+     *            Source stream
+     * @param to
+     *            The pojo
+     *
+     * @throws IOException
+     */
+    public static void jsonToPojo(InputStream from, Object to) throws IOException {
+        new PojoJsonCodec().read(from, to);
+    }
+
+    public static void jsonToPojo(JsonParser from, Object to, PojoModelFactory factory, boolean force)
+            throws IOException {
+        new PojoJsonCodec(factory, false, false, force).read(from, to);
+    }
+
     public static void jsonToPojo(JsonNode from, Object to) throws IOException {
         jsonToPojo(from, to, getDefaultModelFactory(), false);
     }
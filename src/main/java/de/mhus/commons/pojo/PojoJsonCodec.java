@@ -0,0 +1,358 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.pojo;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import de.mhus.commons.annotations.generic.Public;
+import de.mhus.commons.annotations.pojo.Embedded;
+import de.mhus.commons.annotations.pojo.Hidden;
+import de.mhus.commons.tools.MCast;
+import de.mhus.commons.tools.MCollection;
+import de.mhus.commons.tools.MDate;
+import de.mhus.commons.tools.MJson;
+import de.mhus.commons.tools.MSystem;
+import de.mhus.commons.tree.ITreeNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes pojos directly to a JsonGenerator and reads them from a JsonParser without an intermediate tree. The output
+ * uses the same format as MPojo.pojoToJson() and the input is mapped like MPojo.jsonToPojo(), nested objects and
+ * collections are also read.
+ */
+@Slf4j
+public class PojoJsonCodec {
+
+    private final PojoModelFactory factory;
+    private final boolean verbose;
+    private final boolean useAnnotations;
+    private final boolean force;
+
+    public PojoJsonCodec() {
+        this(MPojo.getDefaultModelFactory(), false, false, false);
+    }
+
+    public PojoJsonCodec(PojoModelFactory factory, boolean verbose, boolean useAnnotations, boolean force) {
+        this.factory = factory;
+        this.verbose = verbose;
+        this.useAnnotations = useAnnotations;
+        this.force = force;
+    }
+
+    public void write(Object from, OutputStream os) throws IOException {
+        try (JsonGenerator gen = MJson.getMapper().getFactory().createGenerator(os, JsonEncoding.UTF8)) {
+            write(from, gen);
+        }
+    }
+
+    public void write(Object from, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        if (verbose)
+            gen.writeStringField(ITreeNode.CLASS, from.getClass().getCanonicalName());
+        writeAttributes(from, gen, "", 0);
+        gen.writeEndObject();
+    }
+
+    private void writeAttributes(Object from, JsonGenerator gen, String prefix, int level) throws IOException {
+        if (level > MPojo.MAX_LEVEL)
+            return;
+        PojoModel model = factory.createPojoModel(from.getClass());
+        for (PojoAttribute<?> attr : model) {
+            boolean deep = false;
+            if (!attr.canRead())
+                continue;
+            if (useAnnotations) {
+                if (attr.getAnnotation(Hidden.class) != null)
+                    continue;
+                Public pub = attr.getAnnotation(Public.class);
+                if (pub != null) {
+                    if (!pub.readable())
+                        continue;
+                    if (MCollection.contains(pub.hints(), MPojo.DEEP))
+                        deep = true;
+                }
+            }
+            Object value;
+            try {
+                value = attr.get(from);
+            } catch (Throwable t) {
+                LOGGER.trace("Error: {} {}", MSystem.getClassName(from), attr.getName(), t);
+                continue;
+            }
+            if (useAnnotations && attr.getAnnotation(Embedded.class) != null) {
+                if (value != null)
+                    writeAttributes(value, gen, prefix + attr.getName() + "_", level + 1);
+                continue;
+            }
+            writeField(gen, prefix + attr.getName(), value, deep, level + 1);
+        }
+    }
+
+    private void writeField(JsonGenerator gen, String name, Object value, boolean deep, int level) throws IOException {
+        gen.writeFieldName(name);
+        writeValue(gen, value, deep, level);
+        // readable side values
+        if (value instanceof Date)
+            gen.writeStringField("_" + name, MDate.toIso8601((Date) value));
+        else if (value != null && value.getClass().isEnum())
+            gen.writeStringField("_" + name, ((Enum<?>) value).name());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeValue(JsonGenerator gen, Object value, boolean deep, int level) throws IOException {
+        if (value == null)
+            gen.writeNull();
+        else if (value instanceof Boolean)
+            gen.writeBoolean((Boolean) value);
+        else if (value instanceof Integer)
+            gen.writeNumber((Integer) value);
+        else if (value instanceof String)
+            gen.writeString((String) value);
+        else if (value instanceof Long)
+            gen.writeNumber((Long) value);
+        else if (value instanceof byte[])
+            gen.writeBinary((byte[]) value);
+        else if (value instanceof Float)
+            gen.writeNumber((Float) value);
+        else if (value instanceof Double)
+            gen.writeNumber((Double) value);
+        else if (value instanceof Short)
+            gen.writeNumber((Short) value);
+        else if (value instanceof Character)
+            gen.writeString(Character.toString((Character) value));
+        else if (value instanceof Date)
+            gen.writeNumber(((Date) value).getTime());
+        else if (value instanceof BigDecimal)
+            gen.writeNumber((BigDecimal) value);
+        else if (value instanceof BigInteger)
+            gen.writeNumber((BigInteger) value);
+        else if (value instanceof JsonNode)
+            gen.writeTree((JsonNode) value);
+        else if (value.getClass().isEnum())
+            gen.writeNumber(((Enum<?>) value).ordinal());
+        else if (level > MPojo.MAX_LEVEL)
+            gen.writeNull();
+        else if (value instanceof Map) {
+            gen.writeStartObject();
+            for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) value).entrySet())
+                writeField(gen, String.valueOf(entry.getKey()), entry.getValue(), true, level + 1);
+            gen.writeEndObject();
+        } else if (value.getClass().isArray()) {
+            gen.writeStartArray();
+            int len = Array.getLength(value);
+            for (int i = 0; i < len; i++)
+                writeValue(gen, Array.get(value, i), true, level + 1);
+            gen.writeEndArray();
+        } else if (value instanceof Collection) {
+            gen.writeStartArray();
+            for (Object o : (Collection<Object>) value)
+                writeValue(gen, o, true, level + 1);
+            gen.writeEndArray();
+        } else if (deep) {
+            gen.writeStartObject();
+            writeAttributes(value, gen, "", level + 1);
+            gen.writeEndObject();
+        } else
+            gen.writeString(String.valueOf(value));
+    }
+
+    public void read(InputStream is, Object to) throws IOException {
+        try (JsonParser parser = MJson.getMapper().getFactory().createParser(is)) {
+            read(parser, to);
+        }
+    }
+
+    /**
+     * Read the next json object from the parser into the pojo. Unknown fields are skipped.
+     *
+     * @param parser
+     *            The parser, positioned before or at the start of the object
+     * @param to
+     *            The target pojo
+     *
+     * @throws IOException
+     */
+    public void read(JsonParser parser, Object to) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == null)
+            token = parser.nextToken();
+        if (token != JsonToken.START_OBJECT)
+            throw new IOException("json object expected: " + token);
+        readObject(parser, to, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(JsonParser parser, Object to, int level) throws IOException {
+        PojoModel model = factory.createPojoModel(to.getClass());
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            PojoAttribute<Object> attr = model.getAttribute(name);
+            if (attr == null || !attr.canWrite() || level > MPojo.MAX_LEVEL) {
+                parser.skipChildren();
+                continue;
+            }
+            Class<?> type = attr.getType();
+            Object value;
+            if (token == JsonToken.VALUE_NULL)
+                value = type.isPrimitive() ? MCast.getDefaultPrimitive(type) : null;
+            else if (token == JsonToken.START_OBJECT)
+                value = readObjectValue(parser, to, attr, type, level);
+            else if (token == JsonToken.START_ARRAY)
+                value = readArrayValue(parser, type, level);
+            else
+                value = readScalar(parser, token, type);
+            try {
+                attr.set(to, value, force);
+            } catch (Throwable t) {
+                LOGGER.debug("Error: {} {}", MSystem.getClassName(to), name, t);
+            }
+        }
+    }
+
+    private Object readObjectValue(JsonParser parser, Object to, PojoAttribute<Object> attr, Class<?> type, int level)
+            throws IOException {
+        if (Map.class.isAssignableFrom(type) || type == Object.class)
+            return readGeneric(parser, JsonToken.START_OBJECT, level + 1);
+        if (type == JsonNode.class)
+            return parser.readValueAsTree();
+        Object current = null;
+        try {
+            if (attr.canRead())
+                current = attr.get(to);
+            if (current == null)
+                current = type.getDeclaredConstructor().newInstance();
+        } catch (Throwable t) {
+            LOGGER.debug("Can't create {}", type, t);
+            parser.skipChildren();
+            return null;
+        }
+        readObject(parser, current, level + 1);
+        return current;
+    }
+
+    private Object readArrayValue(JsonParser parser, Class<?> type, int level) throws IOException {
+        if (type == JsonNode.class)
+            return parser.readValueAsTree();
+        List<?> list = (List<?>) readGeneric(parser, JsonToken.START_ARRAY, level + 1);
+        if (type.isArray())
+            return MCast.toType(list.toArray(), type, null);
+        return list;
+    }
+
+    private Object readScalar(JsonParser parser, JsonToken token, Class<?> type) throws IOException {
+        if (type == Boolean.class || type == boolean.class)
+            return parser.getValueAsBoolean(false);
+        if (type == Integer.class || type == int.class)
+            return parser.getValueAsInt(0);
+        if (type == Long.class || type == long.class)
+            return parser.getValueAsLong(0);
+        if (type == Double.class || type == double.class)
+            return parser.getValueAsDouble(0);
+        if (type == Float.class || type == float.class)
+            return (float) parser.getValueAsDouble(0);
+        if (type == Byte.class || type == byte.class)
+            return (byte) parser.getValueAsInt(0);
+        if (type == Short.class || type == short.class)
+            return (short) parser.getValueAsInt(0);
+        if (type == Character.class || type == char.class) {
+            if (token == JsonToken.VALUE_STRING)
+                return parser.getTextLength() > 0 ? parser.getText().charAt(0) : (char) 0;
+            return (char) parser.getValueAsInt(0);
+        }
+        if (type == String.class)
+            return parser.getValueAsString();
+        if (type == byte[].class && token == JsonToken.VALUE_STRING)
+            return parser.getBinaryValue();
+        if (type == Date.class && token == JsonToken.VALUE_NUMBER_INT)
+            return new Date(parser.getLongValue());
+        if (type == UUID.class)
+            try {
+                return UUID.fromString(parser.getValueAsString());
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        if (type.isEnum()) {
+            Object[] cons = type.getEnumConstants();
+            if (token == JsonToken.VALUE_STRING)
+                for (Object c : cons)
+                    if (((Enum<?>) c).name().equals(parser.getText()))
+                        return c;
+            int ord = parser.getValueAsInt(0);
+            Object c = cons.length > 0 ? cons[0] : null;
+            if (ord >= 0 && ord < cons.length)
+                c = cons[ord];
+            return c;
+        }
+        return parser.getValueAsString();
+    }
+
+    private Object readGeneric(JsonParser parser, JsonToken token, int level) throws IOException {
+        switch (token) {
+        case START_OBJECT:
+            if (level > MPojo.MAX_LEVEL) {
+                parser.skipChildren();
+                return null;
+            }
+            Map<String, Object> map = new LinkedHashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                map.put(name, readGeneric(parser, parser.nextToken(), level + 1));
+            }
+            return map;
+        case START_ARRAY:
+            if (level > MPojo.MAX_LEVEL) {
+                parser.skipChildren();
+                return null;
+            }
+            List<Object> list = new ArrayList<>();
+            JsonToken next;
+            while ((next = parser.nextToken()) != JsonToken.END_ARRAY && next != null)
+                list.add(readGeneric(parser, next, level + 1));
+            return list;
+        case VALUE_STRING:
+            return parser.getText();
+        case VALUE_NUMBER_INT:
+            return parser.getNumberValue();
+        case VALUE_NUMBER_FLOAT:
+            return parser.getDoubleValue();
+        case VALUE_TRUE:
+            return Boolean.TRUE;
+        case VALUE_FALSE:
+            return Boolean.FALSE;
+        default:
+            return null;
+        }
+    }
+
+}
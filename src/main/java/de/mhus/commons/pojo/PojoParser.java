@@ -43,7 +43,7 @@ public class PojoParser {
 
     public PojoParser parse(Object pojo, PojoStrategy strategy) {
         if (model == null)
-            model = new PojoModelImpl(pojo.getClass());
+            model = new PojoModelImpl(pojo instanceof Class ? (Class<?>) pojo : pojo.getClass());
         if (strategy == null)
             strategy = new DefaultStrategy();
         if (pojo instanceof Class) {
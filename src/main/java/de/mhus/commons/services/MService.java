@@ -25,44 +25,204 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Registry of the services. The lookup of an existing service is lock free, a service is created only once. The
+ * creation uses one global lock, services looking up other services in the constructor can not dead lock.
+ */
 @Slf4j
 public class MService {
 
-    private static Map<Class<? extends IService>, IService> services = new HashMap<>();
+    private static final ClassValue<Holder> holders = new ClassValue<>() {
+        @Override
+        protected Holder computeValue(Class<?> type) {
+            return new Holder();
+        }
+    };
+    private static final Object createLock = new Object();
+    private static final ThreadLocal<Map<Class<?>, IService>> scoped = new ThreadLocal<>();
+    // number of open scopes in all threads, the thread local is only checked if there are scopes
+    private static final AtomicInteger scopes = new AtomicInteger();
+    private static final LongAdder lookups = new LongAdder();
+    private static final LongAdder creations = new LongAdder();
 
-    public synchronized static <T extends IService> T getService(Class<T> clazz) {
-        T service = (T) services.get(clazz);
-        if (service == null) {
-            try {
-                final var nullAnno = clazz.getAnnotation(DefaultImplementationNull.class);
-                if (nullAnno != null) {
-                    return null;
-                }
-                final var factoryAnno = clazz.getAnnotation(ServiceFactory.class);
-                if (factoryAnno != null) {
-                    service = (T) MObject.newInstance(factoryAnno.value()).create(clazz);
-                }
-                if (service == null) {
-                    final var defaultAnno = clazz.getAnnotation(DefaultImplementation.class);
-                    if (defaultAnno != null) {
-                        service = (T) defaultAnno.value().newInstance();
-                    } else {
-                        service = MObject.newInstance(clazz);
-                    }
+    @SuppressWarnings("unchecked")
+    public static <T extends IService> T getService(Class<T> clazz) {
+        Holder holder = holders.get(clazz);
+        holder.lookups.increment();
+        lookups.increment();
+        if (scopes.get() > 0) {
+            Map<Class<?>, IService> current = scoped.get();
+            if (current != null) {
+                IService service = current.get(clazz);
+                if (service != null)
+                    return (T) service;
+            }
+        }
+        IService service = holder.service;
+        if (service != null)
+            return (T) service;
+        synchronized (createLock) {
+            service = holder.service;
+            if (service != null)
+                return (T) service;
+            T created = create(clazz);
+            if (created != null)
+                holder.service = created;
+            return created;
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "deprecation" })
+    private static <T extends IService> T create(Class<T> clazz) {
+        T service = null;
+        try {
+            final var nullAnno = clazz.getAnnotation(DefaultImplementationNull.class);
+            if (nullAnno != null) {
+                return null;
+            }
+            final var factoryAnno = clazz.getAnnotation(ServiceFactory.class);
+            if (factoryAnno != null) {
+                service = (T) MObject.newInstance(factoryAnno.value()).create(clazz);
+            }
+            if (service == null) {
+                final var defaultAnno = clazz.getAnnotation(DefaultImplementation.class);
+                if (defaultAnno != null) {
+                    service = (T) defaultAnno.value().newInstance();
+                } else {
+                    service = MObject.newInstance(clazz);
                 }
-                LOGGER.debug("Create service {} with {}", clazz, service.getClass());
-                services.put(clazz, service);
-            } catch (Exception e) {
-                LOGGER.error("Can't create service {}", clazz, e);
-                throw new MRuntimeException(RC.STATUS.INTERNAL_ERROR, "Can't create service", clazz, e);
             }
+            LOGGER.debug("Create service {} with {}", clazz, service.getClass());
+            creations.increment();
+            return service;
+        } catch (Exception e) {
+            LOGGER.error("Can't create service {}", clazz, e);
+            throw new MRuntimeException(RC.STATUS.INTERNAL_ERROR, "Can't create service", clazz, e);
         }
-        return service;
     }
 
+    /**
+     * Register or replace the service for all threads.
+     *
+     * @param clazz
+     * @param service
+     *            The service or null to create the default implementation with the next lookup
+     */
     public static void registerService(Class<? extends IService> clazz, IService service) {
-        services.put(clazz, service);
+        Holder holder = holders.get(clazz);
+        synchronized (createLock) {
+            holder.service = service;
+        }
     }
 
+    /**
+     * Remove the registered or created service. The next lookup will create the default implementation.
+     *
+     * @param clazz
+     */
+    public static void unregisterService(Class<? extends IService> clazz) {
+        registerService(clazz, null);
+    }
+
+    /**
+     * Override the service for the current thread until the scope is closed. Scopes can be nested and must be closed by
+     * the same thread.
+     *
+     * <pre>
+     * try (MService.Scope scope = MService.scope(ITreeNodeFactory.class, myFactory)) {
+     *     ...
+     * }
+     * </pre>
+     *
+     * @param clazz
+     * @param service
+     *
+     * @return The scope, close it to restore the previous service
+     */
+    public static <T extends IService> Scope scope(Class<T> clazz, T service) {
+        Map<Class<?>, IService> current = scoped.get();
+        if (current == null) {
+            current = new HashMap<>();
+            scoped.set(current);
+        }
+        IService previous = current.put(clazz, service);
+        scopes.incrementAndGet();
+        return new Scope(clazz, previous, Thread.currentThread());
+    }
+
+    /**
+     * Return the number of lookups of the service.
+     *
+     * @param clazz
+     *
+     * @return Number of getService calls for the class
+     */
+    public static long getLookupCount(Class<? extends IService> clazz) {
+        return holders.get(clazz).lookups.sum();
+    }
+
+    /**
+     * Return the number of all lookups.
+     *
+     * @return Number of getService calls
+     */
+    public static long getLookupCount() {
+        return lookups.sum();
+    }
+
+    /**
+     * Return the number of created default services.
+     *
+     * @return Number of created services
+     */
+    public static long getCreateCount() {
+        return creations.sum();
+    }
+
+    private static final class Holder {
+        volatile IService service;
+        final LongAdder lookups = new LongAdder();
+    }
+
+    public static final class Scope implements AutoCloseable {
+
+        private final Class<?> clazz;
+        private final IService previous;
+        private final Thread owner;
+        private boolean closed;
+
+        private Scope(Class<?> clazz, IService previous, Thread owner) {
+            this.clazz = clazz;
+            this.previous = previous;
+            this.owner = owner;
+        }
+
+        /**
+         * Restore the previous service of the thread.
+         *
+         * @throws IllegalStateException
+         *             If called by another thread than the one which opened the scope
+         */
+        @Override
+        public void close() {
+            if (closed)
+                return;
+            if (Thread.currentThread() != owner)
+                throw new IllegalStateException("scope must be closed by the thread which opened it: " + owner);
+            closed = true;
+            Map<Class<?>, IService> current = scoped.get();
+            if (current != null) {
+                if (previous == null)
+                    current.remove(clazz);
+                else
+                    current.put(clazz, previous);
+                if (current.isEmpty())
+                    scoped.remove();
+            }
+            scopes.decrementAndGet();
+        }
+    }
 }
@@ -48,6 +48,7 @@ import java.text.NumberFormat;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Formatter;
 import java.util.HashMap;
@@ -60,6 +61,8 @@ import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.TimeZone;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Smplifies casts between java classes. Some functions in this class only make the code readable. e.g. from string to
@@ -80,6 +83,8 @@ public final class MCast {
             'e', 'f' };
 
     private static VectorMap<Class<?>, Class<?>, Caster<?, ?>> casters = new VectorMap<>();
+    // resolved converters by target and source class, replaced if a caster is added
+    private static volatile ConverterCache converters = new ConverterCache();
 
     private static final ObjectToBoolean OBJECT_TO_BOOLEAN = new ObjectToBoolean();
     private static final ObjectToInteger OBJECT_TO_INTEGER = new ObjectToInteger();
@@ -148,6 +153,7 @@ public final class MCast {
         if (!overwrite && casters.containsKey(caster.getFromClass(), caster.getToClass()))
             return;
         casters.put(caster.getFromClass(), caster.getToClass(), caster);
+        converters = new ConverterCache();
     }
 
     /**
@@ -351,7 +357,7 @@ public final class MCast {
      * @return a boolean
      */
     public static boolean toboolean(Object _in, boolean _default) {
-        return OBJECT_TO_BOOLEAN.toBoolean(_in).orElse(_default);
+        return OBJECT_TO_BOOLEAN.toBoolean(_in, _default);
     }
 
     public static OptionalBoolean toboolean(Object _in) {
@@ -380,7 +386,7 @@ public final class MCast {
      * @return a double
      */
     public static double todouble(Object in, double def) {
-        return OBJECT_TO_DOUBLE.toDouble(in).orElse(def);
+        return OBJECT_TO_DOUBLE.toDouble(in, def);
     }
 
     public static OptionalDouble todouble(Object in) {
@@ -407,7 +413,7 @@ public final class MCast {
         if (in == null)
             return def;
         in = in.replaceAll(" ", "").replaceAll("\\.", "").replace(',', '.');
-        return OBJECT_TO_DOUBLE.toDouble(in).orElse(def);
+        return OBJECT_TO_DOUBLE.toDouble(in, def);
     }
 
     /**
@@ -426,7 +432,7 @@ public final class MCast {
         if (in == null)
             return def;
         in = in.replaceAll(" ", "").replaceAll(",", "");
-        return OBJECT_TO_DOUBLE.toDouble(in).orElse(def);
+        return OBJECT_TO_DOUBLE.toDouble(in, def);
     }
 
     /**
@@ -470,7 +476,7 @@ public final class MCast {
                 return def;
             }
         }
-        return OBJECT_TO_INTEGER.toInt(in).orElse(def);
+        return OBJECT_TO_INTEGER.toInt(in, def);
     }
 
     public static OptionalInt toint(Object in) {
@@ -501,7 +507,7 @@ public final class MCast {
                 return def;
             }
         }
-        return OBJECT_TO_LONG.toLong(in).orElse(def);
+        return OBJECT_TO_LONG.toLong(in, def);
     }
 
     public static OptionalLong tolong(Object in) {
@@ -838,7 +844,16 @@ public final class MCast {
         return OBJECT_TO_STRING.cast(in, def);
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Convert the object to the given type. The conversion for a pair of source and target class is resolved once and
+     * cached.
+     *
+     * @param in
+     * @param type
+     * @param def
+     *
+     * @return The converted object or def
+     */
     public static Object toType(Object in, Class<?> type, Object def) {
         // if null -> return null
         if (in == null)
@@ -846,100 +861,150 @@ public final class MCast {
         // if it's the same type -> return itself
         if (type.isInstance(in))
             return in;
+        return converters.get(type).converter(in.getClass()).convert(in, def);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Converter createConverter(Class<?> source, Class<?> type) {
+        // if it's the same type -> return itself
+        if (type.isAssignableFrom(source))
+            return (in, def) -> in;
 
         if (type.isArray()) {
             // create new array from in...
-            if (in.getClass().isArray()) {
-                Class<?> arrayType = type.getComponentType();
-                int length = Array.getLength(in);
-                Object out = Array.newInstance(arrayType, length);
-                // System.arraycopy(in, 0, out, 0, length);
-                for (int i = 0; i < length; i++) {
-                    Object value = Array.get(in, i);
-                    value = toType(value, arrayType, null);
-                    Array.set(out, i, value);
-                }
-                return out;
+            Class<?> arrayType = type.getComponentType();
+            if (source.isArray()) {
+                return (in, def) -> {
+                    int length = Array.getLength(in);
+                    Object out = Array.newInstance(arrayType, length);
+                    for (int i = 0; i < length; i++)
+                        Array.set(out, i, toType(Array.get(in, i), arrayType, null));
+                    return out;
+                };
             }
-
-            if (in instanceof String) {
-                String[] parts = ((String) in).split(";");
-                Class<?> arrayType = type.getComponentType();
-                int length = parts.length;
-                Object out = Array.newInstance(arrayType, length);
-                // System.arraycopy(in, 0, out, 0, length);
-                for (int i = 0; i < length; i++) {
-                    Object value = parts[i];
-                    value = toType(value, arrayType, null);
-                    Array.set(out, i, value);
-                }
-                return out;
+            if (source == String.class) {
+                return (in, def) -> {
+                    String[] parts = ((String) in).split(";");
+                    Object out = Array.newInstance(arrayType, parts.length);
+                    for (int i = 0; i < parts.length; i++)
+                        Array.set(out, i, toType(parts[i], arrayType, null));
+                    return out;
+                };
             }
-
-            if (in instanceof Collection<?>) {
-                Collection<?> c = (Collection<?>) in;
-                Class<?> arrayType = type.getComponentType();
-                int length = c.size();
-                Object out = Array.newInstance(arrayType, length);
-                // System.arraycopy(in, 0, out, 0, length);
-                Iterator<?> iter = c.iterator();
-                for (int i = 0; i < length; i++) {
-                    Object value = iter.next();
-                    value = toType(value, arrayType, null);
-                    Array.set(out, i, value);
-                }
-                return out;
+            if (Collection.class.isAssignableFrom(source)) {
+                return (in, def) -> {
+                    Collection<?> c = (Collection<?>) in;
+                    int length = c.size();
+                    Object out = Array.newInstance(arrayType, length);
+                    Iterator<?> iter = c.iterator();
+                    for (int i = 0; i < length; i++)
+                        Array.set(out, i, toType(iter.next(), arrayType, null));
+                    return out;
+                };
             }
-
-            return def;
+            return (in, def) -> def;
         }
 
         if (type.isEnum()) {
-            String strValue = String.valueOf(in);
+            HashMap<String, Object> names = new HashMap<>();
             for (Object c : type.getEnumConstants())
-                if (c.toString().equals(strValue))
-                    return c;
-            return def;
+                names.putIfAbsent(c.toString(), c);
+            return (in, def) -> {
+                Object c = names.get(String.valueOf(in));
+                return c == null ? def : c;
+            };
         }
 
         // is there a exact caster for the from-to pair ?
-        Caster<?, ?> caster = casters.get(in.getClass(), type);
-        if (caster == null) {
-
-            // not, first try to cast primitives
-
-            if (String.class.isAssignableFrom(type))
-                return toString(in);
-            if (boolean.class.isAssignableFrom(type))
-                return toboolean(in, def == null ? false : toboolean(def, false));
-            if (int.class.isAssignableFrom(type))
-                return toint(in, def == null ? 0 : toint(def, 0));
-            if (long.class.isAssignableFrom(type))
-                return tolong(in, def == null ? 0 : tolong(def, 0));
-            if (double.class.isAssignableFrom(type))
-                return todouble(in, def == null ? 0 : todouble(def, 0));
-            if (byte.class.isAssignableFrom(type))
-                return tobyte(in, def == null ? 0 : tobyte(def, (byte) 0));
-            if (short.class.isAssignableFrom(type))
-                return toshort(in, def == null ? 0 : toshort(def, (short) 0));
-            if (float.class.isAssignableFrom(type))
-                return tofloat(in, def == null ? 0 : tofloat(def, (short) 0));
-
-            if (type == Map.class)
-                return toMap(in, def);
-            if (type == List.class)
-                return toList(in, def);
-            // if not found find a default caster (from = Object)
-
-            caster = casters.get(Object.class, type);
-        }
+        Caster<Object, Object> caster = (Caster<Object, Object>) casters.get(source, type);
+        if (caster != null)
+            return caster::cast;
+
+        // not, first try to cast primitives
+        if (String.class.isAssignableFrom(type))
+            return (in, def) -> toString(in);
+        if (type == boolean.class)
+            return (in, def) -> toboolean(in, def == null ? false : toboolean(def, false));
+        if (type == int.class)
+            return (in, def) -> toint(in, def == null ? 0 : toint(def, 0));
+        if (type == long.class)
+            return (in, def) -> tolong(in, def == null ? 0 : tolong(def, 0));
+        if (type == double.class)
+            return (in, def) -> todouble(in, def == null ? 0 : todouble(def, 0));
+        if (type == byte.class)
+            return (in, def) -> tobyte(in, def == null ? 0 : tobyte(def, (byte) 0));
+        if (type == short.class)
+            return (in, def) -> toshort(in, def == null ? 0 : toshort(def, (short) 0));
+        if (type == float.class)
+            return (in, def) -> tofloat(in, def == null ? 0 : tofloat(def, (short) 0));
+
+        if (type == Map.class)
+            return MCast::toMap;
+        if (type == List.class)
+            return MCast::toList;
+
+        // if not found find a default caster (from = Object)
+        caster = (Caster<Object, Object>) casters.get(Object.class, type);
+        if (caster != null)
+            return caster::cast;
 
         // default also not found -> return default value
-        if (caster == null)
-            return def;
+        return (in, def) -> def;
+    }
+
+    private interface Converter {
+        Object convert(Object in, Object def);
+    }
+
+    private static final class ConverterCache extends ClassValue<TargetConverters> {
+        @Override
+        protected TargetConverters computeValue(Class<?> type) {
+            return new TargetConverters(type);
+        }
+    }
+
+    /**
+     * Converters to one target type, this object is attached to the target class. A converter references the target
+     * type, it is attached to the source class only if the target is loaded by the same or a parent class loader. If
+     * the source is loaded by a parent loader it is kept here. For unrelated loaders the source is a weak key. A class
+     * must not keep the class loader of a plugin or redeployed class alive.
+     */
+    private static final class TargetConverters extends ClassValue<Converter> {
+        private final Class<?> type;
+        private final ConcurrentHashMap<Class<?>, Converter> parents = new ConcurrentHashMap<>();
+        private final Map<Class<?>, Converter> weak = Collections.synchronizedMap(new WeakHashMap<>());
+
+        private TargetConverters(Class<?> type) {
+            this.type = type;
+        }
 
-        // if found a caster -> cast !
-        return ((Caster<Object, Object>) caster).cast(in, def);
+        private Converter converter(Class<?> source) {
+            Converter converter = parents.get(source);
+            if (converter != null)
+                return converter;
+            ClassLoader target = type.getClassLoader();
+            ClassLoader from = source.getClassLoader();
+            if (isParentLoader(target, from))
+                return get(source);
+            if (isParentLoader(from, target))
+                return parents.computeIfAbsent(source, s -> createConverter(s, type));
+            return weak.computeIfAbsent(source, s -> createConverter(s, type));
+        }
+
+        @Override
+        protected Converter computeValue(Class<?> source) {
+            return createConverter(source, type);
+        }
+
+        // true if the target loader is the source loader or one of its parents, null is the bootstrap loader
+        private static boolean isParentLoader(ClassLoader target, ClassLoader source) {
+            if (target == null)
+                return true;
+            for (ClassLoader loader = source; loader != null; loader = loader.getParent())
+                if (loader == target)
+                    return true;
+            return false;
+        }
     }
 
     public static Object toList(Object in, Object def) {
@@ -15,10 +15,15 @@
  */
 package de.mhus.commons.tools;
 
+import de.mhus.commons.util.DateFormats;
+
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
@@ -30,18 +35,6 @@ public class MDate extends Date {
 
     public static final Date NULL_DATE = new Date(0);
 
-    private static SimpleDateFormat iso8601DateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
-    private static SimpleDateFormat fileDateFormat = new SimpleDateFormat("yyyyMMddHHmmss");
-    private static SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm");
-    private static SimpleDateFormat timeSecFormat = new SimpleDateFormat("HH:mm:ss");
-    private static SimpleDateFormat germanDateFormat = new SimpleDateFormat("dd.MM.yyyy");
-    private static SimpleDateFormat httpHeaderDateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z",
-            Locale.US);
-
-    static {
-        httpHeaderDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
-    }
-
     public MDate() {
         super();
     }
@@ -108,24 +101,15 @@ public class MDate extends Date {
      * @return the formatted date as string
      */
     public static String toIso8601(Date date) {
-        synchronized (iso8601DateFormat) {
-            iso8601DateFormat.setTimeZone(TimeZone.getDefault());
-            return iso8601DateFormat.format(date);
-        }
+        return DateFormats.format(DateFormats.ISO8601, date, null);
     }
 
     public static String toIso8601(long timestamp) {
-        synchronized (iso8601DateFormat) {
-            iso8601DateFormat.setTimeZone(TimeZone.getDefault());
-            return iso8601DateFormat.format(new Date(timestamp));
-        }
+        return DateFormats.format(DateFormats.ISO8601, timestamp, null);
     }
 
     public static String toIso8601(Date date, TimeZone tz) {
-        synchronized (iso8601DateFormat) {
-            iso8601DateFormat.setTimeZone(tz);
-            return iso8601DateFormat.format(date);
-        }
+        return DateFormats.format(DateFormats.ISO8601, date, tz);
     }
 
     public static String toDateTimeString(Date date) {
@@ -133,19 +117,12 @@ public class MDate extends Date {
     }
 
     public static String toDateTimeString(Date date, Locale locale) {
-        DateFormat df = getLocaleDateFormatter(locale);
-        synchronized (timeFormat) {
-            timeFormat.setTimeZone(TimeZone.getDefault());
-            return df.format(date) + " " + timeFormat.format(date);
-        }
+        return toDateTimeString(date, locale, null);
     }
 
     public static String toDateTimeString(Date date, Locale locale, TimeZone tz) {
-        DateFormat df = getLocaleDateFormatter(locale);
-        synchronized (timeFormat) {
-            timeFormat.setTimeZone(tz);
-            return df.format(date) + " " + timeFormat.format(date);
-        }
+        ZonedDateTime zdt = toZonedDateTime(date, tz);
+        return DateFormats.getLocaleDateFormatter(locale).format(zdt) + " " + DateFormats.TIME.format(zdt);
     }
 
     public static String toDateTimeSecondsString(Date date) {
@@ -153,19 +130,16 @@ public class MDate extends Date {
     }
 
     public static String toDateTimeSecondsString(Date date, Locale locale) {
-        DateFormat df = getLocaleDateFormatter(locale);
-        synchronized (timeSecFormat) {
-            timeSecFormat.setTimeZone(TimeZone.getDefault());
-            return df.format(date) + " " + timeSecFormat.format(date);
-        }
+        return toDateTimeSecondsString(date, locale, null);
     }
 
     public static String toDateTimeSecondsString(Date date, Locale locale, TimeZone tz) {
-        DateFormat df = getLocaleDateFormatter(locale);
-        synchronized (timeSecFormat) {
-            timeSecFormat.setTimeZone(tz);
-            return df.format(date) + " " + timeSecFormat.format(date);
-        }
+        ZonedDateTime zdt = toZonedDateTime(date, tz);
+        return DateFormats.getLocaleDateFormatter(locale).format(zdt) + " " + DateFormats.TIME_SECONDS.format(zdt);
+    }
+
+    private static ZonedDateTime toZonedDateTime(Date date, TimeZone tz) {
+        return Instant.ofEpochMilli(date.getTime()).atZone(tz == null ? ZoneId.systemDefault() : tz.toZoneId());
     }
 
     public static String toDateString(Date date) {
@@ -173,12 +147,12 @@ public class MDate extends Date {
     }
 
     public static String toDateString(Date date, Locale locale) {
-        DateFormat df = getLocaleDateFormatter(locale);
-        return df.format(date);
+        return DateFormats.format(DateFormats.getLocaleDateFormatter(locale), date, null);
     }
 
     /**
-     * Returns a locale specific date formatter.
+     * Returns a new locale specific date formatter. Use DateFormats.getLocaleDateFormatter() for a shared and thread
+     * safe formatter.
      *
      * @param locale
      *            the locale or null for default locale
@@ -190,7 +164,7 @@ public class MDate extends Date {
         if (locale == null)
             locale = Locale.getDefault();
         if (locale == null || Locale.GERMANY.equals(locale))
-            return germanDateFormat;
+            return new SimpleDateFormat("dd.MM.yyyy");
 
         int style = DateFormat.SHORT;
         return DateFormat.getDateInstance(style, locale);
@@ -204,10 +178,7 @@ public class MDate extends Date {
      * @return the formatted date as string
      */
     public static String toFileFormat(Date date) {
-        synchronized (fileDateFormat) {
-            fileDateFormat.setTimeZone(TimeZone.getDefault());
-            return fileDateFormat.format(date);
-        }
+        return DateFormats.format(DateFormats.FILE, date, null);
     }
 
     /**
@@ -218,9 +189,7 @@ public class MDate extends Date {
      * @return the formatted date as string
      */
     public static String toIsoDate(Date _in) {
-        Calendar c = Calendar.getInstance();
-        c.setTime(_in);
-        return toIsoDate(c);
+        return DateFormats.format(DateFormats.ISO_DATE, _in, null);
     }
 
     /**
@@ -231,9 +200,7 @@ public class MDate extends Date {
      * @return the formatted date as string
      */
     public static String toIsoDateTime(Date _in) {
-        Calendar c = Calendar.getInstance();
-        c.setTime(_in);
-        return toIsoDateTime(c);
+        return DateFormats.format(DateFormats.ISO_DATE_TIME, _in, null);
     }
 
     public static String toIsoDateTime(Calendar _in) {
@@ -253,10 +220,7 @@ public class MDate extends Date {
      * @return the formatted date as string
      */
     public static String toIsoDateTime(long timeStamp) {
-
-        Calendar c = Calendar.getInstance();
-        c.setTimeInMillis(timeStamp);
-        return toIsoDateTime(c);
+        return DateFormats.format(DateFormats.ISO_DATE_TIME, timeStamp, null);
     }
 
     /**
@@ -279,17 +243,11 @@ public class MDate extends Date {
      * @return the formatted date as string
      */
     public static String toIso8601(Calendar date) {
-        synchronized (iso8601DateFormat) {
-            iso8601DateFormat.setTimeZone(TimeZone.getDefault());
-            return iso8601DateFormat.format(date.getTime());
-        }
+        return DateFormats.format(DateFormats.ISO8601, date.getTimeInMillis(), null);
     }
 
     public static String toIso8601(Calendar date, TimeZone tz) {
-        synchronized (iso8601DateFormat) {
-            iso8601DateFormat.setTimeZone(tz);
-            return iso8601DateFormat.format(date.getTime());
-        }
+        return DateFormats.format(DateFormats.ISO8601, date.getTimeInMillis(), tz);
     }
 
     /**
@@ -300,7 +258,7 @@ public class MDate extends Date {
      * @return the formatted date as string
      */
     public static String toFileFormat(Calendar date) {
-        return fileDateFormat.format(date.getTime());
+        return DateFormats.format(DateFormats.FILE, date.getTimeInMillis(), null);
     }
 
     public static Date toDate(Object in, Date def, Locale locale) {
@@ -312,35 +270,45 @@ public class MDate extends Date {
     }
 
     public static String toTimeString(Date date) {
-        synchronized (timeFormat) {
-            timeFormat.setTimeZone(TimeZone.getDefault());
-            return timeFormat.format(date);
-        }
+        return DateFormats.format(DateFormats.TIME, date, null);
     }
 
     public static String toTimeString(Date date, TimeZone tz) {
-        synchronized (timeFormat) {
-            timeFormat.setTimeZone(tz);
-            return timeFormat.format(date);
-        }
+        return DateFormats.format(DateFormats.TIME, date, tz);
     }
 
     public static String toTimeSecondsString(Date date) {
-        synchronized (timeSecFormat) {
-            timeSecFormat.setTimeZone(TimeZone.getDefault());
-            return timeSecFormat.format(date);
-        }
+        return DateFormats.format(DateFormats.TIME_SECONDS, date, null);
     }
 
     public static String toTimeSecondsString(Date date, TimeZone tz) {
-        synchronized (timeSecFormat) {
-            timeSecFormat.setTimeZone(tz);
-            return timeSecFormat.format(date);
-        }
+        return DateFormats.format(DateFormats.TIME_SECONDS, date, tz);
     }
 
+    /**
+     * Format the date in the default time zone. The pattern is in the format of SimpleDateFormat, the format is cached
+     * per thread.
+     *
+     * @param format
+     * @param date
+     *
+     * @return the formatted date as string
+     */
     public static String toString(String format, Date date) {
-        return new SimpleDateFormat(format).format(date);
+        return DateFormats.getSimpleDateFormat(format).format(date);
+    }
+
+    /**
+     * Format the date in the default time zone with a cached formatter. The pattern is in the format of
+     * DateTimeFormatter.
+     *
+     * @param pattern
+     * @param date
+     *
+     * @return the formatted date as string
+     */
+    public static String toStringWithPattern(String pattern, Date date) {
+        return DateFormats.format(DateFormats.getFormatter(pattern, null), date, null);
     }
 
     public static String transform(String format, String date, Date def) {
@@ -382,8 +350,6 @@ public class MDate extends Date {
     }
 
     public static String toHttpHeaderDate(Date date) {
-        synchronized (httpHeaderDateFormat) {
-            return httpHeaderDateFormat.format(date);
-        }
+        return DateFormats.HTTP_HEADER.format(Instant.ofEpochMilli(date.getTime()));
     }
 }
@@ -16,6 +16,7 @@
 package de.mhus.commons.tools;
 
 import de.mhus.commons.M;
+import de.mhus.commons.parser.TemplateCache;
 import lombok.extern.slf4j.Slf4j;
 import org.w3c.dom.CDATASection;
 import org.w3c.dom.Comment;
@@ -36,6 +37,9 @@ import org.xml.sax.SAXException;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
@@ -62,10 +66,12 @@ import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.atomic.LongAdder;
 
 @SuppressWarnings("deprecation")
 @Slf4j
@@ -73,6 +79,18 @@ public class MXml {
 
     private static DocumentBuilderFactory dbf;
     private static TransformerFactory transformerFactory;
+    private static volatile XMLInputFactory xmlInputFactory;
+    // the JDK parser reports CDATA as characters without it
+    private static final String REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+    // builders and transformers are not thread safe but can be reused after reset()
+    private static final ThreadLocal<DocumentBuilder> builders = new ThreadLocal<>();
+    private static final ThreadLocal<Transformer> transformers = new ThreadLocal<>();
+    private static final ThreadLocal<XPath> xpaths = ThreadLocal
+            .withInitial(() -> XPathFactory.newInstance().newXPath());
+    private static final LongAdder xpathCompiles = new LongAdder();
+    private static final TemplateCache<ThreadLocal<XPathExpression>> xpathCache = new TemplateCache<>(
+            MSystem.getEnv(MXml.class, "xpathCacheSize", 500), TemplateCache.CFG_MAX_WEIGHT);
 
     // private static Log log = Log.getLog(MXml.class);
 
@@ -429,7 +447,7 @@ public class MXml {
             return null;
         if (!xml.startsWith("<?xml"))
             xml = "<?xml version=\"1.0\" encoding=\"" + charset + "\"?>" + xml;
-        DocumentBuilder builder = newBuilder();
+        DocumentBuilder builder = getBuilder();
         builder.setEntityResolver(new NoOpEntityResolver());
         return builder.parse(new ByteArrayInputStream(xml.getBytes(charset)));
     }
@@ -497,6 +515,72 @@ public class MXml {
         return dbf.newDocumentBuilder();
     }
 
+    /**
+     * Return the document builder of the current thread, it is reset before. Use it only for a single parse or document
+     * creation, do not keep the reference.
+     *
+     * @return The builder
+     *
+     * @throws ParserConfigurationException
+     */
+    public static DocumentBuilder getBuilder() throws ParserConfigurationException {
+        DocumentBuilder builder = builders.get();
+        if (builder == null) {
+            builder = newBuilder();
+            builders.set(builder);
+        } else
+            builder.reset();
+        return builder;
+    }
+
+    /**
+     * Return the identity transformer of the current thread, it is reset before.
+     *
+     * @return The transformer
+     *
+     * @throws TransformerException
+     */
+    public static Transformer getTransformer() throws TransformerException {
+        Transformer transformer = transformers.get();
+        if (transformer == null) {
+            transformer = getTransformerFactory().newTransformer();
+            transformers.set(transformer);
+        } else
+            transformer.reset();
+        return transformer;
+    }
+
+    private static TransformerFactory getTransformerFactory() {
+        if (transformerFactory == null)
+            transformerFactory = TransformerFactory.newInstance();
+        return transformerFactory;
+    }
+
+    /**
+     * Return a shared StAX factory with the same restrictions as newBuilder(): no DTDs and no external entities. Not
+     * namespace aware, names are returned with prefix.
+     *
+     * @return The factory
+     */
+    public static XMLInputFactory getXmlInputFactory() {
+        if (xmlInputFactory == null) {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+            // CDATA sections are separate events like the separate nodes in a DOM
+            factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+            if (factory.isPropertySupported(REPORT_CDATA))
+                factory.setProperty(REPORT_CDATA, true);
+            xmlInputFactory = factory;
+        }
+        return xmlInputFactory;
+    }
+
+    public static XMLStreamReader createXmlStreamReader(InputStream is) throws XMLStreamException {
+        return getXmlInputFactory().createXMLStreamReader(is);
+    }
+
     /**
      * Create a XML Document from a string.
      *
@@ -524,18 +608,18 @@ public class MXml {
      * @throws IOException
      */
     public static Document loadXml(InputStream is) throws ParserConfigurationException, SAXException, IOException {
-        DocumentBuilder builder = newBuilder();
+        DocumentBuilder builder = getBuilder();
         System.setProperty("jdk.xml.entityExpansionLimit", "1");
         return builder.parse(is);
     }
 
     public static Document loadXml(Reader file) throws ParserConfigurationException, SAXException, IOException {
-        DocumentBuilder builder = newBuilder();
+        DocumentBuilder builder = getBuilder();
         return builder.parse(new InputSource(file));
     }
 
     public static Document loadXml(File f) throws ParserConfigurationException, SAXException, IOException {
-        DocumentBuilder builder = newBuilder();
+        DocumentBuilder builder = getBuilder();
         return builder.parse(f);
     }
 
@@ -557,10 +641,7 @@ public class MXml {
      */
     public static void saveXml(Node e, OutputStream out)
             throws TransformerFactoryConfigurationError, TransformerException {
-        if (transformerFactory == null) {
-            transformerFactory = TransformerFactory.newInstance();
-        }
-        Transformer transformer = transformerFactory.newTransformer();
+        Transformer transformer = getTransformer();
         transformer.setOutputProperty(OutputKeys.INDENT, "yes");
 
         StreamResult result = new StreamResult(out);
@@ -569,7 +650,7 @@ public class MXml {
     }
 
     public static void saveXml(Node e, OutputStream out, boolean intend) throws Exception {
-        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        Transformer transformer = getTransformer();
         if (intend)
             transformer.setOutputProperty(OutputKeys.INDENT, "yes");
 
@@ -593,7 +674,7 @@ public class MXml {
     }
 
     public static void saveXml(Node e, Writer out, boolean intend) throws Exception {
-        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        Transformer transformer = getTransformer();
         transformer.setOutputProperty(OutputKeys.INDENT, intend ? "yes" : "no");
 
         StreamResult result = new StreamResult(out);
@@ -615,12 +696,12 @@ public class MXml {
      * @throws ParserConfigurationException
      */
     public static Document createDocument() throws ParserConfigurationException {
-        DocumentBuilder builder = newBuilder();
+        DocumentBuilder builder = getBuilder();
         return builder.newDocument();
     }
 
     public static Document createDocument(String rootNodeName) throws ParserConfigurationException {
-        DocumentBuilder builder = newBuilder();
+        DocumentBuilder builder = getBuilder();
         Document doc = builder.newDocument();
         Element rootNode = doc.createElement(rootNodeName);
         doc.appendChild(rootNode);
@@ -955,9 +1036,7 @@ public class MXml {
     public static NodeIterator queryXPath(Node root, String query) throws XPathExpressionException {
         if (root == null || query == null)
             return new NodeIterator(null);
-        XPath xpath = XPathFactory.newInstance().newXPath();
-        XPathExpression expr = xpath.compile(query);
-        NodeList result = (NodeList) expr.evaluate(root, XPathConstants.NODESET);
+        NodeList result = (NodeList) getXPathExpression(query).evaluate(root, XPathConstants.NODESET);
         return new NodeIterator(result);
     }
 
@@ -974,12 +1053,68 @@ public class MXml {
     public static ElementIterator queryXPathElements(Node root, String query) throws XPathExpressionException {
         if (root == null || query == null)
             return new ElementIterator(null);
-        XPath xpath = XPathFactory.newInstance().newXPath();
-        XPathExpression expr = xpath.compile(query);
-        NodeList result = (NodeList) expr.evaluate(root, XPathConstants.NODESET);
+        NodeList result = (NodeList) getXPathExpression(query).evaluate(root, XPathConstants.NODESET);
         return new ElementIterator(result);
     }
 
+    /**
+     * Execute a list of XPATH queries against the same node.
+     *
+     * @param root
+     * @param queries
+     *
+     * @return The result for each query in the order of the queries, also for repeated queries, never null
+     *
+     * @throws XPathExpressionException
+     */
+    public static List<NodeIterator> queryXPath(Node root, Collection<String> queries) throws XPathExpressionException {
+        ArrayList<NodeIterator> out = new ArrayList<>(queries.size());
+        for (String query : queries)
+            out.add(queryXPath(root, query));
+        return out;
+    }
+
+    /**
+     * Return the compiled expression for the query. This is a per thread cache: the queries are shared but the
+     * expressions are compiled once for each thread because XPathExpression is not thread safe. Do not use the
+     * expression in other threads.
+     *
+     * @param query
+     *
+     * @return The compiled expression
+     *
+     * @throws XPathExpressionException
+     */
+    public static XPathExpression getXPathExpression(String query) throws XPathExpressionException {
+        ThreadLocal<XPathExpression> local = xpathCache.get(XPathExpression.class, query, q -> new ThreadLocal<>());
+        XPathExpression expr = local.get();
+        if (expr == null) {
+            expr = xpaths.get().compile(query);
+            local.set(expr);
+            xpathCompiles.increment();
+        }
+        return expr;
+    }
+
+    /**
+     * Return the cache of XPATH queries, e.g. to read the statistics. A hit of this cache finds the query but the
+     * expression can still be compiled for the current thread, see getXPathCompileCount().
+     *
+     * @return The cache
+     */
+    public static TemplateCache<?> getXPathCache() {
+        return xpathCache;
+    }
+
+    /**
+     * Return the number of XPATH compilations over all threads.
+     *
+     * @return Number of compiled expressions
+     */
+    public static long getXPathCompileCount() {
+        return xpathCompiles.sum();
+    }
+
     /**
      * Remove white spaces in the text nodes.
      *
@@ -0,0 +1,239 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.tree;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Read optimized store using open addressing in a single array (key at even, value at odd index). Reads are lock free,
+ * writes are synchronized. Removed keys are marked as tombstone and only reclaimed by a rehash into a new array, so a
+ * slot is never reused for another key while readers may still see it.
+ */
+public class CompactPropertiesStore implements IPropertiesStore {
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final Object TOMBSTONE = new Object();
+    private static final Object[] EMPTY = new Object[2];
+    private static final int MIN_CAPACITY = 8;
+
+    private volatile Object[] table = EMPTY;
+    private volatile int size;
+    // size plus tombstones, guarded by this
+    private int used;
+
+    public CompactPropertiesStore() {
+    }
+
+    public CompactPropertiesStore(Map<String, Object> content) {
+        if (content == null || content.isEmpty())
+            return;
+        Object[] tab = new Object[capacityFor(content.size()) * 2];
+        int cnt = 0;
+        for (Map.Entry<String, Object> entry : content.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null)
+                continue;
+            int i = index(tab, entry.getKey());
+            if (tab[i] == null)
+                cnt++;
+            tab[i] = entry.getKey();
+            tab[i + 1] = entry.getValue();
+        }
+        size = cnt;
+        used = cnt;
+        table = tab;
+    }
+
+    @Override
+    public Object get(String key) {
+        Object[] tab = table;
+        int mask = (tab.length >> 1) - 1;
+        int i = spread(key.hashCode()) & mask;
+        while (true) {
+            Object k = SLOT.getAcquire(tab, i << 1);
+            if (k == null)
+                return null;
+            if (k != TOMBSTONE && (k == key || k.equals(key)))
+                return SLOT.getAcquire(tab, (i << 1) + 1);
+            i = (i + 1) & mask;
+        }
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (value == null)
+            return false;
+        Object[] tab = table;
+        for (int i = 0; i < tab.length; i += 2) {
+            Object k = SLOT.getAcquire(tab, i);
+            if (k != null && k != TOMBSTONE && value.equals(SLOT.getAcquire(tab, i + 1)))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void put(String key, Object value) {
+        Object[] tab = table;
+        int i = index(tab, key);
+        if (tab[i] != null) {
+            SLOT.setRelease(tab, i + 1, value);
+            return;
+        }
+        if ((used + 1) * 4 > (tab.length >> 1) * 3) {
+            tab = rehash(size + 1);
+            i = index(tab, key);
+        }
+        tab[i + 1] = value;
+        SLOT.setRelease(tab, i, key);
+        used++;
+        size++;
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        Object[] tab = table;
+        int i = index(tab, key);
+        if (tab[i] == null)
+            return;
+        SLOT.setRelease(tab, i, TOMBSTONE);
+        SLOT.setRelease(tab, i + 1, null);
+        size--;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        table = EMPTY;
+        size = 0;
+        used = 0;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        Object[] tab = table;
+        HashSet<String> out = new HashSet<>();
+        for (int i = 0; i < tab.length; i += 2) {
+            Object k = SLOT.getAcquire(tab, i);
+            if (k != null && k != TOMBSTONE && SLOT.getAcquire(tab, i + 1) != null)
+                out.add((String) k);
+        }
+        return out;
+    }
+
+    @Override
+    public Collection<Object> values() {
+        Object[] tab = table;
+        ArrayList<Object> out = new ArrayList<>(size);
+        for (int i = 0; i < tab.length; i += 2) {
+            Object k = SLOT.getAcquire(tab, i);
+            if (k != null && k != TOMBSTONE) {
+                Object v = SLOT.getAcquire(tab, i + 1);
+                if (v != null)
+                    out.add(v);
+            }
+        }
+        return Collections.unmodifiableList(out);
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        Object[] tab = table;
+        HashSet<Map.Entry<String, Object>> out = new HashSet<>();
+        for (int i = 0; i < tab.length; i += 2) {
+            Object k = SLOT.getAcquire(tab, i);
+            if (k != null && k != TOMBSTONE) {
+                Object v = SLOT.getAcquire(tab, i + 1);
+                if (v != null)
+                    out.add(new AbstractMap.SimpleEntry<>((String) k, v));
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public Properties toProperties() {
+        Properties out = new Properties();
+        for (Map.Entry<String, Object> entry : entrySet())
+            out.put(entry.getKey(), entry.getValue());
+        return out;
+    }
+
+    @Override
+    public IPropertiesStore newInstance() {
+        return new CompactPropertiesStore();
+    }
+
+    /**
+     * Return the slot of the key or the first free slot in the probe sequence. Must be called while holding the lock or
+     * on an unpublished table.
+     */
+    private static int index(Object[] tab, String key) {
+        int mask = (tab.length >> 1) - 1;
+        int i = spread(key.hashCode()) & mask;
+        while (true) {
+            Object k = tab[i << 1];
+            if (k == null || k != TOMBSTONE && (k == key || k.equals(key)))
+                return i << 1;
+            i = (i + 1) & mask;
+        }
+    }
+
+    private Object[] rehash(int expected) {
+        Object[] old = table;
+        Object[] tab = new Object[capacityFor(expected) * 2];
+        for (int i = 0; i < old.length; i += 2) {
+            Object k = old[i];
+            if (k == null || k == TOMBSTONE)
+                continue;
+            int j = index(tab, (String) k);
+            tab[j] = k;
+            tab[j + 1] = old[i + 1];
+        }
+        used = size;
+        table = tab;
+        return tab;
+    }
+
+    private static int capacityFor(int expected) {
+        int cap = MIN_CAPACITY;
+        while (cap * 3 < expected * 4 + 4)
+            cap <<= 1;
+        return cap;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -18,6 +18,7 @@ package de.mhus.commons.tree;
 import de.mhus.commons.errors.MException;
 import de.mhus.commons.errors.NotFoundException;
 import de.mhus.commons.errors.RC;
+import de.mhus.commons.tools.MCast;
 import de.mhus.commons.tools.MFile;
 import de.mhus.commons.tools.MSystem;
 
@@ -26,17 +27,71 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.function.Supplier;
 
 public class DefaultNodeFactory implements ITreeNodeFactory {
 
+    public static final String STORE_HASHTABLE = "hashtable";
+    public static final String STORE_COMPACT = "compact";
+
+    protected static final String CFG_STORE = MSystem.getEnv(DefaultNodeFactory.class, "store", STORE_HASHTABLE);
+    protected static final boolean CFG_LAZY_JSON = MCast
+            .toboolean(MSystem.getEnv(DefaultNodeFactory.class, "lazyJson", "false"), false);
+
     private HashMap<String, ITreeNodeBuilder> registry = new HashMap<>();
+    private Supplier<IPropertiesStore> storeFactory;
 
     public DefaultNodeFactory() {
         registry.put("xml", new XmlTreeNodeBuilder());
-        registry.put("json", new JsonStreamNodeBuilder());
         registry.put("yml", new YamlTreeNodeBuilder());
         registry.put("yaml", new YamlTreeNodeBuilder());
         registry.put("properties", new PropertiesNodeBuilder());
+        setLazyJson(CFG_LAZY_JSON);
+        setStoreFactory(toStoreFactory(CFG_STORE));
+    }
+
+    public boolean isLazyJson() {
+        return registry.get("json") instanceof LazyJsonNodeBuilder;
+    }
+
+    /**
+     * Read json documents as lazy nodes, objects are decoded on first access.
+     *
+     * @param lazy
+     */
+    public void setLazyJson(boolean lazy) {
+        ITreeNodeBuilder builder = lazy ? new LazyJsonNodeBuilder() : new JsonStreamNodeBuilder();
+        if (storeFactory != null)
+            builder.setStoreFactory(storeFactory);
+        registry.put("json", builder);
+    }
+
+    /**
+     * Return the store factory for a type name, 'hashtable' (default) or 'compact'.
+     *
+     * @param type
+     *            Name of the store type
+     *
+     * @return The factory
+     */
+    public static Supplier<IPropertiesStore> toStoreFactory(String type) {
+        if (STORE_COMPACT.equalsIgnoreCase(type))
+            return CompactPropertiesStore::new;
+        return HashtablePropertiesStore::new;
+    }
+
+    public Supplier<IPropertiesStore> getStoreFactory() {
+        return storeFactory;
+    }
+
+    /**
+     * Set the backing store used for created and loaded nodes.
+     *
+     * @param storeFactory
+     */
+    public void setStoreFactory(Supplier<IPropertiesStore> storeFactory) {
+        this.storeFactory = storeFactory == null ? HashtablePropertiesStore::new : storeFactory;
+        registry.values().forEach(b -> b.setStoreFactory(this.storeFactory));
     }
 
     @Override
@@ -79,7 +134,7 @@ public class DefaultNodeFactory implements ITreeNodeFactory {
 
     @Override
     public ITreeNode create() {
-        return new TreeNode();
+        return new TreeNode(storeFactory.get());
     }
 
     @Override
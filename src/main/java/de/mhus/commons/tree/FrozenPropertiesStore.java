@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.tree;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Immutable store with interned keys in flat arrays, ordered by key hash. Lookups are a binary search over the hash
+ * codes. All modifying methods throw an UnsupportedOperationException.
+ */
+public class FrozenPropertiesStore implements IPropertiesStore {
+
+    private final int[] hashes;
+    private final String[] keys;
+    private final Object[] values;
+
+    public FrozenPropertiesStore(Map<String, Object> content) {
+        Map.Entry<String, Object>[] entries = toSortedArray(content);
+        int len = entries.length;
+        hashes = new int[len];
+        keys = new String[len];
+        values = new Object[len];
+        for (int i = 0; i < len; i++) {
+            keys[i] = entries[i].getKey().intern();
+            hashes[i] = keys[i].hashCode();
+            values[i] = entries[i].getValue();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map.Entry<String, Object>[] toSortedArray(Map<String, Object> content) {
+        if (content == null)
+            return new Map.Entry[0];
+        Map.Entry<String, Object>[] entries = content.entrySet().stream()
+                .filter(e -> e.getKey() != null && e.getValue() != null).toArray(Map.Entry[]::new);
+        Arrays.sort(entries, (a, b) -> {
+            int c = Integer.compare(a.getKey().hashCode(), b.getKey().hashCode());
+            return c != 0 ? c : a.getKey().compareTo(b.getKey());
+        });
+        return entries;
+    }
+
+    private int indexOf(String key) {
+        int h = key.hashCode();
+        int lo = 0;
+        int hi = hashes.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (hashes[mid] < h)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        for (int i = lo; i < hashes.length && hashes[i] == h; i++)
+            if (keys[i].equals(key))
+                return i;
+        return -1;
+    }
+
+    @Override
+    public Object get(String key) {
+        int i = indexOf(key);
+        return i < 0 ? null : values[i];
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (Object v : values)
+            if (v.equals(value))
+                return true;
+        return false;
+    }
+
+    @Override
+    public void put(String key, Object value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void remove(String key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(keys)));
+    }
+
+    @Override
+    public Collection<Object> values() {
+        return Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        HashSet<Map.Entry<String, Object>> out = new HashSet<>();
+        for (int i = 0; i < keys.length; i++)
+            out.add(new AbstractMap.SimpleImmutableEntry<>(keys[i], values[i]));
+        return out;
+    }
+
+    @Override
+    public Properties toProperties() {
+        Properties out = new Properties();
+        for (int i = 0; i < keys.length; i++)
+            out.put(keys[i], values[i]);
+        return out;
+    }
+
+    /**
+     * Children of frozen nodes are created detached and mutable.
+     */
+    @Override
+    public IPropertiesStore newInstance() {
+        return new CompactPropertiesStore();
+    }
+
+    String[] getKeys() {
+        return keys;
+    }
+
+    Object[] getValues() {
+        return values;
+    }
+
+}
@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.tree;
+
+import de.mhus.commons.M;
+import de.mhus.commons.errors.TooDeepStructuresException;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Immutable node created by ITreeNode.freeze() or MTree.snapshot(). Frozen nodes have no parent and are interned, equal
+ * sub trees are shared between all snapshots as long as they are referenced. Use the snapshot as a whole and publish a
+ * new one on changes.
+ */
+public class FrozenTreeNode extends TreeNode {
+
+    // signatures are referenced by the frozen objects, entries are removed if no snapshot uses the object any more
+    private static final Map<Signature, WeakReference<Object>> POOL = new WeakHashMap<>();
+
+    private transient Signature signature;
+
+    /**
+     * Only for deserialization, use freeze().
+     */
+    public FrozenTreeNode() {
+        super(new FrozenPropertiesStore(null));
+    }
+
+    private FrozenTreeNode(String name, FrozenPropertiesStore store) {
+        super(store);
+        this.name = name;
+    }
+
+    /**
+     * Return an immutable and shared copy of the node.
+     *
+     * @param node
+     *            The source node
+     *
+     * @return The frozen node
+     */
+    public static FrozenTreeNode freeze(ITreeNode node) {
+        if (node == null)
+            return null;
+        return freeze(node, node.getName(), 0);
+    }
+
+    private static FrozenTreeNode freeze(ITreeNode node, String name, int level) {
+        if (level > M.MAX_DEPTH_LEVEL)
+            throw new TooDeepStructuresException();
+        if (node instanceof FrozenTreeNode && Objects.equals(name, node.getName()))
+            return (FrozenTreeNode) node;
+
+        HashMap<String, Object> content = new HashMap<>();
+        for (Map.Entry<String, Object> entry : node.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof ITreeNode)
+                value = freeze((ITreeNode) value, entry.getKey(), level + 1);
+            else if (value instanceof TreeNodeList)
+                value = freeze((TreeNodeList) value, entry.getKey(), level + 1);
+            content.put(entry.getKey(), value);
+        }
+        FrozenPropertiesStore store = new FrozenPropertiesStore(content);
+        Signature signature = new Signature(name, store.getKeys(), store.getValues());
+        return (FrozenTreeNode) intern(signature, () -> new FrozenTreeNode(name, store));
+    }
+
+    private static FrozenTreeNodeList freeze(TreeNodeList list, String name, int level) {
+        if (list instanceof FrozenTreeNodeList && Objects.equals(name, list.getName()))
+            return (FrozenTreeNodeList) list;
+        List<ITreeNode> nodes = new ArrayList<>(list.size());
+        for (ITreeNode item : list)
+            nodes.add(freeze(item, name, level));
+        Signature signature = new Signature(name, null, nodes.toArray());
+        return (FrozenTreeNodeList) intern(signature, () -> new FrozenTreeNodeList(name, nodes));
+    }
+
+    private static Object intern(Signature signature, Supplier<Object> creator) {
+        synchronized (POOL) {
+            WeakReference<Object> ref = POOL.get(signature);
+            Object current = ref == null ? null : ref.get();
+            if (current != null)
+                return current;
+            Object created = creator.get();
+            if (created instanceof FrozenTreeNode)
+                ((FrozenTreeNode) created).signature = signature;
+            else
+                ((FrozenTreeNodeList) created).signature = signature;
+            POOL.put(signature, new WeakReference<>(created));
+            return created;
+        }
+    }
+
+    /**
+     * Return the number of currently shared frozen nodes and arrays.
+     *
+     * @return Size of the pool
+     */
+    public static int getPoolSize() {
+        synchronized (POOL) {
+            return POOL.size();
+        }
+    }
+
+    @Override
+    public ITreeNode freeze() {
+        return this;
+    }
+
+    @Override
+    public boolean isEditable() {
+        return false;
+    }
+
+    @Override
+    public TreeNodeList getList(String key) {
+        if (isObject(key))
+            return new FrozenTreeNodeList(key, Arrays.asList(getObject(key).get()));
+        return super.getList(key);
+    }
+
+    @Override
+    public void setObject(String key, ITreeNode object) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ITreeNode setObject(String key, TreeNodeSerializable object) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addObject(String key, ITreeNode object) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ITreeNode createObject(String key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public TreeNodeList createArray(String key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected void putMapToNode(Map<?, ?> m, int level) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        super.readExternal(in);
+        HashMap<String, Object> content = new HashMap<>();
+        for (Map.Entry<String, Object> entry : properties.entrySet())
+            content.put(entry.getKey(), entry.getValue());
+        properties = new FrozenPropertiesStore(content);
+    }
+
+    /**
+     * Content identity of a frozen object. Children are already interned and compared by identity.
+     */
+    static final class Signature {
+
+        private final String name;
+        private final String[] keys;
+        private final Object[] values;
+        private final int hash;
+
+        Signature(String name, String[] keys, Object[] values) {
+            this.name = name;
+            this.keys = keys;
+            this.values = values;
+            int h = Objects.hashCode(name);
+            h = 31 * h + Arrays.hashCode(keys);
+            for (Object value : values)
+                h = 31 * h + (isShared(value) ? System.identityHashCode(value) : value.hashCode());
+            this.hash = h;
+        }
+
+        private static boolean isShared(Object value) {
+            return value instanceof ITreeNode || value instanceof TreeNodeList;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Signature))
+                return false;
+            Signature o = (Signature) obj;
+            if (hash != o.hash || !Objects.equals(name, o.name) || !Arrays.equals(keys, o.keys)
+                    || values.length != o.values.length)
+                return false;
+            for (int i = 0; i < values.length; i++) {
+                Object a = values[i];
+                Object b = o.values[i];
+                if (a == b)
+                    continue;
+                if (isShared(a) || isShared(b) || a.getClass() != b.getClass() || !a.equals(b))
+                    return false;
+            }
+            return true;
+        }
+    }
+}
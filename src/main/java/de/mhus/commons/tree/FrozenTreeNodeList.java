@@ -0,0 +1,274 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.tree;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Immutable array of frozen nodes. The list has no parent, the elements are not attached to it and can be shared
+ * between snapshots.
+ */
+public class FrozenTreeNodeList extends TreeNodeList {
+
+    private static final long serialVersionUID = 1L;
+
+    transient FrozenTreeNode.Signature signature;
+
+    public FrozenTreeNodeList(String name, List<? extends ITreeNode> nodes) {
+        super(name, null);
+        // fill without attaching, the elements are shared
+        ListIterator<ITreeNode> iter = super.listIterator(0);
+        for (ITreeNode node : nodes)
+            iter.add(node);
+    }
+
+    @Override
+    public ListIterator<ITreeNode> listIterator(int index) {
+        return new ReadOnlyListIterator(super.listIterator(index));
+    }
+
+    @Override
+    public Iterator<ITreeNode> descendingIterator() {
+        Iterator<ITreeNode> iter = super.descendingIterator();
+        return new Iterator<ITreeNode>() {
+            @Override
+            public boolean hasNext() {
+                return iter.hasNext();
+            }
+
+            @Override
+            public ITreeNode next() {
+                return iter.next();
+            }
+        };
+    }
+
+    @Override
+    public boolean add(ITreeNode e) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void add(int index, ITreeNode node) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean add(IProperties e) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ITreeNode add(TreeNodeSerializable object) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends ITreeNode> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends ITreeNode> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addFirst(ITreeNode e) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addLast(ITreeNode e) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ITreeNode set(int index, ITreeNode e) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ITreeNode createObject() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ITreeNode remove(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ITreeNode remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ITreeNode removeFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ITreeNode removeLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeFirstOccurrence(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeLastOccurrence(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ITreeNode poll() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ITreeNode pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ITreeNode pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ITreeNode pop() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void push(ITreeNode e) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean offer(ITreeNode e) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean offerFirst(ITreeNode e) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean offerLast(ITreeNode e) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super ITreeNode> filter) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<ITreeNode> operator) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void sort(Comparator<? super ITreeNode> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    private static class ReadOnlyListIterator implements ListIterator<ITreeNode> {
+
+        private final ListIterator<ITreeNode> iter;
+
+        ReadOnlyListIterator(ListIterator<ITreeNode> iter) {
+            this.iter = iter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iter.hasNext();
+        }
+
+        @Override
+        public ITreeNode next() {
+            return iter.next();
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return iter.hasPrevious();
+        }
+
+        @Override
+        public ITreeNode previous() {
+            return iter.previous();
+        }
+
+        @Override
+        public int nextIndex() {
+            return iter.nextIndex();
+        }
+
+        @Override
+        public int previousIndex() {
+            return iter.previousIndex();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void set(ITreeNode e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(ITreeNode e) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
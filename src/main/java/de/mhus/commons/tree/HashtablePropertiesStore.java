@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.tree;
+
+import de.mhus.commons.util.SetCast;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Default store, backed by a synchronized java Properties object.
+ */
+public class HashtablePropertiesStore implements IPropertiesStore {
+
+    private final Properties properties;
+
+    public HashtablePropertiesStore() {
+        this(new Properties());
+    }
+
+    public HashtablePropertiesStore(Properties properties) {
+        this.properties = properties == null ? new Properties() : properties;
+    }
+
+    @Override
+    public Object get(String key) {
+        return properties.get(key);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return properties.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return properties.containsValue(value);
+    }
+
+    @Override
+    public void put(String key, Object value) {
+        properties.put(key, value);
+    }
+
+    @Override
+    public void remove(String key) {
+        properties.remove(key);
+    }
+
+    @Override
+    public int size() {
+        return properties.size();
+    }
+
+    @Override
+    public void clear() {
+        properties.clear();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new SetCast<Object, String>(properties.keySet());
+    }
+
+    @Override
+    public Collection<Object> values() {
+        return properties.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        HashMap<String, Object> wrapper = new HashMap<>();
+        for (Map.Entry<Object, Object> entry : properties.entrySet())
+            wrapper.put(String.valueOf(entry.getKey()), entry.getValue());
+        return wrapper.entrySet();
+    }
+
+    @Override
+    public Properties toProperties() {
+        return properties;
+    }
+
+    @Override
+    public IPropertiesStore newInstance() {
+        return new HashtablePropertiesStore();
+    }
+
+}
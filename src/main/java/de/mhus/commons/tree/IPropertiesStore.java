@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.tree;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Backing storage of a MProperties or TreeNode object. Keys and values are never null.
+ */
+public interface IPropertiesStore {
+
+    Object get(String key);
+
+    boolean containsKey(String key);
+
+    boolean containsValue(Object value);
+
+    void put(String key, Object value);
+
+    void remove(String key);
+
+    int size();
+
+    void clear();
+
+    Set<String> keySet();
+
+    Collection<Object> values();
+
+    /**
+     * Return a detached copy of the entries.
+     *
+     * @return The entries
+     */
+    Set<Map.Entry<String, Object>> entrySet();
+
+    /**
+     * Return the content as java Properties object, used for serialization.
+     *
+     * @return Properties with the same content
+     */
+    Properties toProperties();
+
+    /**
+     * Create a new and empty store of the same kind.
+     *
+     * @return The new store
+     */
+    IPropertiesStore newInstance();
+
+}
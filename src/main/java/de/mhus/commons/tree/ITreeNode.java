@@ -117,6 +117,16 @@ public interface ITreeNode extends IProperties {
 
     TreeNodeList createArray(String key);
 
+    /**
+     * Return an immutable snapshot of the node and all sub nodes. Equal sub trees are shared between snapshots. Frozen
+     * nodes have no parent. If the node is already frozen it returns itself.
+     *
+     * @return The frozen node
+     */
+    default ITreeNode freeze() {
+        return FrozenTreeNode.freeze(this);
+    }
+
     // INode cloneObject(INode node);
 
     default <T extends TreeNodeSerializable> T load(T fillIn) {
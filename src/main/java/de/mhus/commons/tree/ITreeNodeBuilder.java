@@ -27,13 +27,48 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
 
 public abstract class ITreeNodeBuilder {
 
+    private Supplier<IPropertiesStore> storeFactory = HashtablePropertiesStore::new;
+
     public abstract ITreeNode read(InputStream is) throws MException;
 
     public abstract void write(ITreeNode node, OutputStream os) throws MException;
 
+    /**
+     * Parse the stream and emit the structure as events to the visitor. The default implementation creates the whole
+     * node first, builders overwrite this to stream the events while parsing.
+     *
+     * @param is
+     * @param visitor
+     *
+     * @throws MException
+     */
+    public void read(InputStream is, ITreeNodeVisitor visitor) throws MException {
+        MTree.visit(read(is), visitor);
+    }
+
+    /**
+     * Create only the sub trees of the stream matching one of the paths.
+     *
+     * @param is
+     * @param paths
+     *            Paths to the sub trees, see TreeNodePathFilter
+     *
+     * @return List of matching sub trees
+     *
+     * @throws MException
+     */
+    public List<ITreeNode> read(InputStream is, String... paths) throws MException {
+        ArrayList<ITreeNode> out = new ArrayList<>();
+        read(is, new TreeNodePathFilter(out::add, paths));
+        return out;
+    }
+
     public ITreeNode readFromFile(File file) throws MException {
         try (FileInputStream is = new FileInputStream(file)) {
             return read(is);
@@ -59,4 +94,22 @@ public abstract class ITreeNodeBuilder {
         write(node, os);
         return MString.byteToString(os.toByteArray());
     }
+
+    public Supplier<IPropertiesStore> getStoreFactory() {
+        return storeFactory;
+    }
+
+    /**
+     * Set the factory for the backing store of created root nodes. Child nodes will use the same kind of store as the
+     * root node.
+     *
+     * @param storeFactory
+     */
+    public void setStoreFactory(Supplier<IPropertiesStore> storeFactory) {
+        this.storeFactory = storeFactory == null ? HashtablePropertiesStore::new : storeFactory;
+    }
+
+    protected TreeNode createNode() {
+        return new TreeNode(storeFactory.get());
+    }
 }
@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.tree;
+
+/**
+ * Event based access to a node structure. The events are emitted by ITreeNodeBuilder.read(InputStream,
+ * ITreeNodeVisitor) while parsing, without creating the node objects. The name is the key of the entry in the parent
+ * object or null for entries of an array.
+ */
+public interface ITreeNodeVisitor {
+
+    void startObject(String name);
+
+    void endObject();
+
+    void startArray(String name);
+
+    void endArray();
+
+    /**
+     * A simple value.
+     *
+     * @param name
+     *            The key or null if the value is an entry of an array
+     * @param value
+     *            The value, can be null
+     */
+    void value(String name, Object value);
+
+}
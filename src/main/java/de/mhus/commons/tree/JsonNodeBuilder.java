@@ -47,7 +47,7 @@ public class JsonNodeBuilder extends ITreeNodeBuilder {
     }
 
     public ITreeNode fromJson(JsonNode docJ) throws MException {
-        TreeNode node = new TreeNode();
+        TreeNode node = createNode();
         if (docJ.isArray()) {
             TreeNodeList array = node.createArray(ITreeNode.NAMELESS_VALUE);
             for (JsonNode itemJ : docJ) {
@@ -54,11 +54,11 @@ public class JsonStreamNodeBuilder extends ITreeNodeBuilder {
                     if (root == null) {
                         // START ARRAY OR OBJECT
                         if (token == JsonToken.START_ARRAY) {
-                            root = new TreeNode();
+                            root = createNode();
                             node = root;
                             array = node.createArray(ITreeNode.NAMELESS_VALUE);
                         } else if (token == JsonToken.START_OBJECT) {
-                            root = new TreeNode();
+                            root = createNode();
                             node = root;
                             array = null;
                         }
@@ -128,13 +128,64 @@ public class JsonStreamNodeBuilder extends ITreeNodeBuilder {
             }
 
             if (root == null)
-                root = new TreeNode();
+                root = createNode();
             return root;
         } catch (IOException e) {
             throw new MException(RC.STATUS.ERROR, e);
         }
     }
 
+    @Override
+    public void read(InputStream is, ITreeNodeVisitor visitor) throws MException {
+        try (JsonParser jsonParser = factory.createParser(is)) {
+            while (true) {
+                JsonToken token = jsonParser.nextToken();
+                if (token == null)
+                    break;
+                // current name is null in arrays
+                switch (token) {
+                case START_OBJECT:
+                    visitor.startObject(jsonParser.currentName());
+                    break;
+                case END_OBJECT:
+                    visitor.endObject();
+                    break;
+                case START_ARRAY:
+                    visitor.startArray(jsonParser.currentName());
+                    break;
+                case END_ARRAY:
+                    visitor.endArray();
+                    break;
+                case VALUE_STRING:
+                    visitor.value(jsonParser.currentName(), jsonParser.getValueAsString());
+                    break;
+                case VALUE_TRUE:
+                    visitor.value(jsonParser.currentName(), Boolean.TRUE);
+                    break;
+                case VALUE_FALSE:
+                    visitor.value(jsonParser.currentName(), Boolean.FALSE);
+                    break;
+                case VALUE_NUMBER_INT:
+                    if (jsonParser.getNumberType() == JsonParser.NumberType.BIG_INTEGER)
+                        visitor.value(jsonParser.currentName(), jsonParser.getBigIntegerValue());
+                    else
+                        visitor.value(jsonParser.currentName(), jsonParser.getLongValue());
+                    break;
+                case VALUE_NUMBER_FLOAT:
+                    visitor.value(jsonParser.currentName(), jsonParser.getDoubleValue());
+                    break;
+                case VALUE_NULL:
+                    visitor.value(jsonParser.currentName(), null);
+                    break;
+                default:
+                    // field names and embedded objects
+                }
+            }
+        } catch (IOException e) {
+            throw new MException(RC.STATUS.ERROR, e);
+        }
+    }
+
     @Override
     public void write(ITreeNode node, OutputStream os) throws MException {
         try {
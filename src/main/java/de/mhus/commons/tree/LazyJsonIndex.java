@@ -0,0 +1,347 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.tree;
+
+import de.mhus.commons.errors.MException;
+import de.mhus.commons.errors.RC;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Offset table of a json document. The document is scanned once, every object, array, key and value is a token with the
+ * kind, the byte range and the index of the token following the value. Values are decoded on demand.
+ */
+class LazyJsonIndex {
+
+    static final byte OBJECT = 1;
+    static final byte ARRAY = 2;
+    static final byte STRING = 3;
+    // string with escape sequences
+    static final byte ESCAPED = 4;
+    static final byte INTEGER = 5;
+    static final byte FLOAT = 6;
+    static final byte TRUE = 7;
+    static final byte FALSE = 8;
+    static final byte NULL = 9;
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private final Supplier<IPropertiesStore> storeFactory;
+    private byte[] kinds = new byte[64];
+    private int[] starts = new int[64];
+    private int[] ends = new int[64];
+    // for containers the index of the token after the last member, for others index + 1
+    private int[] nexts = new int[64];
+    private int count;
+
+    LazyJsonIndex(ByteBuffer buffer, Supplier<IPropertiesStore> storeFactory) throws MException {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+        this.storeFactory = storeFactory;
+        index();
+    }
+
+    private void index() throws MException {
+        int pos = skipWhitespace(0);
+        if (pos >= limit)
+            return;
+        byte c = at(pos);
+        if (c != '{' && c != '[')
+            throw new MException(RC.STATUS.ERROR, "json must start with an object or array", pos);
+        int[] stack = new int[16];
+        int sp = 0;
+        pos = value(pos);
+        stack[sp++] = 0;
+        while (sp > 0) {
+            int container = stack[sp - 1];
+            boolean object = kinds[container] == OBJECT;
+            pos = skipWhitespace(pos);
+            c = at(pos);
+            if (c == (object ? '}' : ']')) {
+                ends[container] = pos + 1;
+                nexts[container] = count;
+                sp--;
+                pos++;
+                continue;
+            }
+            if (count > container + 1) {
+                if (c != ',')
+                    throw new MException(RC.STATUS.ERROR, "unexpected character in json", (char) c, pos);
+                pos = skipWhitespace(pos + 1);
+            }
+            if (object) {
+                if (at(pos) != '"')
+                    throw new MException(RC.STATUS.ERROR, "key expected in json", pos);
+                pos = skipWhitespace(string(pos));
+                if (at(pos) != ':')
+                    throw new MException(RC.STATUS.ERROR, "colon expected in json", pos);
+                pos = skipWhitespace(pos + 1);
+            }
+            int token = count;
+            pos = value(pos);
+            if (kinds[token] == OBJECT || kinds[token] == ARRAY) {
+                if (sp == stack.length)
+                    stack = Arrays.copyOf(stack, sp * 2);
+                stack[sp++] = token;
+            }
+        }
+        if (skipWhitespace(pos) < limit)
+            throw new MException(RC.STATUS.ERROR, "unexpected content after json", pos);
+    }
+
+    // add the token at pos, containers are completed by index()
+    private int value(int pos) throws MException {
+        byte c = at(pos);
+        switch (c) {
+        case '{':
+            add(OBJECT, pos, pos);
+            return pos + 1;
+        case '[':
+            add(ARRAY, pos, pos);
+            return pos + 1;
+        case '"':
+            return string(pos);
+        case 't':
+            return literal(pos, "true", TRUE);
+        case 'f':
+            return literal(pos, "false", FALSE);
+        case 'n':
+            return literal(pos, "null", NULL);
+        default:
+            return number(pos);
+        }
+    }
+
+    private int string(int pos) throws MException {
+        boolean escaped = false;
+        int i = pos + 1;
+        while (true) {
+            byte c = at(i);
+            if (c == '"')
+                break;
+            if (c == '\\') {
+                escaped = true;
+                i++;
+            }
+            i++;
+        }
+        add(escaped ? ESCAPED : STRING, pos + 1, i);
+        return i + 1;
+    }
+
+    private int literal(int pos, String literal, byte kind) throws MException {
+        for (int i = 0; i < literal.length(); i++)
+            if (at(pos + i) != literal.charAt(i))
+                throw new MException(RC.STATUS.ERROR, "unexpected character in json", pos + i);
+        add(kind, pos, pos + literal.length());
+        return pos + literal.length();
+    }
+
+    // -?(0|[1-9][0-9]*)(.[0-9]+)?([eE][+-]?[0-9]+)?, integers must fit into a long like in the stream builder
+    private int number(int pos) throws MException {
+        byte kind = INTEGER;
+        int i = pos;
+        boolean negative = i < limit && buffer.get(i) == '-';
+        if (negative)
+            i++;
+        if (i < limit && buffer.get(i) == '0')
+            i++;
+        else {
+            int start = i;
+            i = digits(i);
+            if (i == start)
+                throw new MException(RC.STATUS.ERROR, "invalid number in json", pos);
+        }
+        int integerEnd = i;
+        if (i < limit && buffer.get(i) == '.') {
+            kind = FLOAT;
+            int start = ++i;
+            i = digits(i);
+            if (i == start)
+                throw new MException(RC.STATUS.ERROR, "invalid number in json", pos);
+        }
+        if (i < limit && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+            kind = FLOAT;
+            i++;
+            if (i < limit && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+                i++;
+            int start = i;
+            i = digits(i);
+            if (i == start)
+                throw new MException(RC.STATUS.ERROR, "invalid number in json", pos);
+        }
+        if (kind == INTEGER && integerEnd - pos > 18 && parseLong(pos, integerEnd) == null)
+            throw new MException(RC.STATUS.ERROR, "integer out of range in json", pos);
+        add(kind, pos, i);
+        return i;
+    }
+
+    private int digits(int pos) {
+        while (pos < limit) {
+            byte c = buffer.get(pos);
+            if (c < '0' || c > '9')
+                break;
+            pos++;
+        }
+        return pos;
+    }
+
+    // parse a validated integer, null if it does not fit into a long
+    private Long parseLong(int start, int end) {
+        boolean negative = buffer.get(start) == '-';
+        if (negative)
+            start++;
+        // accumulate negative to reach MIN_VALUE
+        long min = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multmin = min / 10;
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (result < multmin)
+                return null;
+            result *= 10;
+            if (result < min + digit)
+                return null;
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private void add(byte kind, int start, int end) {
+        if (count == kinds.length) {
+            int len = count * 2;
+            kinds = Arrays.copyOf(kinds, len);
+            starts = Arrays.copyOf(starts, len);
+            ends = Arrays.copyOf(ends, len);
+            nexts = Arrays.copyOf(nexts, len);
+        }
+        kinds[count] = kind;
+        starts[count] = start;
+        ends[count] = end;
+        nexts[count] = count + 1;
+        count++;
+    }
+
+    private byte at(int pos) throws MException {
+        if (pos >= limit)
+            throw new MException(RC.STATUS.ERROR, "unexpected end of json", pos);
+        return buffer.get(pos);
+    }
+
+    private int skipWhitespace(int pos) {
+        while (pos < limit) {
+            byte c = buffer.get(pos);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+                break;
+            pos++;
+        }
+        return pos;
+    }
+
+    int size() {
+        return count;
+    }
+
+    byte kind(int token) {
+        return kinds[token];
+    }
+
+    int next(int token) {
+        return nexts[token];
+    }
+
+    Supplier<IPropertiesStore> getStoreFactory() {
+        return storeFactory;
+    }
+
+    /**
+     * Decode a scalar token.
+     *
+     * @param token
+     *
+     * @return The value or null for json null
+     */
+    Object decode(int token) {
+        switch (kinds[token]) {
+        case STRING:
+            return text(token);
+        case ESCAPED:
+            return unescape(text(token));
+        case INTEGER:
+            return parseLong(starts[token], ends[token]);
+        case FLOAT:
+            return Double.parseDouble(text(token));
+        case TRUE:
+            return Boolean.TRUE;
+        case FALSE:
+            return Boolean.FALSE;
+        default:
+            return null;
+        }
+    }
+
+    String decodeKey(int token) {
+        String key = text(token);
+        return kinds[token] == ESCAPED ? unescape(key) : key;
+    }
+
+    private String text(int token) {
+        byte[] bytes = new byte[ends[token] - starts[token]];
+        buffer.get(starts[token], bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String unescape(String in) {
+        StringBuilder out = new StringBuilder(in.length());
+        for (int i = 0; i < in.length(); i++) {
+            char c = in.charAt(i);
+            if (c != '\\' || i + 1 >= in.length()) {
+                out.append(c);
+                continue;
+            }
+            c = in.charAt(++i);
+            switch (c) {
+            case 'n':
+                out.append('\n');
+                break;
+            case 'r':
+                out.append('\r');
+                break;
+            case 't':
+                out.append('\t');
+                break;
+            case 'b':
+                out.append('\b');
+                break;
+            case 'f':
+                out.append('\f');
+                break;
+            case 'u':
+                if (i + 4 < in.length()) {
+                    out.append((char) Integer.parseInt(in.substring(i + 1, i + 5), 16));
+                    i += 4;
+                }
+                break;
+            default:
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
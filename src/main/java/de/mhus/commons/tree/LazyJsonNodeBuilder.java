@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.tree;
+
+import de.mhus.commons.errors.MException;
+import de.mhus.commons.errors.RC;
+import de.mhus.commons.tools.MSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Json builder creating lazy nodes. The document is indexed in one pass and objects are only decoded if they are
+ * accessed. Files larger than the map threshold are memory mapped instead of being loaded into the heap.
+ */
+public class LazyJsonNodeBuilder extends ITreeNodeBuilder {
+
+    protected static final long CFG_MAP_THRESHOLD = MSystem.getEnv(LazyJsonNodeBuilder.class, "mapThreshold",
+            1024L * 1024L);
+
+    private long mapThreshold = CFG_MAP_THRESHOLD;
+    private JsonStreamNodeBuilder streamBuilder = new JsonStreamNodeBuilder();
+
+    @Override
+    public ITreeNode read(InputStream is) throws MException {
+        try {
+            return read(ByteBuffer.wrap(is.readAllBytes()));
+        } catch (IOException e) {
+            throw new MException(RC.STATUS.ERROR, e);
+        }
+    }
+
+    /**
+     * Read the file, the offsets of the index are int values and the content is limited to 2 GB.
+     */
+    @Override
+    public ITreeNode readFromFile(File file) throws MException {
+        if (file.length() > Integer.MAX_VALUE)
+            throw new MException(RC.STATUS.ERROR, "json file is larger than 2 GB", file, file.length());
+        if (mapThreshold < 0 || file.length() < mapThreshold)
+            return super.readFromFile(file);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new MException(RC.STATUS.ERROR, file, e);
+        }
+    }
+
+    /**
+     * Index the buffer and return the lazy root node.
+     *
+     * @param buffer
+     *            Json content in UTF-8
+     *
+     * @return The root node
+     *
+     * @throws MException
+     */
+    public ITreeNode read(ByteBuffer buffer) throws MException {
+        LazyJsonIndex index = new LazyJsonIndex(buffer, getStoreFactory());
+        if (index.size() == 0)
+            return createNode();
+        return LazyJsonPropertiesStore.createNode(index, 0, null, null, null);
+    }
+
+    @Override
+    public void read(InputStream is, ITreeNodeVisitor visitor) throws MException {
+        streamBuilder.read(is, visitor);
+    }
+
+    @Override
+    public void write(ITreeNode node, OutputStream os) throws MException {
+        streamBuilder.write(node, os);
+    }
+
+    public long getMapThreshold() {
+        return mapThreshold;
+    }
+
+    /**
+     * Set the minimum file size to memory map the file, -1 to disable mapping.
+     *
+     * @param mapThreshold
+     */
+    public void setMapThreshold(long mapThreshold) {
+        this.mapThreshold = mapThreshold;
+    }
+
+    public boolean isPretty() {
+        return streamBuilder.isPretty();
+    }
+
+    public void setPretty(boolean pretty) {
+        streamBuilder.setPretty(pretty);
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.tree;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Store of a node backed by a token of a LazyJsonIndex. The members of the object are decoded into a regular store on
+ * first access, child objects and arrays are created as lazy nodes again. A root array is presented as array with the
+ * name NAMELESS_VALUE.
+ */
+public class LazyJsonPropertiesStore implements IPropertiesStore {
+
+    private final LazyJsonIndex index;
+    private final int token;
+    private TreeNode owner;
+    private volatile IPropertiesStore content;
+
+    private LazyJsonPropertiesStore(LazyJsonIndex index, int token) {
+        this.index = index;
+        this.token = token;
+    }
+
+    static TreeNode createNode(LazyJsonIndex index, int token, String name, TreeNode parent, TreeNodeList array) {
+        LazyJsonPropertiesStore store = new LazyJsonPropertiesStore(index, token);
+        TreeNode node = new TreeNode(store);
+        node.name = name;
+        node.parent = parent;
+        node.array = array;
+        store.owner = node;
+        return node;
+    }
+
+    /**
+     * Return true if the content is already decoded.
+     *
+     * @return true if decoded
+     */
+    public boolean isLoaded() {
+        return content != null;
+    }
+
+    private IPropertiesStore content() {
+        IPropertiesStore c = content;
+        if (c != null)
+            return c;
+        synchronized (this) {
+            if (content == null) {
+                IPropertiesStore store = index.getStoreFactory().get();
+                if (index.kind(token) == LazyJsonIndex.ARRAY)
+                    store.put(ITreeNode.NAMELESS_VALUE, createArray(ITreeNode.NAMELESS_VALUE, token));
+                else
+                    load(store);
+                content = store;
+            }
+            return content;
+        }
+    }
+
+    private void load(IPropertiesStore store) {
+        int end = index.next(token);
+        int t = token + 1;
+        while (t < end) {
+            String key = index.decodeKey(t);
+            int value = t + 1;
+            Object obj = toValue(key, value);
+            if (obj != null)
+                store.put(key, obj);
+            t = index.next(value);
+        }
+    }
+
+    private Object toValue(String key, int value) {
+        switch (index.kind(value)) {
+        case LazyJsonIndex.OBJECT:
+            return createNode(index, value, key, owner, null);
+        case LazyJsonIndex.ARRAY:
+            return createArray(key, value);
+        default:
+            return index.decode(value);
+        }
+    }
+
+    private TreeNodeList createArray(String key, int array) {
+        TreeNodeList list = new TreeNodeList(key, owner);
+        fill(list, key, array);
+        return list;
+    }
+
+    private void fill(TreeNodeList list, String key, int array) {
+        int end = index.next(array);
+        int t = array + 1;
+        while (t < end) {
+            switch (index.kind(t)) {
+            case LazyJsonIndex.OBJECT:
+                list.add(createNode(index, t, key, owner, list));
+                break;
+            case LazyJsonIndex.ARRAY:
+                ITreeNode wrapper = list.createObject();
+                fill(wrapper.createArray(ITreeNode.NAMELESS_VALUE), ITreeNode.NAMELESS_VALUE, t);
+                break;
+            default:
+                Object obj = index.decode(t);
+                if (obj != null)
+                    list.createObject().put(ITreeNode.NAMELESS_VALUE, obj);
+            }
+            t = index.next(t);
+        }
+    }
+
+    @Override
+    public Object get(String key) {
+        return content().get(key);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return content().containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return content().containsValue(value);
+    }
+
+    @Override
+    public void put(String key, Object value) {
+        content().put(key, value);
+    }
+
+    @Override
+    public void remove(String key) {
+        content().remove(key);
+    }
+
+    @Override
+    public int size() {
+        return content().size();
+    }
+
+    @Override
+    public void clear() {
+        content().clear();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return content().keySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        return content().values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return content().entrySet();
+    }
+
+    @Override
+    public Properties toProperties() {
+        return content().toProperties();
+    }
+
+    @Override
+    public IPropertiesStore newInstance() {
+        return index.getStoreFactory().get();
+    }
+
+}
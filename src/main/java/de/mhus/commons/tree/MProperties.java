@@ -17,7 +17,6 @@ package de.mhus.commons.tree;
 
 import de.mhus.commons.M;
 import de.mhus.commons.tools.MSystem;
-import de.mhus.commons.util.SetCast;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.BufferedWriter;
@@ -38,7 +37,6 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.Dictionary;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Properties;
@@ -50,12 +48,12 @@ public class MProperties extends AbstractProperties implements Externalizable {
 
     private static final long serialVersionUID = 1L;
 
-    protected Properties properties = null;
+    protected IPropertiesStore properties = null;
     private static final char[] hexDigit = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E',
             'F' };
 
     public MProperties() {
-        this(new Properties());
+        this(new HashtablePropertiesStore());
     }
 
     // use IProperties.to() instead
@@ -70,7 +68,7 @@ public class MProperties extends AbstractProperties implements Externalizable {
     // }
 
     public MProperties(Dictionary<?, ?> config) {
-        this.properties = new Properties();
+        this.properties = new HashtablePropertiesStore();
         for (Enumeration<?> enu = config.keys(); enu.hasMoreElements();) {
             Object next = enu.nextElement();
             this.properties.put(String.valueOf(next), config.get(next));
@@ -78,7 +76,7 @@ public class MProperties extends AbstractProperties implements Externalizable {
     }
 
     public MProperties(Map<?, ?> in) {
-        this.properties = new Properties();
+        this.properties = new HashtablePropertiesStore();
         if (in != null)
             for (Map.Entry<?, ?> e : in.entrySet())
                 if (e.getKey() != null && e.getValue() != null)
@@ -86,7 +84,7 @@ public class MProperties extends AbstractProperties implements Externalizable {
     }
 
     public MProperties(IReadonly in) {
-        this.properties = new Properties();
+        this.properties = new HashtablePropertiesStore();
         if (in != null)
             for (Map.Entry<?, ?> e : in.entrySet())
                 if (e.getKey() != null && e.getValue() != null)
@@ -95,7 +93,7 @@ public class MProperties extends AbstractProperties implements Externalizable {
 
     // need this constructor to avoid ambiguous references for IProperties
     public MProperties(IProperties in) {
-        this.properties = new Properties();
+        this.properties = new HashtablePropertiesStore();
         if (in != null)
             for (Map.Entry<?, ?> e : in.entrySet())
                 if (e.getKey() != null && e.getValue() != null)
@@ -103,9 +101,13 @@ public class MProperties extends AbstractProperties implements Externalizable {
     }
 
     public MProperties(Properties properties) {
-        this.properties = properties;
-        if (properties == null)
-            this.properties = new Properties();
+        this.properties = new HashtablePropertiesStore(properties);
+    }
+
+    public MProperties(IPropertiesStore store) {
+        this.properties = store;
+        if (store == null)
+            this.properties = new HashtablePropertiesStore();
     }
 
     @Override
@@ -138,17 +140,17 @@ public class MProperties extends AbstractProperties implements Externalizable {
 
     @Override
     public Set<String> keys() {
-        return new SetCast<Object, String>(properties.keySet());
+        return properties.keySet();
     }
 
     @Override
     public void writeExternal(ObjectOutput out) throws IOException {
-        out.writeObject(properties);
+        out.writeObject(properties.toProperties());
     }
 
     @Override
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-        properties = (Properties) in.readObject();
+        properties = new HashtablePropertiesStore((Properties) in.readObject());
     }
 
     @Override
@@ -163,10 +165,7 @@ public class MProperties extends AbstractProperties implements Externalizable {
 
     @Override
     public Set<Map.Entry<String, Object>> entrySet() {
-        HashMap<String, Object> wrapper = new HashMap<>();
-        for (Map.Entry<Object, Object> entry : properties.entrySet())
-            wrapper.put(String.valueOf(entry.getKey()), entry.getValue());
-        return wrapper.entrySet();
+        return properties.entrySet();
     }
 
     public static MProperties load(String fileName) {
@@ -578,7 +577,7 @@ public class MProperties extends AbstractProperties implements Externalizable {
     }
 
     public Set<String> sortedKeys() {
-        return new TreeSet<String>(new SetCast<Object, String>(properties.keySet()));
+        return new TreeSet<String>(properties.keySet());
     }
 
     private String saveConvert(String value, boolean escapeSpace, boolean escapeUnicode) {
@@ -654,24 +653,21 @@ public class MProperties extends AbstractProperties implements Externalizable {
 
     @Override
     public synchronized String toString() {
-        int max = properties.size() - 1;
-        if (max == -1)
+        Iterator<Map.Entry<String, Object>> it = properties.entrySet().iterator();
+        if (!it.hasNext())
             return "{}";
 
         StringBuilder sb = new StringBuilder();
-        Iterator<Map.Entry<Object, Object>> it = properties.entrySet().iterator();
-
         sb.append('{');
-        for (int i = 0;; i++) {
-            Map.Entry<Object, Object> e = it.next();
-            Object key = e.getKey();
+        while (true) {
+            Map.Entry<String, Object> e = it.next();
+            String keyStr = e.getKey();
             Object value = e.getValue();
-            String keyStr = key.toString();
             sb.append(keyStr);
             sb.append('=');
             sb.append(MSystem.isPasswordName(keyStr) ? "[***]" : (value == this ? "(this Map)" : value.toString()));
 
-            if (i == max)
+            if (!it.hasNext())
                 return sb.append('}').toString();
             sb.append(", ");
         }
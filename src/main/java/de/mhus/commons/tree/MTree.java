@@ -43,10 +43,33 @@ public class MTree {
     public static final TreeNodeList EMPTY_LIST = new EmptyTreeNodeList();
     public static final TreeNode EMPTY_MAP = new EmptyTreeNode();
 
+    /**
+     * Parse the file into a new editable node. The file is not cached, use loadCached() to share the parsed content.
+     *
+     * @param file
+     *
+     * @return The node
+     *
+     * @throws MException
+     */
     public static ITreeNode load(File file) throws MException {
         return MService.getService(ITreeNodeFactory.class).read(file);
     }
 
+    /**
+     * Load the file using the default TreeNodeCache. The file is only parsed again if it was changed. The returned node
+     * is frozen and shared, use load() to get an editable node.
+     *
+     * @param file
+     *
+     * @return The frozen node
+     *
+     * @throws MException
+     */
+    public static ITreeNode loadCached(File file) throws MException {
+        return TreeNodeCache.getDefault().load(file);
+    }
+
     public static ITreeNode load(File parent, String name) throws MException {
         return MService.getService(ITreeNodeFactory.class).find(parent, name);
     }
@@ -64,6 +87,64 @@ public class MTree {
         return MService.getService(ITreeNodeFactory.class).create();
     }
 
+    /**
+     * Create an immutable snapshot of the node. The snapshot can be published to readers and replaced by a new one on
+     * reload, equal sub trees will be shared between the snapshots.
+     *
+     * @param node
+     *
+     * @return The frozen node
+     */
+    public static ITreeNode snapshot(ITreeNode node) {
+        return FrozenTreeNode.freeze(node);
+    }
+
+    /**
+     * Emit the structure of the node as events to the visitor.
+     *
+     * @param node
+     * @param visitor
+     */
+    public static void visit(ITreeNode node, ITreeNodeVisitor visitor) {
+        if (node.size() == 1 && node.isArray(ITreeNode.NAMELESS_VALUE)) {
+            visit(node.getArray(ITreeNode.NAMELESS_VALUE).get(), null, visitor, 0);
+            return;
+        }
+        visit(node, node.getName(), visitor, 0);
+    }
+
+    private static void visit(ITreeNode node, String name, ITreeNodeVisitor visitor, int level) {
+        if (level > M.MAX_DEPTH_LEVEL)
+            throw new TooDeepStructuresException();
+        visitor.startObject(name);
+        for (Map.Entry<String, Object> entry : node.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof ITreeNode)
+                visit((ITreeNode) value, entry.getKey(), visitor, level + 1);
+            else if (value instanceof TreeNodeList)
+                visit((TreeNodeList) value, entry.getKey(), visitor, level + 1);
+            else
+                visitor.value(entry.getKey(), value);
+        }
+        visitor.endObject();
+    }
+
+    private static void visit(TreeNodeList array, String name, ITreeNodeVisitor visitor, int level) {
+        if (level > M.MAX_DEPTH_LEVEL)
+            throw new TooDeepStructuresException();
+        visitor.startArray(name);
+        for (ITreeNode item : array) {
+            if (item.size() == 1 && item.isArray(ITreeNode.NAMELESS_VALUE))
+                visit(item.getArray(ITreeNode.NAMELESS_VALUE).get(), null, visitor, level + 1);
+            else if (item.size() == 1 && item.containsKey(ITreeNode.NAMELESS_VALUE)
+                    && !item.isObject(ITreeNode.NAMELESS_VALUE))
+                visitor.value(null, item.get(ITreeNode.NAMELESS_VALUE));
+            else
+                visit(item, null, visitor, level + 1);
+        }
+        visitor.endArray();
+    }
+
     public static List<String> getArrayValueStringList(TreeNodeList array) {
         return array.stream().map((entry) -> entry.getString(ITreeNode.NAMELESS_VALUE).orElse("")).toList();
     }
@@ -187,6 +268,22 @@ public class MTree {
         return new JsonStreamNodeBuilder().readFromString(json);
     }
 
+    /**
+     * Read the json string, if lazy the objects are decoded on first access.
+     *
+     * @param json
+     * @param lazy
+     *
+     * @return The root node
+     *
+     * @throws MException
+     */
+    public static ITreeNode readFromJsonString(String json, boolean lazy) throws MException {
+        if (lazy)
+            return new LazyJsonNodeBuilder().readFromString(json);
+        return readFromJsonString(json);
+    }
+
     public static ITreeNode readFromXmlString(Element documentElement) throws MException {
         return new XmlTreeNodeBuilder().readFromElement(documentElement);
     }
@@ -66,7 +66,7 @@ public class PropertiesNodeBuilder extends ITreeNodeBuilder {
     }
 
     public ITreeNode readFromCollection(Collection<?> col) {
-        ITreeNode node = new TreeNode();
+        ITreeNode node = createNode();
         readFromCollection(node, ITreeNode.NAMELESS_VALUE, col, 0);
         return node;
     }
@@ -88,7 +88,7 @@ public class PropertiesNodeBuilder extends ITreeNodeBuilder {
         if (level > CFG_MAX_LEVEL)
             throw new TooDeepStructuresException();
 
-        ITreeNode node = new TreeNode();
+        ITreeNode node = createNode();
         for (Entry<?, ?> entry : map.entrySet()) {
             String key = MString.valueOf(entry.getKey());
             Object val = entry.getValue();
@@ -122,11 +122,11 @@ public class PropertiesNodeBuilder extends ITreeNodeBuilder {
             throw new TooDeepStructuresException();
 
         if (item == null) {
-            TreeNode obj = new TreeNode();
+            TreeNode obj = createNode();
             obj.setBoolean(ITreeNode.NULL, true);
             return obj;
         } else if (item instanceof TreeNodeSerializable) {
-            TreeNode obj = new TreeNode();
+            TreeNode obj = createNode();
             try {
                 ((TreeNodeSerializable) item).writeSerializabledNode(obj);
             } catch (Exception e) {
@@ -140,26 +140,26 @@ public class PropertiesNodeBuilder extends ITreeNodeBuilder {
             return obj;
         } else if (item instanceof String || item.getClass().isPrimitive() || item instanceof Number
                 || item instanceof Date || item instanceof Boolean) {
-            TreeNode obj = new TreeNode();
+            TreeNode obj = createNode();
             obj.put(ITreeNode.NAMELESS_VALUE, item);
             return obj;
         } else if (item instanceof Date) {
-            TreeNode obj = new TreeNode();
+            TreeNode obj = createNode();
             obj.put(ITreeNode.NAMELESS_VALUE, ((Date) item).getTime());
             obj.put(ITreeNode.HELPER_VALUE, MDate.toIso8601((Date) item));
             return obj;
         } else if (item.getClass().isArray()) {
-            TreeNode obj = new TreeNode();
+            TreeNode obj = createNode();
             obj.setString(ITreeNode.CLASS, item.getClass().getCanonicalName());
             readFromCollection(obj, ITreeNode.NAMELESS_VALUE, MCollection.toList(((Object[]) item)), level);
             return obj;
         } else if (item instanceof Collection) {
-            TreeNode obj = new TreeNode();
+            TreeNode obj = createNode();
             obj.setString(ITreeNode.CLASS, item.getClass().getCanonicalName());
             readFromCollection(obj, ITreeNode.NAMELESS_VALUE, (Collection<?>) item, level);
             return obj;
         } else {
-            TreeNode obj = new TreeNode();
+            TreeNode obj = createNode();
             try {
                 MPojo.pojoToNode(item, obj);
             } catch (IOException e) {
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.tree;
+
+import java.util.ArrayList;
+
+/**
+ * Records the events of a visitor to replay them later. Used by the stream readers to look ahead and to repeat
+ * referenced structures.
+ */
+class RecordingVisitor implements ITreeNodeVisitor {
+
+    private static final int START_OBJECT = 0;
+    private static final int END_OBJECT = 1;
+    private static final int START_ARRAY = 2;
+    private static final int END_ARRAY = 3;
+    private static final int VALUE = 4;
+
+    private final ArrayList<Event> events = new ArrayList<>();
+    private int depth;
+
+    @Override
+    public void startObject(String name) {
+        events.add(new Event(START_OBJECT, name, null));
+        depth++;
+    }
+
+    @Override
+    public void endObject() {
+        events.add(new Event(END_OBJECT, null, null));
+        depth--;
+    }
+
+    @Override
+    public void startArray(String name) {
+        events.add(new Event(START_ARRAY, name, null));
+        depth++;
+    }
+
+    @Override
+    public void endArray() {
+        events.add(new Event(END_ARRAY, null, null));
+        depth--;
+    }
+
+    @Override
+    public void value(String name, Object value) {
+        events.add(new Event(VALUE, name, value));
+    }
+
+    /**
+     * Return true if at least one event was recorded and all objects and arrays are closed.
+     *
+     * @return true if the recorded structure is complete
+     */
+    public boolean isComplete() {
+        return depth == 0 && !events.isEmpty();
+    }
+
+    /**
+     * Return true if the first event starts an object.
+     *
+     * @return true for a recorded object
+     */
+    public boolean isObject() {
+        return !events.isEmpty() && events.get(0).type == START_OBJECT;
+    }
+
+    /**
+     * Return the value if the recording is a single value.
+     *
+     * @return The value or null
+     */
+    public Object getValue() {
+        return events.size() == 1 && events.get(0).type == VALUE ? events.get(0).value : null;
+    }
+
+    /**
+     * Replay the events, the first event gets the given name, null for an entry of an array.
+     *
+     * @param visitor
+     *            The target
+     * @param name
+     *            The name of the recorded structure in the target
+     */
+    public void replay(ITreeNodeVisitor visitor, String name) {
+        for (int i = 0; i < events.size(); i++)
+            events.get(i).replay(visitor, i == 0 ? name : events.get(i).name);
+    }
+
+    /**
+     * Replay the events without the first and the last event, e.g. the entries of an object.
+     *
+     * @param visitor
+     *            The target
+     */
+    public void replayContent(ITreeNodeVisitor visitor) {
+        for (int i = 1; i < events.size() - 1; i++)
+            events.get(i).replay(visitor, events.get(i).name);
+    }
+
+    private static class Event {
+        private final int type;
+        private final String name;
+        private final Object value;
+
+        private Event(int type, String name, Object value) {
+            this.type = type;
+            this.name = name;
+            this.value = value;
+        }
+
+        private void replay(ITreeNodeVisitor visitor, String n) {
+            switch (type) {
+            case START_OBJECT:
+                visitor.startObject(n);
+                break;
+            case END_OBJECT:
+                visitor.endObject();
+                break;
+            case START_ARRAY:
+                visitor.startArray(n);
+                break;
+            case END_ARRAY:
+                visitor.endArray();
+                break;
+            default:
+                visitor.value(n, value);
+            }
+        }
+    }
+}
@@ -22,6 +22,8 @@ import de.mhus.commons.errors.MRuntimeException;
 import de.mhus.commons.errors.MaxDepthReached;
 import de.mhus.commons.errors.RC;
 import de.mhus.commons.parser.CompiledString;
+import de.mhus.commons.parser.TemplateCache;
+import de.mhus.commons.tools.MSystem;
 import de.mhus.commons.util.SingleList;
 
 import java.io.IOException;
@@ -29,7 +31,6 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -37,10 +38,15 @@ import java.util.Optional;
 
 public class TreeNode extends MProperties implements ITreeNode {
 
+    protected static final int CFG_COMPILED_CACHE_SIZE = MSystem.getEnv(TreeNode.class, "compiledCacheSize", 1000);
+
+    // compiled values do not reference a node, one cache for all nodes
+    private static final TreeNodeStringCompiler COMPILER = new TreeNodeStringCompiler();
+    private static final TemplateCache<CompiledString> COMPILED_CACHE = new TemplateCache<>(CFG_COMPILED_CACHE_SIZE,
+            TemplateCache.CFG_MAX_WEIGHT);
+
     protected String name;
     protected ITreeNode parent;
-    protected TreeNodeStringCompiler compiler;
-    protected HashMap<String, CompiledString> compiledCache;
     protected TreeNodeList array;
 
     public TreeNode() {
@@ -50,7 +56,12 @@ public class TreeNode extends MProperties implements ITreeNode {
         this.name = name;
     }
 
+    public TreeNode(IPropertiesStore store) {
+        super(store);
+    }
+
     public TreeNode(String name, TreeNodeList array) {
+        super(newStore(array == null ? null : array.getParent()));
         this.name = name;
         this.array = array;
         if (array != null)
@@ -58,10 +69,25 @@ public class TreeNode extends MProperties implements ITreeNode {
     }
 
     public TreeNode(String name, ITreeNode parent) {
+        super(newStore(parent));
         this.name = name;
         this.parent = parent;
     }
 
+    /**
+     * Create a new empty store of the same kind as the given node uses.
+     *
+     * @param node
+     *            The template node or null
+     *
+     * @return A new store
+     */
+    protected static IPropertiesStore newStore(ITreeNode node) {
+        if (node instanceof MProperties)
+            return ((MProperties) node).properties.newInstance();
+        return new HashtablePropertiesStore();
+    }
+
     @Override
     public boolean isObject(String key) {
         Object val = get(key);
@@ -81,7 +107,7 @@ public class TreeNode extends MProperties implements ITreeNode {
         if (val instanceof IProperties)
             return new TreeNodeWrapper((IProperties) val);
 
-        TreeNode ret = new TreeNode();
+        TreeNode ret = new TreeNode(newStore(this));
         if (val instanceof Map) {
             ret.putAll((Map) val);
         } else
@@ -214,21 +240,12 @@ public class TreeNode extends MProperties implements ITreeNode {
         if (value.indexOf('$') < 0)
             return value;
 
-        synchronized (this) {
-            if (compiler == null) {
-                compiler = new TreeNodeStringCompiler(this);
-                compiledCache = new HashMap<String, CompiledString>();
-            }
-            CompiledString cached = compiledCache.get(key);
-            if (cached == null) {
-                cached = compiler.compileString(value);
-                compiledCache.put(key, cached);
-            }
-            try {
-                return cached.execute(new TreeNodeStringCompiler.NodeMap(level, this));
-            } catch (MException e) {
-                throw new MRuntimeException(RC.STATUS.ERROR, key, e);
-            }
+        // cached by the value, a changed value is compiled again
+        CompiledString cached = COMPILED_CACHE.get(TreeNodeStringCompiler.class, value, COMPILER::compileString);
+        try {
+            return cached.execute(new TreeNodeStringCompiler.NodeMap(level, this));
+        } catch (MException e) {
+            throw new MRuntimeException(RC.STATUS.ERROR, key, e);
         }
     }
 
@@ -248,8 +265,10 @@ public class TreeNode extends MProperties implements ITreeNode {
             remove(key);
             return;
         }
-        ((TreeNode) object).parent = this;
-        ((TreeNode) object).name = key;
+        if (!(object instanceof FrozenTreeNode)) {
+            ((TreeNode) object).parent = this;
+            ((TreeNode) object).name = key;
+        }
         put(key, object);
     }
 
@@ -289,7 +308,7 @@ public class TreeNode extends MProperties implements ITreeNode {
 
     @Override
     public ITreeNode createObject(String key) {
-        ITreeNode obj = new TreeNode();
+        ITreeNode obj = new TreeNode(properties.newInstance());
         addObject(key, obj);
         return obj;
     }
@@ -386,7 +405,7 @@ public class TreeNode extends MProperties implements ITreeNode {
                 remove(e.getKey());
             else {
                 if (e.getValue() instanceof Map) {
-                    TreeNode cfg = new TreeNode();
+                    TreeNode cfg = new TreeNode(properties.newInstance());
                     cfg.putMapToNode((Map<?, ?>) e.getValue(), level + 1);
                     put(String.valueOf(e.getKey()), cfg);
                 } else if (e.getValue() instanceof List) {
@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.tree;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Supplier;
+
+/**
+ * Visitor creating the node objects from the events. Repeated objects with the same name are merged into an array,
+ * values in arrays are stored as nameless value of an entry.
+ */
+public class TreeNodeBuildVisitor implements ITreeNodeVisitor {
+
+    // marks a node only created to hold an array in an array
+    private static final Object WRAPPER = new Object();
+
+    private final Supplier<IPropertiesStore> storeFactory;
+    private final Deque<Object> stack = new ArrayDeque<>();
+    private TreeNode root;
+
+    public TreeNodeBuildVisitor() {
+        this(HashtablePropertiesStore::new);
+    }
+
+    public TreeNodeBuildVisitor(Supplier<IPropertiesStore> storeFactory) {
+        this.storeFactory = storeFactory;
+    }
+
+    @Override
+    public void startObject(String name) {
+        Object top = stack.peek();
+        if (top == null) {
+            root = new TreeNode(storeFactory.get());
+            root.name = name;
+            stack.push(root);
+        } else if (top instanceof TreeNodeList) {
+            stack.push(((TreeNodeList) top).createObject());
+        } else {
+            ITreeNode node = (ITreeNode) top;
+            if (node.isArray(name)) {
+                stack.push(node.getArray(name).get().createObject());
+            } else if (node.isObject(name)) {
+                ITreeNode first = node.getObject(name).get();
+                TreeNodeList array = node.createArray(name);
+                array.add(first);
+                stack.push(array.createObject());
+            } else
+                stack.push(node.createObject(name));
+        }
+    }
+
+    @Override
+    public void endObject() {
+        stack.pop();
+    }
+
+    @Override
+    public void startArray(String name) {
+        Object top = stack.peek();
+        if (top == null) {
+            root = new TreeNode(storeFactory.get());
+            stack.push(root.createArray(ITreeNode.NAMELESS_VALUE));
+        } else if (top instanceof TreeNodeList) {
+            ITreeNode obj = ((TreeNodeList) top).createObject();
+            stack.push(WRAPPER);
+            stack.push(obj.createArray(ITreeNode.NAMELESS_VALUE));
+        } else {
+            ITreeNode node = (ITreeNode) top;
+            stack.push(node.getArray(name).orElseGet(() -> node.createArray(name)));
+        }
+    }
+
+    @Override
+    public void endArray() {
+        stack.pop();
+        if (stack.peek() == WRAPPER)
+            stack.pop();
+    }
+
+    @Override
+    public void value(String name, Object value) {
+        if (value == null)
+            return;
+        Object top = stack.peek();
+        if (top == null) {
+            root = new TreeNode(storeFactory.get());
+            root.put(ITreeNode.NAMELESS_VALUE, value);
+        } else if (top instanceof TreeNodeList) {
+            ((TreeNodeList) top).createObject().put(ITreeNode.NAMELESS_VALUE, value);
+        } else
+            ((ITreeNode) top).put(name, value);
+    }
+
+    /**
+     * Return the created root node or an empty node if no event was received.
+     *
+     * @return The root node
+     */
+    public ITreeNode getRoot() {
+        if (root == null)
+            root = new TreeNode(storeFactory.get());
+        return root;
+    }
+
+}
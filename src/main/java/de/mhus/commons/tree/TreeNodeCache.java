@@ -0,0 +1,253 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.tree;
+
+import de.mhus.commons.errors.MException;
+import de.mhus.commons.errors.NotFoundException;
+import de.mhus.commons.errors.RC;
+import de.mhus.commons.services.MService;
+import de.mhus.commons.tools.MSystem;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache for loaded tree files. The files are parsed once and returned as frozen, shared trees. The modification time
+ * and size of a file are checked at most once per check interval and the file is reloaded only if it was changed.
+ * Listeners are notified after a reload.
+ */
+@Slf4j
+public class TreeNodeCache {
+
+    public static final long CFG_CHECK_INTERVAL = MSystem.getEnv(TreeNodeCache.class, "checkInterval", 1000L);
+
+    private static final TreeNodeCache DEFAULT = new TreeNodeCache(null, CFG_CHECK_INTERVAL);
+
+    // entries by canonical path
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // entries by the requested absolute path, avoids resolving the canonical path within the check interval
+    private final ConcurrentHashMap<String, Entry> aliases = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ITreeNodeFactory factory;
+    private volatile long checkInterval;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+
+    /**
+     * Create a cache.
+     *
+     * @param factory
+     *            Factory to read the files or null to use the ITreeNodeFactory service
+     * @param checkInterval
+     *            Time in ms between two checks for changes of a file, 0 to check every time
+     */
+    public TreeNodeCache(ITreeNodeFactory factory, long checkInterval) {
+        this.factory = factory;
+        this.checkInterval = checkInterval;
+    }
+
+    public static TreeNodeCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Return the frozen content of the file. The file is parsed only if it is not cached or changed.
+     *
+     * @param file
+     *            The file
+     *
+     * @return Frozen and shared tree
+     *
+     * @throws MException
+     *             If the file can't be loaded
+     */
+    public ITreeNode load(File file) throws MException {
+        Entry entry = getEntry(file);
+        long now = System.currentTimeMillis();
+        ITreeNode node = entry.node;
+        if (node != null && now - entry.lastCheck < checkInterval) {
+            hits.increment();
+            return node;
+        }
+        // a link can point to another file now, resolve it again for each check
+        Entry current = resolve(file);
+        if (current != entry) {
+            removeUnused(entry);
+            return check(current, now, node);
+        }
+        return check(entry, now, null);
+    }
+
+    // known is the node returned before a link was swapped, listeners are notified once if the content changed
+    private ITreeNode check(Entry entry, long now, ITreeNode known) throws MException {
+        ITreeNode node;
+        ITreeNode previous;
+        synchronized (entry) {
+            node = previous = entry.node;
+            if (node == null || now - entry.lastCheck >= checkInterval)
+                node = reload(entry, now);
+            else
+                hits.increment();
+        }
+        // a reload of the entry or a swap to another cached file
+        if ((previous != null && node != previous) || (known != null && node != known))
+            fireReloaded(entry.file, node);
+        return node;
+    }
+
+    // must be called with lock on entry
+    private ITreeNode reload(Entry entry, long now) throws MException {
+        ITreeNode node = entry.node;
+        BasicFileAttributes attr;
+        try {
+            attr = Files.readAttributes(entry.file.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            remove(entry);
+            throw new NotFoundException("file not found", entry.file, e);
+        }
+        long modified = attr.lastModifiedTime().toMillis();
+        if (node != null && modified == entry.modified && attr.size() == entry.size) {
+            entry.lastCheck = now;
+            hits.increment();
+            return node;
+        }
+        ITreeNodeFactory f = factory == null ? MService.getService(ITreeNodeFactory.class) : factory;
+        node = f.read(entry.file).freeze();
+        entry.modified = modified;
+        entry.size = attr.size();
+        entry.node = node;
+        entry.lastCheck = now;
+        loads.increment();
+        return node;
+    }
+
+    private Entry getEntry(File file) throws MException {
+        Entry entry = aliases.get(file.getAbsolutePath());
+        if (entry != null)
+            return entry;
+        return resolve(file);
+    }
+
+    private Entry resolve(File file) throws MException {
+        String canonical;
+        try {
+            canonical = file.getCanonicalPath();
+        } catch (IOException e) {
+            throw new MException(RC.STATUS.ERROR, file, e);
+        }
+        Entry entry = entries.computeIfAbsent(canonical, k -> new Entry(new File(k)));
+        aliases.put(file.getAbsolutePath(), entry);
+        return entry;
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.file.getPath(), entry);
+        aliases.values().removeIf(e -> e == entry);
+    }
+
+    private void removeUnused(Entry entry) {
+        if (!aliases.containsValue(entry))
+            entries.remove(entry.file.getPath(), entry);
+    }
+
+    private void fireReloaded(File file, ITreeNode node) {
+        for (Listener listener : listeners) {
+            try {
+                listener.reloaded(file, node);
+            } catch (Exception e) {
+                LOGGER.warn("listener {} failed for {}", listener, file, e);
+            }
+        }
+    }
+
+    /**
+     * Remove the file from the cache, the next load will parse the file again.
+     *
+     * @param file
+     */
+    public void invalidate(File file) {
+        Entry entry = aliases.remove(file.getAbsolutePath());
+        if (entry != null)
+            remove(entry);
+    }
+
+    public void clear() {
+        aliases.clear();
+        entries.clear();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Return the number of parsed files, including reloads.
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public long getCheckInterval() {
+        return checkInterval;
+    }
+
+    public void setCheckInterval(long checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    private static final class Entry {
+        final File file;
+        volatile ITreeNode node;
+        volatile long lastCheck;
+        long modified;
+        long size;
+
+        Entry(File file) {
+            this.file = file;
+        }
+    }
+
+    public interface Listener {
+
+        /**
+         * Called after a changed file was loaded again.
+         *
+         * @param file
+         *            The canonical file
+         * @param node
+         *            The new content
+         */
+        void reloaded(File file, ITreeNode node);
+    }
+}
@@ -34,22 +34,18 @@ public class TreeNodeList extends LinkedList<ITreeNode> {
 
     @Override
     public boolean addAll(int index, Collection<? extends ITreeNode> c) {
-        c.forEach(i -> {
-            ((TreeNode) i).name = name;
-            ((TreeNode) i).parent = parent;
-        });
+        c.forEach(this::attach);
         return super.addAll(index, c);
     }
 
     @Override
     public boolean add(ITreeNode e) {
-        ((TreeNode) e).name = name;
-        ((TreeNode) e).parent = parent;
+        attach(e);
         return super.add(e);
     }
 
     public boolean add(IProperties e) {
-        TreeNode node = new TreeNode();
+        TreeNode node = new TreeNode(TreeNode.newStore(parent));
         node.parent = parent;
         node.putAll(e);
         return super.add(node);
@@ -67,27 +63,31 @@ public class TreeNodeList extends LinkedList<ITreeNode> {
 
     @Override
     public void addFirst(ITreeNode e) {
-        ((TreeNode) e).name = name;
-        ((TreeNode) e).parent = parent;
+        attach(e);
         super.addFirst(e);
     }
 
     @Override
     public void addLast(ITreeNode e) {
-        ((TreeNode) e).name = name;
-        ((TreeNode) e).parent = parent;
+        attach(e);
         super.addLast(e);
     }
 
     @Override
     public ITreeNode set(int index, ITreeNode e) {
-        if (e instanceof TreeNode) {
-            ((TreeNode) e).name = name;
-            ((TreeNode) e).parent = parent;
-        }
+        if (e instanceof TreeNode)
+            attach(e);
         return super.set(index, e);
     }
 
+    // frozen nodes are shared and can't be attached
+    private void attach(ITreeNode e) {
+        if (e instanceof FrozenTreeNode)
+            return;
+        ((TreeNode) e).name = name;
+        ((TreeNode) e).parent = parent;
+    }
+
     public ITreeNode createObject() {
         TreeNode ret = new TreeNode(name, this);
         super.add(ret);
@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.tree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Visitor to create only the sub trees of matching paths. Path elements are separated by slash, array entries are
+ * addressed by the index and '*' matches every element, e.g. /items/&#42;/meta. Every matching sub tree is created and
+ * handed over to the consumer separately, so the memory usage depends on the size of the sub trees and not on the size
+ * of the document.
+ */
+public class TreeNodePathFilter implements ITreeNodeVisitor {
+
+    private static final String ANY = "*";
+
+    private final String[][] patterns;
+    private final Consumer<ITreeNode> consumer;
+    private final List<String> path = new ArrayList<>();
+    // next index of the array on each level or -1 for objects
+    private int[] indexes = new int[16];
+    private int depth = -1;
+    private TreeNodeBuildVisitor capture;
+    private int captureDepth;
+
+    public TreeNodePathFilter(Consumer<ITreeNode> consumer, String... paths) {
+        this.consumer = consumer;
+        patterns = new String[paths.length][];
+        for (int i = 0; i < paths.length; i++) {
+            String p = paths[i];
+            while (p.startsWith("/"))
+                p = p.substring(1);
+            patterns[i] = p.length() == 0 ? new String[0] : p.split("/");
+        }
+    }
+
+    @Override
+    public void startObject(String name) {
+        if (capture != null) {
+            capture.startObject(name);
+            enter(name, -1);
+            return;
+        }
+        enter(name, -1);
+        if (matches()) {
+            capture = new TreeNodeBuildVisitor();
+            captureDepth = depth;
+            capture.startObject(nodeName(name));
+        }
+    }
+
+    @Override
+    public void endObject() {
+        if (capture != null) {
+            capture.endObject();
+            if (depth == captureDepth)
+                deliver();
+        }
+        depth--;
+    }
+
+    @Override
+    public void startArray(String name) {
+        if (capture != null) {
+            capture.startArray(name);
+            enter(name, 0);
+            return;
+        }
+        enter(name, 0);
+        if (matches()) {
+            capture = new TreeNodeBuildVisitor();
+            captureDepth = depth;
+            capture.startArray(null);
+        }
+    }
+
+    @Override
+    public void endArray() {
+        if (capture != null) {
+            capture.endArray();
+            if (depth == captureDepth)
+                deliver();
+        }
+        depth--;
+    }
+
+    @Override
+    public void value(String name, Object value) {
+        if (capture != null) {
+            capture.value(name, value);
+            return;
+        }
+        enter(name, -1);
+        if (value != null && matches()) {
+            TreeNode node = new TreeNode(nodeName(name), (ITreeNode) null);
+            node.put(ITreeNode.NAMELESS_VALUE, value);
+            consumer.accept(node);
+        }
+        depth--;
+    }
+
+    private void deliver() {
+        ITreeNode node = capture.getRoot();
+        capture = null;
+        consumer.accept(node);
+    }
+
+    private String nodeName(String name) {
+        // entries of an array are named like the array
+        return name != null ? name : depth > 1 ? path.get(depth - 2) : null;
+    }
+
+    private String segment(String name) {
+        if (depth >= 0 && indexes[depth] >= 0)
+            return String.valueOf(indexes[depth]++);
+        return name;
+    }
+
+    private void enter(String name, int index) {
+        String segment = segment(name);
+        depth++;
+        if (depth >= indexes.length) {
+            int[] n = new int[indexes.length * 2];
+            System.arraycopy(indexes, 0, n, 0, indexes.length);
+            indexes = n;
+        }
+        indexes[depth] = index;
+        // the root has no path element
+        if (depth > 0) {
+            if (path.size() >= depth)
+                path.set(depth - 1, segment);
+            else
+                path.add(segment);
+        }
+    }
+
+    private boolean matches() {
+        main: for (String[] pattern : patterns) {
+            if (pattern.length != depth)
+                continue;
+            for (int i = 0; i < pattern.length; i++) {
+                String p = pattern[i];
+                if (!p.equals(ANY) && !p.equals(path.get(i)))
+                    continue main;
+            }
+            return true;
+        }
+        return false;
+    }
+
+}
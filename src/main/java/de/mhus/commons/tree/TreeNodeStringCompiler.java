@@ -20,17 +20,19 @@ import de.mhus.commons.parser.StringCompiler;
 import de.mhus.commons.parser.StringPart;
 import de.mhus.commons.tools.MString;
 import de.mhus.commons.lang.IValuesProvider;
+import de.mhus.commons.util.MapValuesProvider;
 
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Compiles the values of tree nodes. The compiled parts do not reference a node, the node is resolved from the NodeMap
+ * on execution. Therefore compiled values can be shared between all nodes.
+ */
 public class TreeNodeStringCompiler extends StringCompiler {
 
-    private TreeNode rootNode;
-
-    TreeNodeStringCompiler(TreeNode rootNode) {
-        this.rootNode = rootNode;
+    TreeNodeStringCompiler() {
     }
 
     @Override
@@ -41,16 +43,24 @@ public class TreeNodeStringCompiler extends StringCompiler {
         return new NodeAttributePart(part);
     }
 
+    private static NodeMap getNodeMap(IValuesProvider attributes) {
+        // CompiledString wraps the map into a provider
+        if (attributes instanceof MapValuesProvider && ((MapValuesProvider) attributes).getMap() instanceof NodeMap)
+            return (NodeMap) ((MapValuesProvider) attributes).getMap();
+        return null;
+    }
+
+    private static TreeNode getNode(IValuesProvider attributes) {
+        NodeMap map = getNodeMap(attributes);
+        return map == null ? null : map.getNode();
+    }
+
     private class RootAttributePart implements StringPart {
         private String name;
         private String def;
-        private ITreeNode node;
 
         public RootAttributePart(String part) {
             name = MString.afterIndex(part, ':');
-            node = rootNode;
-            while (node.getParent() != null && node.getParent() != node)
-                node = node.getParent();
             int pos = name.indexOf(',');
             if (pos > 0) {
                 def = name.substring(pos + 1);
@@ -60,6 +70,13 @@ public class TreeNodeStringCompiler extends StringCompiler {
 
         @Override
         public void execute(StringBuilder out, IValuesProvider attributes) throws MException {
+            ITreeNode node = getNode(attributes);
+            if (node == null) {
+                out.append(def);
+                return;
+            }
+            while (node.getParent() != null && node.getParent() != node)
+                node = node.getParent();
             out.append(node.getString(name, def));
         }
 
@@ -74,7 +91,8 @@ public class TreeNodeStringCompiler extends StringCompiler {
 
         private String name;
         private String def;
-        private TreeNode node;
+        private boolean absolute;
+        private int up;
 
         public NodeAttributePart(String part) {
             name = part;
@@ -83,30 +101,31 @@ public class TreeNodeStringCompiler extends StringCompiler {
                 def = name.substring(pos + 1);
                 name = name.substring(0, pos);
             }
-            node = rootNode;
             if (name.startsWith("/")) {
-                while (node.getParent() != null)
-                    node = (TreeNode) node.getParent();
+                absolute = true;
                 name = name.substring(1);
             } else
                 while (name.startsWith("../")) {
-                    node = (TreeNode) node.getParent();
+                    up++;
                     name = name.substring(3);
-                    if (node == null)
-                        break;
                 }
         }
 
         @Override
         public void execute(StringBuilder out, IValuesProvider attributes) throws MException {
-            int level = 0;
-            if (attributes != null && attributes instanceof NodeMap) {
-                level = ((NodeMap) attributes).getLevel();
-            }
+            NodeMap map = getNodeMap(attributes);
+            int level = map == null ? 0 : map.getLevel();
+            TreeNode node = map == null ? null : map.getNode();
+            if (absolute && node != null) {
+                while (node.getParent() != null)
+                    node = (TreeNode) node.getParent();
+            } else
+                for (int i = 0; i < up && node != null; i++)
+                    node = (TreeNode) node.getParent();
             if (node == null)
                 out.append(def);
             else
-                out.append(node.getExtracted(name, def, level));
+                out.append(node.getExtracted(name, def, level + 1));
         }
 
         @Override
@@ -139,6 +158,10 @@ public class TreeNodeStringCompiler extends StringCompiler {
             return level;
         }
 
+        public TreeNode getNode() {
+            return node;
+        }
+
         @Override
         public boolean isEmpty() {
             return node == null ? true : node.isEmpty();
@@ -18,27 +18,367 @@ package de.mhus.commons.tree;
 import de.mhus.commons.errors.MException;
 import de.mhus.commons.errors.RC;
 import de.mhus.commons.errors.TooDeepStructuresException;
+import de.mhus.commons.tools.MSystem;
 import de.mhus.commons.tools.MXml;
+import lombok.extern.slf4j.Slf4j;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactoryConfigurationError;
-import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 
+@Slf4j
 public class XmlTreeNodeBuilder extends ITreeNodeBuilder {
 
+    /** Maximum number of events of an element that are held back by read(InputStream, ITreeNodeVisitor) */
+    protected static final int CFG_MAX_LOOKAHEAD = MSystem.getEnv(XmlTreeNodeBuilder.class, "maxLookahead", 10000);
+
+    /**
+     * Create the nodes directly from the StAX events without a DOM. The result is the same as for
+     * readFromElement(Element).
+     */
     @Override
     public ITreeNode read(InputStream is) throws MException {
+        XMLStreamReader reader = null;
         try {
-            Document doc = MXml.loadXml(is);
-            return readFromElement(doc.getDocumentElement());
-        } catch (ParserConfigurationException | SAXException | IOException e) {
+            reader = MXml.createXmlStreamReader(is);
+            ITreeNode root = null;
+            ArrayDeque<Frame> stack = new ArrayDeque<>();
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    Frame parent = stack.peek();
+                    ITreeNode node;
+                    if (parent == null) {
+                        root = createNode();
+                        node = root;
+                    } else {
+                        parent.children = true;
+                        String key = getName(reader.getPrefix(), reader.getLocalName());
+                        String type = getNodeType(reader);
+                        if ("value".equals(type)) {
+                            parent.node.put(key, readText(reader));
+                            continue;
+                        }
+                        if (stack.size() > 100)
+                            throw new TooDeepStructuresException();
+                        node = createChild(parent.node, key, type);
+                    }
+                    for (int i = 0; i < reader.getAttributeCount(); i++) {
+                        String name = getName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+                        if (name.startsWith("node:") || name.equals("xmlns:node"))
+                            continue;
+                        node.put(name, reader.getAttributeValue(i));
+                    }
+                    stack.push(new Frame(node));
+                } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                        || event == XMLStreamConstants.SPACE) {
+                    Frame frame = stack.peek();
+                    if (frame != null)
+                        frame.text(reader);
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    Frame frame = stack.pop();
+                    String text = frame.getText();
+                    if (text != null)
+                        frame.node.setString(ITreeNode.NAMELESS_VALUE, text);
+                } else if (event == XMLStreamConstants.COMMENT || event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+                    Frame frame = stack.peek();
+                    if (frame != null)
+                        frame.other();
+                }
+            }
+            if (root == null)
+                root = createNode();
+            return root;
+        } catch (XMLStreamException e) {
             throw new MException(RC.STATUS.ERROR, e);
+        } finally {
+            if (reader != null)
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    LOGGER.debug("close failed", e);
+                }
+        }
+    }
+
+    private ITreeNode createChild(ITreeNode node, String key, String type) {
+        if (node.isArray(key) || "array".equals(type)) {
+            TreeNodeList arrayC = node.getArray(key).orElseGet(() -> node.createArray(key));
+            return arrayC.createObject();
+        }
+        if (node.isObject(key) && !"object".equals(type)) {
+            ITreeNode firstC = node.getObject(key).orElse(null);
+            TreeNodeList arrayC = node.createArray(key);
+            if (firstC != null)
+                arrayC.add(firstC);
+            return arrayC.createObject();
+        }
+        return node.createObject(key);
+    }
+
+    private static String getName(String prefix, String name) {
+        if (prefix != null && prefix.length() > 0)
+            return prefix + ":" + name;
+        return name;
+    }
+
+    private static class Frame {
+        private final ITreeNode node;
+        boolean children;
+        private int lastText;
+        private int segments;
+        private StringBuilder text;
+
+        private Frame(ITreeNode node) {
+            this.node = node;
+        }
+
+        // adjacent text events are one DOM text node, a CDATA section is a node of its own
+        void text(XMLStreamReader reader) {
+            int type = reader.getEventType() == XMLStreamConstants.CDATA ? XMLStreamConstants.CDATA
+                    : XMLStreamConstants.CHARACTERS;
+            if (lastText != XMLStreamConstants.CHARACTERS || type != XMLStreamConstants.CHARACTERS)
+                segments++;
+            lastText = type;
+            // only the text of a single segment is used
+            if (segments == 1) {
+                if (text == null)
+                    text = new StringBuilder();
+                text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            }
+        }
+
+        // comments and processing instructions are DOM nodes too
+        void other() {
+            lastText = 0;
+            segments++;
+        }
+
+        // like the DOM variant: only if the text is the one and only child
+        String getText() {
+            return !children && segments == 1 ? text.toString() : null;
+        }
+    }
+
+    /**
+     * Emit the events like read(InputStream) creates the nodes. To group consecutive elements with the same name into
+     * one array the first element is held back until the next sibling is known. Repeated elements separated by other
+     * elements are reported as separate entries with the same name.
+     *
+     * <p>
+     * At most CFG_MAX_LOOKAHEAD events of the first element are held back per level, so the memory does not grow with
+     * the document. A larger first element is emitted as object when the limit is reached and the following elements
+     * with the same name are reported as separate entries with the same name instead of an array.
+     */
+    @Override
+    public void read(InputStream is, ITreeNodeVisitor visitor) throws MException {
+        XMLStreamReader reader = null;
+        try {
+            reader = MXml.createXmlStreamReader(is);
+            ArrayDeque<Level> stack = new ArrayDeque<>();
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    Level parent = stack.peek();
+                    Level level;
+                    if (parent == null) {
+                        level = new Level(visitor);
+                        visitor.startObject(null);
+                    } else {
+                        parent.children = true;
+                        String key = getName(reader.getPrefix(), reader.getLocalName());
+                        String type = getNodeType(reader);
+                        if ("value".equals(type)) {
+                            parent.flush();
+                            parent.out.value(key, readText(reader));
+                            continue;
+                        }
+                        if (stack.size() > 100)
+                            throw new TooDeepStructuresException();
+                        level = parent.startChild(key, type);
+                    }
+                    for (int i = 0; i < reader.getAttributeCount(); i++) {
+                        String name = getName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+                        if (name.startsWith("node:") || name.equals("xmlns:node"))
+                            continue;
+                        level.out.value(name, reader.getAttributeValue(i));
+                    }
+                    stack.push(level);
+                } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                        || event == XMLStreamConstants.SPACE) {
+                    Level level = stack.peek();
+                    if (level != null)
+                        level.text(reader);
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    Level level = stack.pop();
+                    level.flush();
+                    String text = level.getText();
+                    if (text != null)
+                        level.out.value(ITreeNode.NAMELESS_VALUE, text);
+                    level.out.endObject();
+                } else if (event == XMLStreamConstants.COMMENT || event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+                    Level level = stack.peek();
+                    if (level != null)
+                        level.other();
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new MException(RC.STATUS.ERROR, e);
+        } finally {
+            if (reader != null)
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    LOGGER.debug("close failed", e);
+                }
+        }
+    }
+
+    private String getNodeType(XMLStreamReader reader) {
+        for (int i = 0; i < reader.getAttributeCount(); i++)
+            if ("type".equals(reader.getAttributeLocalName(i)) && "node".equals(reader.getAttributePrefix(i)))
+                return reader.getAttributeValue(i);
+        return null;
+    }
+
+    // text of the element without the text of sub elements
+    private String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (depth == 0)
+                    break;
+                depth--;
+            } else if (depth == 0 && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE))
+                text.append(reader.getText());
+        }
+        return text.toString();
+    }
+
+    private static class Level extends Frame {
+        // receives the events of this element, a look-ahead for the first element of a possible array
+        private final ITreeNodeVisitor out;
+        // first element with this name, not emitted until the next sibling is known
+        private String pendingKey;
+        private Lookahead pending;
+        // name of the array of consecutive elements which is open
+        private String arrayKey;
+        // name of the elements which are emitted directly because the first one exceeded the look-ahead
+        private String streamedKey;
+
+        private Level(ITreeNodeVisitor out) {
+            super(null);
+            this.out = out;
+        }
+
+        // like createChild(): same named elements are merged into an array
+        private Level startChild(String key, String type) {
+            if (pending != null && pending.isStreamed())
+                flush();
+            if (key.equals(streamedKey) && type == null) {
+                out.startObject(key);
+                return new Level(out);
+            }
+            if (!"object".equals(type) && ("array".equals(type) || key.equals(arrayKey) || key.equals(pendingKey))) {
+                if (!key.equals(arrayKey)) {
+                    Lookahead first = key.equals(pendingKey) ? pending : null;
+                    if (first == null)
+                        flush();
+                    pending = null;
+                    pendingKey = null;
+                    out.startArray(key);
+                    arrayKey = key;
+                    if (first != null)
+                        first.recording.replay(out, null);
+                }
+                out.startObject(null);
+                return new Level(out);
+            }
+            flush();
+            pendingKey = key;
+            pending = new Lookahead(out, key);
+            pending.startObject(key);
+            return new Level(pending);
+        }
+
+        // emit the pending element or close the array
+        private void flush() {
+            streamedKey = null;
+            if (pending != null) {
+                if (pending.isStreamed())
+                    streamedKey = pendingKey;
+                else
+                    pending.recording.replay(out, pendingKey);
+                pending = null;
+                pendingKey = null;
+            }
+            if (arrayKey != null) {
+                out.endArray();
+                arrayKey = null;
+            }
+        }
+    }
+
+    // records the events until the limit is reached, then emits the recording and passes the following events
+    private static class Lookahead implements ITreeNodeVisitor {
+        private final ITreeNodeVisitor target;
+        private final String key;
+        private RecordingVisitor recording = new RecordingVisitor();
+        private int events;
+
+        private Lookahead(ITreeNodeVisitor target, String key) {
+            this.target = target;
+            this.key = key;
+        }
+
+        private boolean isStreamed() {
+            return recording == null;
+        }
+
+        private ITreeNodeVisitor next() {
+            if (recording != null && ++events > CFG_MAX_LOOKAHEAD) {
+                recording.replay(target, key);
+                recording = null;
+            }
+            return recording == null ? target : recording;
+        }
+
+        @Override
+        public void startObject(String name) {
+            next().startObject(name);
+        }
+
+        @Override
+        public void endObject() {
+            next().endObject();
+        }
+
+        @Override
+        public void startArray(String name) {
+            next().startArray(name);
+        }
+
+        @Override
+        public void endArray() {
+            next().endArray();
+        }
+
+        @Override
+        public void value(String name, Object value) {
+            next().value(name, value);
         }
     }
 
@@ -86,7 +426,7 @@ public class XmlTreeNodeBuilder extends ITreeNodeBuilder {
         // first must be an object
         if (element.hasAttribute("xmlns:node"))
             element.removeAttribute("xmlns:node");
-        ITreeNode node = new TreeNode();
+        ITreeNode node = createNode();
         read(node, element, 0);
         return node;
     }
@@ -23,16 +23,33 @@ import de.mhus.commons.yaml.YElement;
 import de.mhus.commons.yaml.YList;
 import de.mhus.commons.yaml.YMap;
 
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.reader.UnicodeReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
 
 public class YamlTreeNodeBuilder extends ITreeNodeBuilder {
 
     @Override
     public ITreeNode read(InputStream is) {
         YMap itemY = MYaml.load(is);
-        TreeNode itemC = new TreeNode();
+        TreeNode itemC = createNode();
         if (itemY.isList()) {
             TreeNodeList arrayC = itemC.createArray(ITreeNode.NAMELESS_VALUE);
             fill(arrayC, new YList(itemY.getObject()), 0);
@@ -41,6 +58,172 @@ public class YamlTreeNodeBuilder extends ITreeNodeBuilder {
         return itemC;
     }
 
+    /**
+     * Emit the events of the first document. Anchored structures are recorded and repeated for each alias, an alias as
+     * value of the merge key '<<' adds the entries of the referenced mapping.
+     */
+    @Override
+    public void read(InputStream is, ITreeNodeVisitor target) throws MException {
+        Resolver resolver = new Resolver();
+        ArrayDeque<Level> stack = new ArrayDeque<>();
+        Anchors visitor = new Anchors(target);
+        try {
+            for (Event event : MYaml.getYaml().parse(new UnicodeReader(is))) {
+                Level top = stack.peek();
+                if (event instanceof MappingStartEvent) {
+                    visitor.anchor(((MappingStartEvent) event).getAnchor());
+                    visitor.startObject(top == null ? null : top.key);
+                    stack.push(new Level(true));
+                } else if (event instanceof SequenceStartEvent) {
+                    visitor.anchor(((SequenceStartEvent) event).getAnchor());
+                    visitor.startArray(top == null ? null : top.key);
+                    stack.push(new Level(false));
+                } else if (event instanceof MappingEndEvent) {
+                    stack.pop();
+                    visitor.endObject();
+                    valueDone(stack.peek());
+                } else if (event instanceof SequenceEndEvent) {
+                    stack.pop();
+                    visitor.endArray();
+                    valueDone(stack.peek());
+                } else if (event instanceof AliasEvent) {
+                    RecordingVisitor alias = visitor.get(((AliasEvent) event).getAnchor());
+                    if (top != null && top.mapping && top.key == null) {
+                        Object value = alias == null ? null : alias.getValue();
+                        top.key = value == null ? "" : String.valueOf(value);
+                    } else {
+                        if (alias == null)
+                            visitor.value(top == null ? null : top.key, null);
+                        else if (top != null && top.mapping && "<<".equals(top.key) && alias.isObject())
+                            alias.replayContent(visitor);
+                        else
+                            alias.replay(visitor, top == null ? null : top.key);
+                        valueDone(top);
+                    }
+                } else if (event instanceof ScalarEvent) {
+                    ScalarEvent scalar = (ScalarEvent) event;
+                    if (top != null && top.mapping && top.key == null) {
+                        top.key = scalar.getValue();
+                    } else {
+                        visitor.anchor(scalar.getAnchor());
+                        visitor.value(top == null ? null : top.key, toValue(resolver, scalar));
+                        valueDone(top);
+                    }
+                } else if (event instanceof DocumentEndEvent) {
+                    // only the first document
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new MException(RC.STATUS.ERROR, e);
+        }
+    }
+
+    private static void valueDone(Level level) {
+        if (level != null)
+            level.key = null;
+    }
+
+    private static Object toValue(Resolver resolver, ScalarEvent event) {
+        String value = event.getValue();
+        if (event.getScalarStyle() != DumperOptions.ScalarStyle.PLAIN)
+            return value;
+        Tag tag = resolver.resolve(NodeId.scalar, value, true);
+        try {
+            if (Tag.NULL.equals(tag))
+                return null;
+            if (Tag.BOOL.equals(tag)) {
+                String v = value.toLowerCase();
+                return v.equals("true") || v.equals("yes") || v.equals("on");
+            }
+            if (Tag.INT.equals(tag)) {
+                long v = Long.parseLong(value.replace("_", ""));
+                if (v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE)
+                    return (int) v;
+                return v;
+            }
+            if (Tag.FLOAT.equals(tag))
+                return Double.parseDouble(value.replace("_", ""));
+        } catch (NumberFormatException e) {
+            // special notations like hex or sexagesimal stay a string
+        }
+        return value;
+    }
+
+    // forwards the events and records anchored structures until they are complete
+    private static class Anchors implements ITreeNodeVisitor {
+        private final ITreeNodeVisitor target;
+        private final HashMap<String, RecordingVisitor> anchors = new HashMap<>();
+        private final ArrayList<RecordingVisitor> recording = new ArrayList<>();
+
+        private Anchors(ITreeNodeVisitor target) {
+            this.target = target;
+        }
+
+        // start recording with the next event
+        private void anchor(String name) {
+            if (name == null)
+                return;
+            RecordingVisitor recorder = new RecordingVisitor();
+            anchors.put(name, recorder);
+            recording.add(recorder);
+        }
+
+        // a complete recording or null, recursive references are not supported
+        private RecordingVisitor get(String name) {
+            RecordingVisitor recorder = anchors.get(name);
+            return recorder != null && recorder.isComplete() ? recorder : null;
+        }
+
+        @Override
+        public void startObject(String name) {
+            target.startObject(name);
+            for (RecordingVisitor recorder : recording)
+                recorder.startObject(name);
+        }
+
+        @Override
+        public void endObject() {
+            target.endObject();
+            for (RecordingVisitor recorder : recording)
+                recorder.endObject();
+            recording.removeIf(RecordingVisitor::isComplete);
+        }
+
+        @Override
+        public void startArray(String name) {
+            target.startArray(name);
+            for (RecordingVisitor recorder : recording)
+                recorder.startArray(name);
+        }
+
+        @Override
+        public void endArray() {
+            target.endArray();
+            for (RecordingVisitor recorder : recording)
+                recorder.endArray();
+            recording.removeIf(RecordingVisitor::isComplete);
+        }
+
+        @Override
+        public void value(String name, Object value) {
+            target.value(name, value);
+            for (RecordingVisitor recorder : recording)
+                recorder.value(name, value);
+            recording.removeIf(RecordingVisitor::isComplete);
+        }
+    }
+
+    private static class Level {
+        private final boolean mapping;
+        // current key in a mapping, null if the next scalar is a key
+        private String key;
+
+        private Level(boolean mapping) {
+            this.mapping = mapping;
+        }
+    }
+
     private void fill(ITreeNode elemC, YMap elemY, int level) {
         if (level > 100)
             throw new TooDeepStructuresException();
@@ -0,0 +1,289 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Concurrent map with soft (or weak) referenced values. Reads are lock free. Values cleared by the garbage collector
+ * are registered in a reference queue and the entries are removed with the next access, the costs depend on the number
+ * of cleared values and not on the size of the map. Until then size() can count cleared entries. Null keys and values
+ * are not supported.
+ *
+ * @param <K>
+ *            Type of the keys
+ * @param <V>
+ *            Type of the values
+ */
+public class ConcurrentSoftHashMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+    private final ConcurrentHashMap<K, Ref<K, V>> map = new ConcurrentHashMap<>();
+    private final ReferenceQueue<V> queue = new ReferenceQueue<>();
+    private final boolean weak;
+
+    public ConcurrentSoftHashMap() {
+        this(false);
+    }
+
+    /**
+     * Create the map.
+     *
+     * @param weak
+     *            Use weak references instead of soft references, the values are removed as soon as they are not
+     *            referenced any more
+     */
+    public ConcurrentSoftHashMap(boolean weak) {
+        this.weak = weak;
+    }
+
+    private Ref<K, V> newRef(K key, V value) {
+        Objects.requireNonNull(value);
+        return weak ? new WeakRef<>(key, value, queue) : new SoftRef<>(key, value, queue);
+    }
+
+    /**
+     * Remove the entries of all cleared values.
+     */
+    @SuppressWarnings("unchecked")
+    public void cleanup() {
+        Reference<? extends V> ref;
+        while ((ref = queue.poll()) != null)
+            map.remove(((Ref<K, V>) ref).getKey(), ref);
+    }
+
+    @Override
+    public int size() {
+        cleanup();
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        cleanup();
+        return map.isEmpty();
+    }
+
+    @Override
+    public V get(Object key) {
+        cleanup();
+        Ref<K, V> ref = map.get(key);
+        if (ref == null)
+            return null;
+        V value = ref.get();
+        if (value == null)
+            map.remove(key, ref);
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        cleanup();
+        Ref<K, V> old = map.put(key, newRef(key, value));
+        return old == null ? null : old.get();
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        cleanup();
+        Ref<K, V> ref = newRef(key, value);
+        while (true) {
+            Ref<K, V> current = map.putIfAbsent(key, ref);
+            if (current == null)
+                return null;
+            V old = current.get();
+            if (old != null)
+                return old;
+            if (map.replace(key, current, ref))
+                return null;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V value = get(key);
+        if (value != null)
+            return value;
+        // hold the values strong until they are returned
+        Object[] out = new Object[1];
+        map.compute(key, (k, ref) -> {
+            V current = ref == null ? null : ref.get();
+            if (current != null) {
+                out[0] = current;
+                return ref;
+            }
+            V created = mappingFunction.apply(k);
+            out[0] = created;
+            return created == null ? null : newRef(k, created);
+        });
+        return (V) out[0];
+    }
+
+    @Override
+    public V remove(Object key) {
+        cleanup();
+        Ref<K, V> ref = map.remove(key);
+        return ref == null ? null : ref.get();
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        cleanup();
+        Ref<K, V> ref = map.get(key);
+        return ref != null && value != null && value.equals(ref.get()) && map.remove(key, ref);
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        cleanup();
+        Ref<K, V> ref = map.get(key);
+        return ref != null && oldValue != null && oldValue.equals(ref.get())
+                && map.replace(key, ref, newRef(key, newValue));
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        cleanup();
+        Ref<K, V> next = newRef(key, value);
+        while (true) {
+            Ref<K, V> ref = map.get(key);
+            V old = ref == null ? null : ref.get();
+            if (old == null)
+                return null;
+            if (map.replace(key, ref, next))
+                return old;
+        }
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+        cleanup();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        cleanup();
+        return new EntrySet();
+    }
+
+    public boolean isWeak() {
+        return weak;
+    }
+
+    private interface Ref<K, V> {
+        K getKey();
+
+        V get();
+    }
+
+    private static final class SoftRef<K, V> extends SoftReference<V> implements Ref<K, V> {
+        private final K key;
+
+        SoftRef(K key, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+    }
+
+    private static final class WeakRef<K, V> extends WeakReference<V> implements Ref<K, V> {
+        private final K key;
+
+        WeakRef(K key, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            Iterator<Map.Entry<K, Ref<K, V>>> iter = map.entrySet().iterator();
+            return new Iterator<Map.Entry<K, V>>() {
+                private Map.Entry<K, V> next;
+                private Map.Entry<K, V> current;
+
+                @Override
+                public boolean hasNext() {
+                    // skip cleared values, the value is hold strong by the entry
+                    while (next == null && iter.hasNext()) {
+                        Map.Entry<K, Ref<K, V>> entry = iter.next();
+                        V value = entry.getValue().get();
+                        if (value != null)
+                            next = new MapEntry<>(entry.getKey(), value);
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public Map.Entry<K, V> next() {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+                    current = next;
+                    next = null;
+                    return current;
+                }
+
+                @Override
+                public void remove() {
+                    if (current == null)
+                        throw new IllegalStateException();
+                    ConcurrentSoftHashMap.this.remove(current.getKey(), current.getValue());
+                    current = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public void clear() {
+            ConcurrentSoftHashMap.this.clear();
+        }
+    }
+}
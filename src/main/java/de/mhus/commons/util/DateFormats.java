@@ -0,0 +1,329 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.util;
+
+import de.mhus.commons.tools.MSystem;
+
+import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Immutable and thread safe date formatting and parsing based on java.time. Formatters are created once and cached by
+ * pattern and locale, the time zone is taken from the formatted value. Calendars created here use the gregorian rules
+ * for all dates, like java.time does.
+ */
+public final class DateFormats {
+
+    public static final int CFG_CACHE_SIZE = MSystem.getEnv(DateFormats.class, "cacheSize", 200);
+
+    /** yyyy-MM-dd'T'HH:mm:ss */
+    public static final DateTimeFormatter ISO8601 = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss", Locale.ROOT);
+    /** yyyy-MM-dd */
+    public static final DateTimeFormatter ISO_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd", Locale.ROOT);
+    /** yyyy-MM-dd HH:mm:ss */
+    public static final DateTimeFormatter ISO_DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss",
+            Locale.ROOT);
+    /** yyyyMMddHHmmss */
+    public static final DateTimeFormatter FILE = DateTimeFormatter.ofPattern("yyyyMMddHHmmss", Locale.ROOT);
+    /** HH:mm */
+    public static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm", Locale.ROOT);
+    /** HH:mm:ss */
+    public static final DateTimeFormatter TIME_SECONDS = DateTimeFormatter.ofPattern("HH:mm:ss", Locale.ROOT);
+    /** dd.MM.yyyy */
+    public static final DateTimeFormatter GERMAN_DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy", Locale.ROOT);
+    /** EEE, dd MMM yyyy HH:mm:ss z in GMT */
+    public static final DateTimeFormatter HTTP_HEADER = DateTimeFormatter
+            .ofPattern("EEE, dd MMM yyyy HH:mm:ss z", Locale.US).withZone(ZoneId.of("GMT"));
+
+    private static final Date GREGORIAN_CHANGE = new Date(Long.MIN_VALUE);
+    private static final ConcurrentHashMap<Key, DateTimeFormatter> formatters = new ConcurrentHashMap<>();
+    private static final ThreadLocal<HashMap<Key, SimpleDateFormat>> simpleFormats = ThreadLocal
+            .withInitial(HashMap::new);
+
+    private DateFormats() {
+    }
+
+    /**
+     * Format the date in the time zone.
+     *
+     * @param formatter
+     *            The formatter
+     * @param date
+     *            The date
+     * @param tz
+     *            The time zone or null for the default time zone
+     *
+     * @return The formatted date
+     */
+    public static String format(DateTimeFormatter formatter, Date date, TimeZone tz) {
+        return format(formatter, date.getTime(), tz);
+    }
+
+    public static String format(DateTimeFormatter formatter, long millis, TimeZone tz) {
+        ZoneId zone = tz == null ? ZoneId.systemDefault() : tz.toZoneId();
+        return formatter.format(Instant.ofEpochMilli(millis).atZone(zone));
+    }
+
+    /**
+     * Return a cached formatter for the pattern.
+     *
+     * @param pattern
+     *            Pattern as used by DateTimeFormatter
+     * @param locale
+     *            The locale or null for the default locale
+     *
+     * @return The formatter
+     */
+    public static DateTimeFormatter getFormatter(String pattern, Locale locale) {
+        if (locale == null)
+            locale = Locale.getDefault();
+        Locale l = locale;
+        return cached(new Key(pattern, locale), () -> DateTimeFormatter.ofPattern(pattern, l));
+    }
+
+    /**
+     * Return a cached short date formatter for the locale. For Germany dd.MM.yyyy is used.
+     *
+     * @param locale
+     *            The locale or null for the default locale
+     *
+     * @return The formatter
+     */
+    public static DateTimeFormatter getLocaleDateFormatter(Locale locale) {
+        if (locale == null)
+            locale = Locale.getDefault();
+        if (Locale.GERMANY.equals(locale))
+            return GERMAN_DATE;
+        Locale l = locale;
+        return cached(new Key(null, locale), () -> DateTimeFormatter.ofLocalizedDate(FormatStyle.SHORT).withLocale(l));
+    }
+
+    /**
+     * Return a SimpleDateFormat for the pattern, cached per thread. The instance is set to the current default time
+     * zone and must not be passed to other threads.
+     *
+     * @param pattern
+     *            Pattern as used by SimpleDateFormat
+     *
+     * @return The format of the current thread
+     */
+    public static SimpleDateFormat getSimpleDateFormat(String pattern) {
+        HashMap<Key, SimpleDateFormat> map = simpleFormats.get();
+        Key key = new Key(pattern, Locale.getDefault(Locale.Category.FORMAT));
+        SimpleDateFormat format = map.get(key);
+        if (format == null) {
+            if (map.size() >= CFG_CACHE_SIZE)
+                map.clear();
+            format = new SimpleDateFormat(pattern, key.locale);
+            map.put(key, format);
+        }
+        format.setTimeZone(TimeZone.getDefault());
+        return format;
+    }
+
+    private static DateTimeFormatter cached(Key key, Supplier<DateTimeFormatter> creator) {
+        DateTimeFormatter formatter = formatters.get(key);
+        if (formatter != null)
+            return formatter;
+        formatter = creator.get();
+        if (formatters.size() >= CFG_CACHE_SIZE)
+            formatters.clear();
+        formatters.put(key, formatter);
+        return formatter;
+    }
+
+    /**
+     * Create a calendar in the time zone. In difference to Calendar.getInstance() the calendar is always gregorian and
+     * not locale specific.
+     *
+     * @param tz
+     *            The time zone or null for the default time zone
+     *
+     * @return A new calendar set to the current time
+     */
+    public static Calendar newCalendar(TimeZone tz) {
+        GregorianCalendar c = tz == null ? new GregorianCalendar() : new GregorianCalendar(tz);
+        c.setGregorianChange(GREGORIAN_CHANGE);
+        return c;
+    }
+
+    /**
+     * Create a calendar for the date in the zone of the date.
+     *
+     * @param date
+     *            The date
+     *
+     * @return A new calendar
+     */
+    public static Calendar toCalendar(ZonedDateTime date) {
+        Calendar c = newCalendar(TimeZone.getTimeZone(date.getZone()));
+        c.setTimeInMillis(date.toInstant().toEpochMilli());
+        return c;
+    }
+
+    /**
+     * Parse strict ISO-8601 like dates without creating sub strings. Accepted is yyyy-MM-dd[(T| |_)HH:mm[:ss[.S]][
+     * ][Z|+HH[:mm]|-HH[:mm]]].
+     *
+     * @param in
+     *            The string to parse, must be trimmed
+     * @param zone
+     *            Zone of dates without offset or null for the default zone
+     *
+     * @return The date or null if the string is not in the expected format or is not a valid date
+     */
+    public static ZonedDateTime parseIso8601(CharSequence in, ZoneId zone) {
+        int len = in.length();
+        if (len < 10 || in.charAt(4) != '-' || in.charAt(7) != '-')
+            return null;
+        int year = digits(in, 0, 4);
+        int month = digits(in, 5, 2);
+        int day = digits(in, 8, 2);
+        if (year < 0 || month < 0 || day < 0)
+            return null;
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int nano = 0;
+        ZoneId offset = null;
+        int pos = 10;
+        if (pos < len) {
+            char c = in.charAt(pos);
+            if (c != 'T' && c != ' ' && c != '_' || len < pos + 6 || in.charAt(pos + 3) != ':')
+                return null;
+            hour = digits(in, pos + 1, 2);
+            minute = digits(in, pos + 4, 2);
+            if (hour < 0 || minute < 0)
+                return null;
+            pos += 6;
+            if (pos < len && in.charAt(pos) == ':') {
+                second = digits(in, pos + 1, 2);
+                if (second < 0)
+                    return null;
+                pos += 3;
+                if (pos < len && (in.charAt(pos) == '.' || in.charAt(pos) == ',')) {
+                    pos++;
+                    int cnt = 0;
+                    while (pos < len && cnt < 9 && isDigit(in.charAt(pos))) {
+                        nano = nano * 10 + (in.charAt(pos) - '0');
+                        pos++;
+                        cnt++;
+                    }
+                    if (cnt == 0)
+                        return null;
+                    for (int i = cnt; i < 9; i++)
+                        nano *= 10;
+                }
+            }
+            if (pos < len && in.charAt(pos) == ' ')
+                pos++;
+            if (pos < len) {
+                c = in.charAt(pos);
+                if (c == 'Z' && pos == len - 1) {
+                    offset = ZoneOffset.UTC;
+                    pos++;
+                } else if (c == '+' || c == '-') {
+                    int sign = c == '-' ? -1 : 1;
+                    pos++;
+                    int hd = pos < len - 1 && isDigit(in.charAt(pos + 1)) ? 2 : 1;
+                    int oh = digits(in, pos, hd);
+                    pos += hd;
+                    int om = 0;
+                    if (pos < len && in.charAt(pos) == ':')
+                        pos++;
+                    if (pos < len) {
+                        om = digits(in, pos, 2);
+                        pos += 2;
+                    }
+                    if (oh < 0 || om < 0)
+                        return null;
+                    try {
+                        offset = ZoneOffset.ofHoursMinutes(sign * oh, sign * om);
+                    } catch (DateTimeException e) {
+                        return null;
+                    }
+                }
+            }
+            if (pos != len)
+                return null;
+        }
+        try {
+            LocalDateTime local = LocalDateTime.of(year, month, day, hour, minute, second, nano);
+            if (offset == null)
+                offset = zone == null ? ZoneId.systemDefault() : zone;
+            return ZonedDateTime.of(local, offset);
+        } catch (DateTimeException e) {
+            // invalid values, let the lenient parser decide
+            return null;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int digits(CharSequence in, int start, int cnt) {
+        if (start + cnt > in.length())
+            return -1;
+        int out = 0;
+        for (int i = start; i < start + cnt; i++) {
+            char c = in.charAt(i);
+            if (!isDigit(c))
+                return -1;
+            out = out * 10 + (c - '0');
+        }
+        return out;
+    }
+
+    private static final class Key {
+        private final String pattern;
+        private final Locale locale;
+
+        Key(String pattern, Locale locale) {
+            this.pattern = pattern;
+            this.locale = locale;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(pattern) * 31 + locale.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key o = (Key) obj;
+            return Objects.equals(pattern, o.pattern) && locale.equals(o.locale);
+        }
+    }
+}
@@ -19,18 +19,49 @@ import de.mhus.commons.lang.IRegistration;
 import de.mhus.commons.lang.IRegistry;
 import lombok.extern.slf4j.Slf4j;
 
-import java.lang.reflect.Method;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
+/**
+ * Handler to register listeners and fire events. The listeners are fired from a snapshot which is only created on
+ * register and unregister, fire() does not lock or allocate. Events are fired in the calling thread or, if set,
+ * asynchronous with an executor.
+ */
 @Slf4j
 public class MEventHandler<E> implements IRegistry<E> {
 
+    private static final Object NULL_EVENT = new Object();
+    private static final int DRAIN_BATCH = 1000;
+
     private HashMap<Consumer<E>, String> listeners = new HashMap<>();
     private WeakHashMap<Consumer<E>, String> weak = new WeakHashMap<>();
     private boolean weakHandler = false;
+    private volatile Slot[] snapshot = new Slot[0];
+    // a weak listener was cleared, the snapshot should be recreated
+    private volatile boolean dirty;
+    private volatile boolean metrics;
+
+    private volatile Executor executor;
+    private volatile boolean ordered;
+    private volatile ArrayBlockingQueue<Object> pending;
+    private volatile Semaphore permits;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    // set while the current thread dispatches asynchronous events of this handler
+    private final ThreadLocal<Boolean> dispatching = new ThreadLocal<>();
 
     /** Create the handler in normal mode. */
     public MEventHandler() {
@@ -61,8 +92,10 @@ public class MEventHandler<E> implements IRegistry<E> {
             return new Registration(listener);
         }
         synchronized (listeners) {
-            if (!contains(listener))
+            if (!contains(listener)) {
                 listeners.put(listener, "");
+                updateSnapshot();
+            }
         }
         return new Registration(listener);
     }
@@ -78,6 +111,7 @@ public class MEventHandler<E> implements IRegistry<E> {
         synchronized (listeners) {
             listeners.remove(listener);
             weak.remove(listener);
+            updateSnapshot();
         }
     }
 
@@ -91,6 +125,7 @@ public class MEventHandler<E> implements IRegistry<E> {
     public IRegistration registerWeak(Consumer<E> listener) {
         synchronized (listeners) {
             weak.put(listener, "");
+            updateSnapshot();
         }
         return new Registration(listener);
     }
@@ -104,7 +139,7 @@ public class MEventHandler<E> implements IRegistry<E> {
      * @return true if the listener is registered as normal or weak.
      */
     public boolean contains(Consumer<E> listener) {
-        synchronized (this) {
+        synchronized (listeners) {
             return listeners.containsKey(listener) || weak.containsKey(listener);
         }
     }
@@ -117,39 +152,60 @@ public class MEventHandler<E> implements IRegistry<E> {
      * @return All registered listeners
      */
     public Object[] getListenersArray() {
-        Object[] list = null;
-        synchronized (listeners) {
-            Object[] list1 = weakHandler ? null : listeners.keySet().toArray();
-            Object[] list2 = weak.keySet().toArray();
-            if (list1 == null)
-                list = list2;
-            else if (list2.length == 0)
-                list = list1;
-            else if (list1.length == 0)
-                list = list2;
-            else {
-                list = new Object[list1.length + list2.length];
-                System.arraycopy(list1, 0, list, 0, list1.length);
-                System.arraycopy(list2, 0, list, list1.length, list2.length);
-            }
+        Slot[] current = snapshot;
+        Object[] list = new Object[current.length];
+        int cnt = 0;
+        for (Slot slot : current) {
+            Object listener = slot.get();
+            if (listener != null)
+                list[cnt++] = listener;
         }
-        return list;
+        if (cnt == list.length)
+            return list;
+        cleanup();
+        return Arrays.copyOf(list, cnt);
     }
 
     /**
-     * Use this to iterate into the listeners and if you be sure the listeners do not try to change the event handler
-     * (register/unregister). This method will save resources if only normal or only weak listeners are registered.
+     * Return all registered (normal or weak) listeners.
      *
      * @return Iterable object for all listeners.
      */
+    @SuppressWarnings("unchecked")
     public Iterable<Consumer<E>> getListeners() {
-        if (weakHandler || listeners.size() == 0)
-            return weak.keySet();
-        if (weak.size() == 0)
-            return listeners.keySet();
-        LinkedList<Consumer<E>> ll = new LinkedList<>(listeners.keySet());
-        ll.addAll(weak.keySet());
-        return ll;
+        List<?> list = Arrays.asList(getListenersArray());
+        return (List<Consumer<E>>) list;
+    }
+
+    // must be called with lock on listeners
+    private void updateSnapshot() {
+        IdentityHashMap<Object, Slot> current = new IdentityHashMap<>();
+        for (Slot slot : snapshot) {
+            Object listener = slot.get();
+            if (listener != null)
+                current.put(listener, slot);
+        }
+        ArrayList<Slot> next = new ArrayList<>(listeners.size() + weak.size());
+        if (!weakHandler)
+            for (Consumer<E> listener : listeners.keySet())
+                next.add(reuse(current.get(listener), listener, false));
+        for (Consumer<E> listener : weak.keySet())
+            next.add(reuse(current.get(listener), listener, true));
+        dirty = false;
+        snapshot = next.toArray(new Slot[next.size()]);
+    }
+
+    private Slot reuse(Slot slot, Consumer<E> listener, boolean weakRef) {
+        if (slot != null && slot.isWeak() == weakRef)
+            return slot;
+        return new Slot(listener, weakRef);
+    }
+
+    private void cleanup() {
+        synchronized (listeners) {
+            if (dirty)
+                updateSnapshot();
+        }
     }
 
     /**
@@ -158,7 +214,9 @@ public class MEventHandler<E> implements IRegistry<E> {
      * @return the size
      */
     public int size() {
-        return listeners.size() + weak.size();
+        synchronized (listeners) {
+            return listeners.size() + weak.size();
+        }
     }
 
     /**
@@ -174,23 +232,271 @@ public class MEventHandler<E> implements IRegistry<E> {
         fire(null);
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Fire the event to all listeners. In asynchronous mode the method returns after the event is queued. If the
+     * maximum of pending events is reached, the caller is blocked until an event is processed. A listener firing from
+     * the dispatching thread is never blocked, if the limit is reached the event is processed in place.
+     *
+     * @param event
+     */
     public void fire(E event) {
-        for (Object obj : getListenersArray()) {
-            // Thread.startVirtualThread(() -> {
+        Executor ex = executor;
+        if (ex == null)
+            dispatch(event);
+        else if (ordered)
+            fireOrdered(ex, event);
+        else
+            fireUnordered(ex, event);
+    }
+
+    private void fireOrdered(Executor ex, E event) {
+        Object item = event == null ? NULL_EVENT : event;
+        try {
+            if (dispatching.get() != null) {
+                // waiting for the own drain would dead lock
+                if (!pending.offer(item)) {
+                    dispatch(event);
+                    return;
+                }
+            } else
+                pending.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.debug("fire of event {} interrupted", event);
+            return;
+        }
+        scheduleDrain(ex);
+    }
+
+    private void scheduleDrain(Executor ex) {
+        if (!draining.compareAndSet(false, true))
+            return;
+        try {
+            ex.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            drain();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void drain() {
+        Boolean outer = dispatching.get();
+        dispatching.set(Boolean.TRUE);
+        try {
+            Object item;
+            for (int i = 0; i < DRAIN_BATCH && (item = pending.poll()) != null; i++)
+                dispatch(item == NULL_EVENT ? null : (E) item);
+        } finally {
+            if (outer == null)
+                dispatching.remove();
+            draining.set(false);
+        }
+        // continue with events queued during the last poll or in a new task to be fair to other tasks
+        if (!pending.isEmpty()) {
+            Executor ex = executor;
+            if (ex == null)
+                drain();
+            else
+                scheduleDrain(ex);
+        }
+    }
+
+    private void fireUnordered(Executor ex, E event) {
+        Semaphore p = permits;
+        if (dispatching.get() != null) {
+            // the worker holds a permit, waiting for another one could dead lock
+            if (!p.tryAcquire()) {
+                dispatch(event);
+                return;
+            }
+        } else {
+            try {
+                p.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.debug("fire of event {} interrupted", event);
+                return;
+            }
+        }
+        Runnable task = () -> {
+            Boolean outer = dispatching.get();
+            dispatching.set(Boolean.TRUE);
+            try {
+                dispatch(event);
+            } finally {
+                if (outer == null)
+                    dispatching.remove();
+                p.release();
+            }
+        };
+        try {
+            ex.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatch(E event) {
+        boolean measure = metrics;
+        for (Slot slot : snapshot) {
+            Consumer<E> listener = (Consumer<E>) slot.get();
+            if (listener == null) {
+                dirty = true;
+                continue;
+            }
+            long start = measure ? System.nanoTime() : 0;
             try {
-                onFire((Consumer<E>) obj, event);
+                onFire(listener, event);
             } catch (Throwable t) {
-                LOGGER.debug("fire of event {} with {} failed", obj, event, t);
+                slot.statistics.errors.increment();
+                LOGGER.debug("fire of event {} with {} failed", listener, event, t);
             }
-            // });
+            slot.statistics.calls.increment();
+            if (measure)
+                slot.statistics.add(System.nanoTime() - start);
+        }
+        if (dirty)
+            cleanup();
+    }
+
+    /**
+     * Fire events in the calling thread. This is the default.
+     */
+    public void setSynchronous() {
+        executor = null;
+    }
+
+    /**
+     * Fire events asynchronous.
+     *
+     * @param executor
+     *            Executor for the listener calls or null for the common pool. If the executor rejects a task the
+     *            listeners are called in the firing thread.
+     * @param ordered
+     *            If true the events are processed one by one in the order they are fired, otherwise events can be
+     *            processed in parallel. The listeners of one event are always called one after the other.
+     * @param maxPending
+     *            Maximum number of queued or processed events, fire() blocks if the limit is reached
+     *
+     * @throws IllegalStateException
+     *             If more events are queued than the new maximum
+     */
+    public synchronized void setAsynchronous(Executor executor, boolean ordered, int maxPending) {
+        if (maxPending < 1)
+            throw new IllegalArgumentException("maxPending must be positive");
+        ArrayBlockingQueue<Object> old = pending;
+        if (old != null && old.size() > maxPending)
+            throw new IllegalStateException("more events are queued than the new maximum: " + old.size());
+        ArrayBlockingQueue<Object> next = new ArrayBlockingQueue<>(maxPending);
+        this.permits = new Semaphore(maxPending);
+        this.ordered = ordered;
+        this.executor = executor == null ? ForkJoinPool.commonPool() : executor;
+        this.pending = next;
+        if (old != null) {
+            // queued events are processed with the new settings, a running drain continues with the new queue
+            old.drainTo(next);
+            if (!next.isEmpty())
+                scheduleDrain(this.executor);
         }
     }
 
+    public boolean isAsynchronous() {
+        return executor != null;
+    }
+
+    /**
+     * Measure the processing time of each listener call.
+     *
+     * @param metrics
+     */
+    public void setMetrics(boolean metrics) {
+        this.metrics = metrics;
+    }
+
+    public boolean isMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Return the statistics of the listener. Calls and errors are always counted, the time only if metrics are enabled.
+     *
+     * @param listener
+     *
+     * @return The statistics or null if the listener is not registered
+     */
+    public ListenerStatistics getStatistics(Consumer<E> listener) {
+        for (Slot slot : snapshot)
+            if (slot.get() == listener)
+                return slot.statistics;
+        return null;
+    }
+
     public void onFire(Consumer<E> listener, E event) {
         listener.accept((E) event);
     }
 
+    private static final class Slot {
+        private final Object ref;
+        private final boolean weakRef;
+        private final ListenerStatistics statistics = new ListenerStatistics();
+
+        Slot(Object listener, boolean weakRef) {
+            this.ref = weakRef ? new WeakReference<>(listener) : listener;
+            this.weakRef = weakRef;
+        }
+
+        Object get() {
+            return weakRef ? ((WeakReference<?>) ref).get() : ref;
+        }
+
+        boolean isWeak() {
+            return weakRef;
+        }
+    }
+
+    public static final class ListenerStatistics {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void add(long time) {
+            nanos.add(time);
+            long max;
+            while (time > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, time))
+                ;
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        /**
+         * Summary processing time in nanoseconds, only measured if metrics are enabled.
+         */
+        public long getTotalNanos() {
+            return nanos.sum();
+        }
+
+        /**
+         * Longest processing time in nanoseconds, only measured if metrics are enabled.
+         */
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        @Override
+        public String toString() {
+            return "calls=" + getCalls() + ",errors=" + getErrors() + ",totalNanos=" + getTotalNanos() + ",maxNanos="
+                    + getMaxNanos();
+        }
+    }
+
     private class Registration implements IRegistration {
         private final Consumer<E> listener;
 
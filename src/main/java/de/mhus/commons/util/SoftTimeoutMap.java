@@ -15,296 +15,90 @@
  */
 package de.mhus.commons.util;
 
-import de.mhus.commons.tools.MPeriod;
-import de.mhus.commons.errors.NotSupportedException;
-
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-import java.util.function.BiConsumer;
-import java.util.function.BiFunction;
-import java.util.function.Function;
 
-public class SoftTimeoutMap<K, V> implements Map<K, V> {
+/**
+ * Thread safe map with a timeout for the entries, see TimeoutCache. The values are soft referenced and removed if the
+ * garbage collector clears them. Cleared references are registered in a reference queue and their entries are removed
+ * with the next access, no scan is needed. Access refreshes the timeout by default.
+ */
+public class SoftTimeoutMap<K, V> extends TimeoutCache<K, V> {
 
-    private Map<K, Container<V>> map = Collections.synchronizedMap(new HashMap<>());
-    private long timeout = MPeriod.MINUTE_IN_MILLISECONDS * 10;
-    private long lastCheck = System.currentTimeMillis();
-    private long checkTimeout = MPeriod.MINUTE_IN_MILLISECONDS * 10;
-    private Invalidator<K, V> invalidator;
-    private boolean refreshOnAccess = true;
+    private final ReferenceQueue<V> queue = new ReferenceQueue<>();
 
     public SoftTimeoutMap() {
+        setRefreshOnAccess(true);
     }
 
     public SoftTimeoutMap(long timeout) {
-        this.timeout = timeout;
-        this.checkTimeout = timeout;
+        this(timeout, true);
     }
 
     public SoftTimeoutMap(long timeout, boolean refreshOnAccess) {
-        this.timeout = timeout;
-        this.checkTimeout = timeout;
-        this.refreshOnAccess = refreshOnAccess;
+        super(timeout);
+        setRefreshOnAccess(refreshOnAccess);
     }
 
     public SoftTimeoutMap(long timeout, long checkTimeout, boolean refreshOnAccess) {
-        this.timeout = timeout;
-        this.checkTimeout = checkTimeout;
-        this.refreshOnAccess = refreshOnAccess;
-    }
-
-    public SoftTimeoutMap(long timeout, long checkTimeout, boolean refreshOnAccess, Invalidator<K, V> invalidator) {
-        this.timeout = timeout;
-        this.checkTimeout = checkTimeout;
-        this.refreshOnAccess = refreshOnAccess;
-        this.invalidator = invalidator;
-    }
-
-    @Override
-    public int size() {
-        return map.size();
-    }
-
-    @Override
-    public boolean isEmpty() {
-        return map.isEmpty();
-    }
-
-    @Override
-    public boolean containsKey(Object key) {
-        return map.containsKey(key);
-    }
-
-    @Override
-    public boolean containsValue(Object value) {
-        return map.containsValue(value);
-    }
-
-    @Override
-    public V get(Object key) {
-        doValidationCheck();
-        SoftTimeoutMap<K, V>.Container<V> ret = map.get(key);
-        if (ret == null)
-            return null;
-        if (ret.isTimeout()) {
-            remove(ret);
-            return null;
-        }
-        return ret.getValue();
-    }
-
-    public long getAccessCount(Object key) {
-        doValidationCheck();
-        SoftTimeoutMap<K, V>.Container<V> ret = map.get(key);
-        return ret == null ? -1 : ret.accessed;
-    }
-
-    public synchronized void doValidationCheck() {
-        if (MPeriod.isTimeOut(lastCheck, checkTimeout)) {
-            map.entrySet().removeIf(e -> {
-                return (invalidator != null && invalidator.isInvalid(e.getKey(), e.getValue().get(), e.getValue().time,
-                        e.getValue().accessed) || e.getValue().isTimeout());
-            });
-            lastCheck = System.currentTimeMillis();
-        }
-    }
-
-    @Override
-    public V put(K key, V value) {
-        doValidationCheck();
-        SoftTimeoutMap<K, V>.Container<V> ret = map.put(key, new Container<V>(value));
-        return ret == null ? null : ret.get();
-    }
-
-    @Override
-    public V remove(Object key) {
-        doValidationCheck();
-        SoftTimeoutMap<K, V>.Container<V> ret = map.remove(key);
-        return ret == null ? null : ret.get();
-    }
-
-    @Override
-    public void putAll(Map<? extends K, ? extends V> m) {
-        for (java.util.Map.Entry<? extends K, ? extends V> entry : m.entrySet())
-            put(entry.getKey(), entry.getValue());
-    }
-
-    @Override
-    public void clear() {
-        map.clear();
-    }
-
-    @Override
-    public Set<K> keySet() {
-        doValidationCheck();
-        return map.keySet();
-    }
-
-    @Override
-    public Collection<V> values() {
-        throw new NotSupportedException();
-    }
-
-    @Override
-    public Set<java.util.Map.Entry<K, V>> entrySet() {
-        doValidationCheck();
-        HashSet<java.util.Map.Entry<K, V>> out = new HashSet<>();
-        for (Map.Entry<K, Container<V>> entry : map.entrySet())
-            out.add(new MapEntry<K, V>(entry.getKey(), entry.getValue().get()));
-        return out;
-    }
-
-    @Override
-    public boolean equals(Object o) {
-        return map.equals(o);
-    }
-
-    @Override
-    public int hashCode() {
-        return map.hashCode();
-    }
-
-    @Override
-    public V getOrDefault(Object key, V defaultValue) {
-        V ret = get(key);
-        if (ret == null)
-            return defaultValue;
-        return ret;
-    }
-
-    @Override
-    public void forEach(BiConsumer<? super K, ? super V> action) {
-        throw new NotSupportedException();
-    }
-
-    @Override
-    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
-        throw new NotSupportedException();
-    }
-
-    @Override
-    public V putIfAbsent(K key, V value) {
-        throw new NotSupportedException();
-    }
-
-    @Override
-    public boolean remove(Object key, Object value) {
-        throw new NotSupportedException();
-    }
-
-    @Override
-    public boolean replace(K key, V oldValue, V newValue) {
-        throw new NotSupportedException();
-    }
-
-    @Override
-    public V replace(K key, V value) {
-        throw new NotSupportedException();
-    }
-
-    @Override
-    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
-        throw new NotSupportedException();
+        this(timeout, refreshOnAccess);
+        setCheckTimeout(checkTimeout);
     }
 
-    @Override
-    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
-        throw new NotSupportedException();
-    }
-
-    @Override
-    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
-        throw new NotSupportedException();
-    }
-
-    @Override
-    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
-        throw new NotSupportedException();
-    }
-
-    public long getTimeout() {
-        return timeout;
+    public SoftTimeoutMap(long timeout, long checkTimeout, boolean refreshOnAccess,
+            TimeoutCache.Invalidator<K, V> invalidator) {
+        this(timeout, checkTimeout, refreshOnAccess);
+        setInvalidator(invalidator);
     }
 
     /**
-     * Set the maximal life time for every entry. After the timeout the entry will be removed.
-     *
-     * @param timeout
-     *            timeout in ms
+     * Same as the constructor with TimeoutCache.Invalidator, kept for binary compatibility with the old Invalidator
+     * type.
      */
-    public void setTimeout(long timeout) {
-        this.timeout = timeout;
-    }
-
-    public long getCheckTimeout() {
-        return checkTimeout;
+    public SoftTimeoutMap(long timeout, long checkTimeout, boolean refreshOnAccess, Invalidator<K, V> invalidator) {
+        this(timeout, checkTimeout, refreshOnAccess, (TimeoutCache.Invalidator<K, V>) invalidator);
     }
 
     /**
-     * Set the time after a full check should be done. If the map is accesses after timeout a full check over all
-     * elements will be performed. Set to -1 to disable.
-     *
-     * @param checkTimeout
-     *            timeout in ms
+     * Same as setInvalidator(TimeoutCache.Invalidator), kept for binary compatibility with the old Invalidator type.
      */
-    public void setCheckTimeout(long checkTimeout) {
-        this.checkTimeout = checkTimeout;
+    public void setInvalidator(Invalidator<K, V> invalidator) {
+        setInvalidator((TimeoutCache.Invalidator<K, V>) invalidator);
     }
 
-    public Invalidator<K, V> getInvalidator() {
-        return invalidator;
+    @Override
+    protected Object wrap(K key, V value) {
+        return new KeyReference<>(key, value, queue);
     }
 
-    /**
-     * Set a function which can decide if the entry is no more valid.
-     *
-     * @param invalidator
-     */
-    public void setInvalidator(Invalidator<K, V> invalidator) {
-        this.invalidator = invalidator;
+    @Override
+    @SuppressWarnings("unchecked")
+    protected V unwrap(Object stored) {
+        return ((SoftReference<V>) stored).get();
     }
 
-    public boolean isRefreshOnAccess() {
-        return refreshOnAccess;
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void purge() {
+        Reference<? extends V> ref;
+        while ((ref = queue.poll()) != null)
+            removeStored(((KeyReference<K, V>) ref).key, ref);
     }
 
     /**
-     * Set to true if also get requests will reset the timeout. If set to false it will timeout even it was read.
-     * Default is true.
-     *
-     * @param refreshOnAccess
+     * @deprecated use TimeoutCache.Invalidator
      */
-    public void setRefreshOnAccess(boolean refreshOnAccess) {
-        this.refreshOnAccess = refreshOnAccess;
+    @Deprecated
+    public static interface Invalidator<K, V> extends TimeoutCache.Invalidator<K, V> {
     }
 
-    private class Container<Z> extends SoftReference<Z> {
-        long time = System.currentTimeMillis();
-        long accessed = 0;
+    private static final class KeyReference<K, V> extends SoftReference<V> {
+        private final K key;
 
-        public Container(Z value) {
-            super(value);
+        KeyReference(K key, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
         }
-
-        public Z getValue() {
-            if (isRefreshOnAccess())
-                time = System.currentTimeMillis();
-            accessed++;
-            return super.get();
-        }
-
-        boolean isTimeout() {
-            return MPeriod.isTimeOut(time, timeout) || super.get() == null;
-        }
-    }
-
-    public static interface Invalidator<K, V> {
-
-        boolean isInvalid(K key, V value, long time, long accessed);
     }
 }
@@ -0,0 +1,603 @@
+/**
+ * Copyright (C) 2002 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.commons.util;
+
+import de.mhus.commons.tools.MPeriod;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Thread safe map with timeout for the entries. Reads are lock free. All entries have the same timeout, so the entries
+ * are kept in a list ordered by the time of the last write (or access if refreshOnAccess is set) and expired entries
+ * are removed from the head of the list in amortized constant time. Entries refreshed by an access are moved to the end
+ * of the list when they reach the head.
+ *
+ * <p>
+ * If a maximum size is set, entries not accessed since they were last checked are evicted first (second chance).
+ * Entries validated by an Invalidator are checked with a full scan once per check timeout. Null keys are not supported.
+ *
+ * @param <K>
+ *            Type of the keys
+ * @param <V>
+ *            Type of the values
+ */
+public class TimeoutCache<K, V> extends AbstractMap<K, V> {
+
+    private final ConcurrentHashMap<K, Node<K>> map = new ConcurrentHashMap<>();
+    // ordered list of the nodes, the head is the oldest entry, guarded by lock
+    private final Node<K> head = new Node<>(null, null, 0);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicBoolean cleaning = new AtomicBoolean();
+    private volatile long timeout = MPeriod.MINUTE_IN_MILLISECONDS * 10;
+    private volatile long checkTimeout = MPeriod.MINUTE_IN_MILLISECONDS * 10;
+    private volatile long lastCheck;
+    private volatile int maxSize = 0;
+    private volatile Invalidator<K, V> invalidator;
+    private volatile boolean refreshOnAccess;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public TimeoutCache() {
+        head.prev = head;
+        head.next = head;
+        lastCheck = currentTime();
+    }
+
+    public TimeoutCache(long timeout) {
+        this();
+        this.timeout = timeout;
+        this.checkTimeout = timeout;
+    }
+
+    public TimeoutCache(long timeout, int maxSize) {
+        this(timeout);
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public int size() {
+        purge();
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        purge();
+        return map.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        purge();
+        Node<K> node = map.get(key);
+        return node != null && isValid(node, currentTime());
+    }
+
+    @Override
+    public V get(Object key) {
+        purge();
+        long now = currentTime();
+        Node<K> node = map.get(key);
+        V value = node == null ? null : unwrap(node.value);
+        if (value == null || isExpired(node.key, value, node.time, node.accessed, now)) {
+            misses.increment();
+            if (node != null && removeNode(node))
+                expirations.increment();
+            checkCleanup(now);
+            return null;
+        }
+        if (refreshOnAccess)
+            node.time = now;
+        node.used = true;
+        ACCESSED.incrementAndGet(node);
+        hits.increment();
+        checkCleanup(now);
+        return value;
+    }
+
+    public long getAccessCount(Object key) {
+        Node<K> node = map.get(key);
+        return node == null ? -1 : node.accessed;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        purge();
+        long now = currentTime();
+        Node<K> node = new Node<>(key, wrap(key, value), now);
+        Node<K> old = map.put(key, node);
+        link(node, old, now);
+        return old == null ? null : unwrap(old.value);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return computeIfAbsent(key, k -> value);
+    }
+
+    /**
+     * Return the value or compute and put it atomically if not present or expired.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V value = get(key);
+        if (value != null)
+            return value;
+        long now = currentTime();
+        Object[] out = new Object[2];
+        map.compute(key, (k, node) -> {
+            if (node != null && isValid(node, now)) {
+                out[0] = unwrap(node.value);
+                return node;
+            }
+            V created = mappingFunction.apply(k);
+            if (created == null)
+                return node;
+            Node<K> next = new Node<>(k, wrap(k, created), now);
+            out[0] = created;
+            out[1] = next;
+            return next;
+        });
+        if (out[1] != null)
+            // a replaced expired node is removed by the next cleanup
+            link((Node<K>) out[1], null, now);
+        return (V) out[0];
+    }
+
+    @Override
+    public V remove(Object key) {
+        purge();
+        Node<K> node = map.remove(key);
+        if (node == null)
+            return null;
+        unlink(node);
+        return unwrap(node.value);
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            map.clear();
+            // detach the nodes, a concurrent remove of an old node must not change the new list
+            Node<K> node = head.next;
+            while (node != head) {
+                Node<K> next = node.next;
+                node.prev = null;
+                node.next = null;
+                node = next;
+            }
+            head.prev = head;
+            head.next = head;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return new KeySet();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        purge();
+        long now = currentTime();
+        HashSet<Map.Entry<K, V>> out = new HashSet<>();
+        for (Node<K> node : map.values()) {
+            V value = unwrap(node.value);
+            if (value != null && !isExpired(node.key, value, node.time, node.accessed, now))
+                out.add(new MapEntry<K, V>(node.key, value));
+        }
+        return out;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Map.Entry<K, V> entry : entrySet())
+            action.accept(entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * Remove all expired and invalid entries.
+     */
+    public void doValidationCheck() {
+        purge();
+        long now = currentTime();
+        lastCheck = now;
+        cleanup(now);
+    }
+
+    /**
+     * Return true if the entry is expired. The default implementation checks the timeout and the invalidator.
+     *
+     * @param key
+     * @param value
+     * @param time
+     *            Time of the last write or access if refreshOnAccess is set
+     * @param accessed
+     *            Number of reads
+     * @param now
+     *            Current time
+     *
+     * @return true if the entry should be removed
+     */
+    protected boolean isExpired(K key, V value, long time, long accessed, long now) {
+        if (now - time > timeout)
+            return true;
+        Invalidator<K, V> inv = invalidator;
+        return inv != null && inv.isInvalid(key, value, time, accessed);
+    }
+
+    /**
+     * Return true if the entries must be checked with a full scan. This is the case if the entries can become invalid
+     * independent of the time.
+     *
+     * @return true to scan all entries once per check timeout
+     */
+    protected boolean isScanRequired() {
+        return invalidator != null;
+    }
+
+    /**
+     * Convert the value before it is stored, e.g. in a reference.
+     */
+    protected Object wrap(K key, V value) {
+        return value;
+    }
+
+    /**
+     * Convert the stored value back. Return null if the value is no more available.
+     */
+    @SuppressWarnings("unchecked")
+    protected V unwrap(Object stored) {
+        return (V) stored;
+    }
+
+    /**
+     * Called before each access to remove entries which are known to be gone, e.g. values of cleared references. Use
+     * removeStored(key, stored) to remove them.
+     */
+    protected void purge() {
+    }
+
+    /**
+     * Remove the entry if it still holds the stored value.
+     *
+     * @param key
+     * @param stored
+     *            The value as returned by wrap()
+     */
+    protected void removeStored(K key, Object stored) {
+        Node<K> node = map.get(key);
+        if (node != null && node.value == stored && removeNode(node))
+            expirations.increment();
+    }
+
+    /**
+     * Return the current time in milliseconds, used for all timeouts.
+     */
+    protected long currentTime() {
+        return System.currentTimeMillis();
+    }
+
+    private boolean isValid(Node<K> node, long now) {
+        V value = unwrap(node.value);
+        return value != null && !isExpired(node.key, value, node.time, node.accessed, now);
+    }
+
+    private void checkCleanup(long now) {
+        long check = checkTimeout;
+        if (check < 0 || now - lastCheck <= check || !cleaning.compareAndSet(false, true))
+            return;
+        try {
+            lastCheck = now;
+            cleanup(now);
+        } finally {
+            cleaning.set(false);
+        }
+    }
+
+    private void cleanup(long now) {
+        lock.lock();
+        try {
+            expire(now);
+        } finally {
+            lock.unlock();
+        }
+        if (isScanRequired()) {
+            for (Node<K> node : map.values())
+                if (!isValid(node, now) && removeNode(node))
+                    expirations.increment();
+        }
+    }
+
+    private boolean removeNode(Node<K> node) {
+        boolean removed = map.remove(node.key, node);
+        unlink(node);
+        return removed;
+    }
+
+    private void link(Node<K> node, Node<K> old, long now) {
+        lock.lock();
+        try {
+            if (old != null)
+                unlinkLocked(old);
+            if (map.get(node.key) != node)
+                return; // already removed or replaced
+            node.listTime = node.time;
+            appendLocked(node);
+            expire(now);
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void unlink(Node<K> node) {
+        lock.lock();
+        try {
+            unlinkLocked(node);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // remove expired nodes from the head, stops at the first valid node
+    private void expire(long now) {
+        Node<K> node;
+        while ((node = head.next) != head) {
+            if (map.get(node.key) != node) {
+                unlinkLocked(node);
+                continue;
+            }
+            V value = unwrap(node.value);
+            if (value == null || isExpired(node.key, value, node.time, node.accessed, now)) {
+                if (map.remove(node.key, node))
+                    expirations.increment();
+                unlinkLocked(node);
+                continue;
+            }
+            long time = node.time;
+            if (time == node.listTime)
+                break;
+            // refreshed by an access, move to the position of the access
+            node.listTime = time;
+            unlinkLocked(node);
+            appendLocked(node);
+        }
+    }
+
+    private void evict() {
+        int max = maxSize;
+        if (max <= 0)
+            return;
+        int chances = map.size();
+        Node<K> node;
+        while (map.size() > max && (node = head.next) != head) {
+            if (map.get(node.key) != node) {
+                unlinkLocked(node);
+                continue;
+            }
+            unlinkLocked(node);
+            if (node.used && chances-- > 0) {
+                node.used = false;
+                appendLocked(node);
+                continue;
+            }
+            if (map.remove(node.key, node))
+                evictions.increment();
+        }
+    }
+
+    private void appendLocked(Node<K> node) {
+        Node<K> last = head.prev;
+        node.prev = last;
+        node.next = head;
+        last.next = node;
+        head.prev = node;
+    }
+
+    private void unlinkLocked(Node<K> node) {
+        if (node.prev == null)
+            return;
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Set the maximal life time for every entry. After the timeout the entry will be removed.
+     *
+     * @param timeout
+     *            timeout in ms
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public long getCheckTimeout() {
+        return checkTimeout;
+    }
+
+    /**
+     * Set the time after a check for expired entries should be done if the map is only read. If an invalidator is set
+     * the check is a full scan over all entries. Set to -1 to disable.
+     *
+     * @param checkTimeout
+     *            timeout in ms
+     */
+    public void setCheckTimeout(long checkTimeout) {
+        this.checkTimeout = checkTimeout;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Set the maximum number of entries, 0 for no limit.
+     *
+     * @param maxSize
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public Invalidator<K, V> getInvalidator() {
+        return invalidator;
+    }
+
+    /**
+     * Set a function which can decide if the entry is no more valid.
+     *
+     * @param invalidator
+     */
+    public void setInvalidator(Invalidator<K, V> invalidator) {
+        this.invalidator = invalidator;
+    }
+
+    public boolean isRefreshOnAccess() {
+        return refreshOnAccess;
+    }
+
+    /**
+     * Set to true if also get requests will reset the timeout. If set to false it will timeout even it was read.
+     *
+     * @param refreshOnAccess
+     */
+    public void setRefreshOnAccess(boolean refreshOnAccess) {
+        this.refreshOnAccess = refreshOnAccess;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Return the number of entries removed because the maximum size was reached.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Return the number of entries removed because they timed out or are invalid.
+     */
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "TimeoutCache[size=" + map.size() + ",hits=" + getHits() + ",misses=" + getMisses() + ",evictions="
+                + getEvictions() + ",expirations=" + getExpirations() + "]";
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<Node> ACCESSED = AtomicLongFieldUpdater.newUpdater(Node.class,
+            "accessed");
+
+    private static final class Node<K> {
+        final K key;
+        final Object value;
+        volatile long time;
+        volatile long accessed;
+        volatile boolean used;
+        // guarded by lock
+        long listTime;
+        Node<K> prev;
+        Node<K> next;
+
+        Node(K key, Object value, long time) {
+            this.key = key;
+            this.value = value;
+            this.time = time;
+        }
+    }
+
+    private class KeySet extends AbstractSet<K> {
+
+        @Override
+        public Iterator<K> iterator() {
+            Iterator<K> iter = map.keySet().iterator();
+            return new Iterator<K>() {
+                private K current;
+
+                @Override
+                public boolean hasNext() {
+                    return iter.hasNext();
+                }
+
+                @Override
+                public K next() {
+                    current = iter.next();
+                    return current;
+                }
+
+                @Override
+                public void remove() {
+                    TimeoutCache.this.remove(current);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return map.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return TimeoutCache.this.remove(o) != null;
+        }
+    }
+
+    public static interface Invalidator<K, V> {
+
+        boolean isInvalid(K key, V value, long time, long accessed);
+    }
+}
@@ -23,12 +23,14 @@ import de.mhus.commons.tools.MMath;
 import de.mhus.commons.tools.MString;
 import de.mhus.commons.crypt.AsyncKey;
 import de.mhus.commons.crypt.Blowfish;
+import de.mhus.commons.crypt.ChunkedAes;
 import de.mhus.commons.crypt.CipherBlockAdd;
 import de.mhus.commons.crypt.CipherBlockRotate;
 import de.mhus.commons.crypt.CipherInputStream;
 import de.mhus.commons.crypt.CipherOutputStream;
 import de.mhus.commons.crypt.MBouncy;
 import de.mhus.commons.crypt.MCrypt;
+import de.mhus.commons.crypt.MultiDigest;
 import de.mhus.commons.crypt.Twofish;
 import de.mhus.commons.crypt.pem.PemUtil;
 import de.mhus.commons.util.Base64;
@@ -42,13 +44,23 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.InvalidKeyException;
 import java.security.KeyPair;
+import java.security.MessageDigest;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class CryptTest extends TestCase {
@@ -789,4 +801,201 @@ public class CryptTest extends TestCase {
 
         assertFalse(valid2);
     }
+
+    @Test
+    public void testMCipherStreamBulk() throws IOException {
+        String pass = "passphrase123";
+        byte[] buf = new byte[100000];
+        for (int i = 0; i < buf.length; i++)
+            buf[i] = (byte) (i * 31 + i / 7);
+        byte[] org = buf.clone();
+
+        // bulk and single byte encoding are the same for the cipher blocks
+        CipherBlockAdd add1 = new CipherBlockAdd(MString.toBytes(pass));
+        CipherBlockAdd add2 = new CipherBlockAdd(MString.toBytes(pass));
+        byte[] bulk = buf.clone();
+        add1.encode(bulk, 1, bulk.length - 1);
+        for (int i = 1; i < buf.length; i++)
+            assertEquals(add2.encode(buf[i]), bulk[i]);
+
+        // write in chunks of different size, the data of the caller is not changed
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (OutputStream cos = MCrypt.createCipherOutputStream(os, pass)) {
+            int pos = 0;
+            for (int chunk = 1; pos < buf.length; chunk = chunk * 3 % 9973 + 1) {
+                int len = Math.min(chunk, buf.length - pos);
+                if (len == 1)
+                    cos.write(buf[pos]);
+                else
+                    cos.write(buf, pos, len);
+                pos += len;
+            }
+        }
+        assertTrue(Arrays.equals(org, buf));
+
+        // read bulk
+        byte[] copy = MFile
+                .readBinary(MCrypt.createCipherInputStream(new ByteArrayInputStream(os.toByteArray()), pass));
+        assertTrue(Arrays.equals(org, copy));
+
+        // read mixed
+        InputStream cis = MCrypt.createCipherInputStream(new ByteArrayInputStream(os.toByteArray()), pass);
+        ByteArrayOutputStream mixed = new ByteArrayOutputStream();
+        byte[] tmp = new byte[777];
+        while (true) {
+            int b = cis.read();
+            if (b < 0)
+                break;
+            mixed.write(b);
+            int len = cis.read(tmp, 0, tmp.length);
+            if (len < 0)
+                break;
+            mixed.write(tmp, 0, len);
+        }
+        assertTrue(Arrays.equals(org, mixed.toByteArray()));
+    }
+
+    @Test
+    public void testChunkedAes() throws IOException {
+        byte[] key = MBouncy.createRandom(32);
+        byte[] org = new byte[10123];
+        for (int i = 0; i < org.length; i++)
+            org[i] = (byte) (i * 13);
+        ChunkedAes aes = new ChunkedAes(key);
+        aes.setChunkSize(1000);
+        aes.setParallelism(2);
+
+        ByteArrayOutputStream enc = new ByteArrayOutputStream();
+        aes.encrypt(new ByteArrayInputStream(org), enc);
+        ByteArrayOutputStream dec = new ByteArrayOutputStream();
+        MBouncy.decryptAesGcmChunked(key, new ByteArrayInputStream(enc.toByteArray()), dec);
+        assertTrue(Arrays.equals(org, dec.toByteArray()));
+
+        // empty content
+        ByteArrayOutputStream empty = new ByteArrayOutputStream();
+        MBouncy.encryptAesGcmChunked(key, new ByteArrayInputStream(new byte[0]), empty);
+        dec = new ByteArrayOutputStream();
+        MBouncy.decryptAesGcmChunked(key, new ByteArrayInputStream(empty.toByteArray()), dec);
+        assertEquals(0, dec.size());
+
+        // modified and truncated content is detected
+        byte[] modified = enc.toByteArray();
+        modified[5000] ^= 1;
+        assertThrows(IOException.class,
+                () -> aes.decrypt(new ByteArrayInputStream(modified), new ByteArrayOutputStream()));
+        byte[] truncated = Arrays.copyOf(enc.toByteArray(), 16 + 1021 * 3);
+        assertThrows(IOException.class,
+                () -> aes.decrypt(new ByteArrayInputStream(truncated), new ByteArrayOutputStream()));
+        // the chunk size of the header is checked before it is used
+        byte[] huge = enc.toByteArray();
+        ByteBuffer.wrap(huge, 4, 4).putInt(Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> aes.decrypt(new ByteArrayInputStream(huge), new ByteArrayOutputStream()));
+        assertThrows(IllegalArgumentException.class, () -> aes.setChunkSize(ChunkedAes.CFG_MAX_CHUNK_SIZE + 1));
+
+        // files are compatible with streams
+        Path dir = Files.createTempDirectory("chunkedaes");
+        try {
+            Path plain = Files.write(dir.resolve("plain"), org);
+            Path encFile = dir.resolve("enc");
+            Path decFile = dir.resolve("dec");
+            try (FileChannel in = FileChannel.open(plain, StandardOpenOption.READ);
+                    FileChannel out = FileChannel.open(encFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                aes.encrypt(in, out);
+            }
+            dec = new ByteArrayOutputStream();
+            aes.decrypt(new ByteArrayInputStream(Files.readAllBytes(encFile)), dec);
+            assertTrue(Arrays.equals(org, dec.toByteArray()));
+
+            Files.write(encFile, enc.toByteArray());
+            try (FileChannel in = FileChannel.open(encFile, StandardOpenOption.READ);
+                    FileChannel out = FileChannel.open(decFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                aes.decrypt(in, out);
+            }
+            assertTrue(Arrays.equals(org, Files.readAllBytes(decFile)));
+        } finally {
+            for (String name : new String[] { "plain", "enc", "dec" })
+                Files.deleteIfExists(dir.resolve(name));
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testMultiDigest() throws Exception {
+        byte[] org = new byte[3 * 1024 * 1024 + 123];
+        for (int i = 0; i < org.length; i++)
+            org[i] = (byte) (i * 7 + i / 1000);
+        Path file = Files.createTempFile("multidigest", ".bin");
+        try {
+            Files.write(file, org);
+
+            // mapped file and direct buffer in one pass
+            MultiDigest digest = new MultiDigest("MD5", "SHA-256");
+            try (FileChannel channel = FileChannel.open(file)) {
+                digest.update(channel);
+            }
+            assertTrue(Arrays.equals(MessageDigest.getInstance("MD5").digest(org), digest.digest("MD5")));
+            assertTrue(Arrays.equals(MessageDigest.getInstance("SHA-256").digest(org), digest.digest("SHA-256")));
+            digest.update(ByteBuffer.allocateDirect(3).put(new byte[] { 1, 2, 3 }).flip());
+            assertTrue(Arrays.equals(MessageDigest.getInstance("MD5").digest(new byte[] { 1, 2, 3 }),
+                    digest.digest().get("MD5")));
+
+            try (FileChannel channel = FileChannel.open(file)) {
+                assertEquals(MCrypt.sha256(new ByteArrayInputStream(org)), MCrypt.sha256(channel));
+            }
+
+            // sign the file, validate the stream
+            KeyPair keys = MBouncy.generateEccKey(MBouncy.ECC_SPEC.PRIME256V1);
+            String signature;
+            try (FileChannel channel = FileChannel.open(file)) {
+                signature = MBouncy.createSignature(keys.getPrivate(), channel);
+            }
+            assertTrue(MBouncy.validateSignature(keys.getPublic(), new ByteArrayInputStream(org), signature));
+            org[100]++;
+            assertFalse(MBouncy.validateSignature(keys.getPublic(), new ByteArrayInputStream(org), signature));
+
+            // the tree hash depends on the chunk size only
+            try (FileChannel channel = FileChannel.open(file)) {
+                byte[] tree1 = MultiDigest.treeHash(channel, "SHA-256", 1024 * 1024, null);
+                assertEquals(org.length, channel.position());
+                ExecutorService executor = Executors.newFixedThreadPool(3);
+                try {
+                    channel.position(0);
+                    assertTrue(Arrays.equals(tree1, MultiDigest.treeHash(channel, "SHA-256", 1024 * 1024, executor)));
+                } finally {
+                    executor.shutdown();
+                }
+                channel.position(0);
+                assertFalse(Arrays.equals(tree1, MultiDigest.treeHash(channel, "SHA-256", 512 * 1024, null)));
+                // hashed from the current position like update()
+                channel.position(1000);
+                assertFalse(Arrays.equals(tree1, MultiDigest.treeHash(channel, "SHA-256", 1024 * 1024, null)));
+            }
+        } finally {
+            Files.delete(file);
+        }
+
+        // small file is read into the buffer, not mapped
+        byte[] small = Arrays.copyOf(org, 200 * 1024 + 7);
+        file = Files.createTempFile("multidigest", ".bin");
+        try {
+            Files.write(file, small);
+            MultiDigest digest = new MultiDigest("MD5", "SHA-256");
+            try (FileChannel channel = FileChannel.open(file)) {
+                channel.position(7);
+                digest.update(channel);
+                assertEquals(small.length, channel.position());
+                channel.position(0);
+                digest.update(channel);
+            }
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            md5.update(small, 7, small.length - 7);
+            md5.update(small);
+            assertTrue(Arrays.equals(md5.digest(), digest.digest("MD5")));
+            try (FileChannel channel = FileChannel.open(file)) {
+                assertEquals(MCrypt.sha256(new ByteArrayInputStream(small)), MCrypt.sha256(channel));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
 }
@@ -20,9 +20,18 @@ import de.mhus.commons.util.MEventHandler;
 import de.mhus.lib.test.util.TestCase;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /** Unit test for simple App. */
@@ -133,6 +142,111 @@ public class EventHandlerTest extends TestCase {
         assertTrue(l1.done);
     }
 
+    @Test
+    public void testAsynchronous() throws Exception {
+        MEventHandler<MyEvent> eh = new MEventHandler<MyEvent>();
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(100);
+        Consumer<MyEvent> l1 = e -> {
+            received.add(e.id());
+            latch.countDown();
+        };
+        Consumer<MyEvent> l2 = e -> {
+            throw new RuntimeException("test");
+        };
+        eh.register(l1);
+        eh.register(l2);
+        eh.setMetrics(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            eh.setAsynchronous(executor, true, 10);
+            assertTrue(eh.isAsynchronous());
+            for (int i = 0; i < 100; i++)
+                eh.fire(new MyEvent(String.valueOf(i)));
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            // statistics are updated after the listener returned, the order of the listeners is not defined
+            for (int i = 0; i < 1000
+                    && (eh.getStatistics(l1).getCalls() < 100 || eh.getStatistics(l2).getCalls() < 100); i++)
+                Thread.sleep(10);
+        } finally {
+            executor.shutdown();
+        }
+        for (int i = 0; i < 100; i++)
+            assertEquals(String.valueOf(i), received.get(i));
+
+        assertEquals(100, eh.getStatistics(l2).getErrors());
+        // snapshot is updated on unregister, statistics are kept for the remaining listeners
+        eh.unregister(l2);
+        assertEquals(1, eh.getListenersArray().length);
+        assertEquals(100, eh.getStatistics(l1).getCalls());
+        assertEquals(0, eh.getStatistics(l1).getErrors());
+        assertTrue(eh.getStatistics(l1).getTotalNanos() > 0);
+        assertNull(eh.getStatistics(l2));
+
+        eh.setSynchronous();
+        eh.fire(new MyEvent("sync"));
+        assertEquals("sync", received.get(100));
+    }
+
+    @Test
+    public void testAsynchronousReentrant() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (boolean ordered : new boolean[] { true, false }) {
+                MEventHandler<MyEvent> eh = new MEventHandler<MyEvent>();
+                CountDownLatch latch = new CountDownLatch(20);
+                // the listener fires from the only worker with a limit of one pending event
+                eh.register(e -> {
+                    latch.countDown();
+                    if (e.id().equals("0"))
+                        for (int i = 1; i < 20; i++)
+                            eh.fire(new MyEvent(String.valueOf(i)));
+                });
+                eh.setAsynchronous(executor, ordered, 1);
+                eh.fire(new MyEvent("0"));
+                assertTrue(latch.await(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testAsynchronousReconfigure() throws Exception {
+        MEventHandler<MyEvent> eh = new MEventHandler<MyEvent>();
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(6);
+        eh.register(e -> {
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(e.id());
+            latch.countDown();
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            eh.setAsynchronous(executor, true, 10);
+            for (int i = 0; i < 6; i++)
+                eh.fire(new MyEvent(String.valueOf(i)));
+            try {
+                eh.setAsynchronous(executor, true, 2);
+                throw new Exception("queued events dropped");
+            } catch (IllegalStateException e) {
+            }
+            // queued events are kept
+            eh.setAsynchronous(executor, true, 10);
+            gate.countDown();
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(List.of("0", "1", "2", "3", "4", "5"), received);
+    }
+
     public record MyEvent(String id) {
     }
 
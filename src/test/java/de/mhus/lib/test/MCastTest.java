@@ -15,18 +15,25 @@
  */
 package de.mhus.lib.test;
 
+import de.mhus.commons.cast.NumberParser;
 import de.mhus.commons.tools.MCast;
 import de.mhus.commons.tools.MDate;
+import de.mhus.commons.util.DateFormats;
 import de.mhus.lib.test.util.TestCase;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import java.io.UnsupportedEncodingException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
+import java.util.Random;
 import java.util.TimeZone;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -294,6 +301,19 @@ public class MCastTest extends TestCase {
 
         ud = (UUID) MCast.toType("a", UUID.class, null);
         assertNull(ud);
+
+        // resolved converters are cached per source and target class
+        assertEquals(TimeUnit.SECONDS, MCast.toType("SECONDS", TimeUnit.class, null));
+        assertEquals(TimeUnit.DAYS, MCast.toType("x", TimeUnit.class, TimeUnit.DAYS));
+        assertEquals(12, MCast.toType("12", int.class, null));
+        assertEquals(7, MCast.toType("x", int.class, 7));
+        int[] ints = (int[]) MCast.toType(new String[] { "1", "2" }, int[].class, null);
+        assertEquals(2, ints[1]);
+        long[] longs = (long[]) MCast.toType(Arrays.asList("3", 4), long[].class, null);
+        assertEquals(4L, longs[1]);
+        String[] strings = (String[]) MCast.toType("a;b", String[].class, null);
+        assertEquals("b", strings[1]);
+        assertNull(MCast.toType(new Object(), Calendar.class, null));
     }
 
     @Test
@@ -352,6 +372,44 @@ public class MCastTest extends TestCase {
         assertEquals(4294967295.01, MCast.todoubleEuropean("4.294.967.295,01", 0));
     }
 
+    @Test
+    public void testNumberParser() {
+        assertEquals(123, MCast.toint("123", 0));
+        assertEquals(-123, MCast.toint(new StringBuilder("-123"), 0));
+        assertEquals(Integer.MIN_VALUE, MCast.toint("-2147483648", 0));
+        assertEquals(7, MCast.toint("2147483648", 7));
+        assertEquals(255, MCast.toint("0xff", 0));
+        assertEquals(-255, MCast.toint("-0xFF", 0));
+        assertEquals(7, MCast.toint("12a", 7));
+        assertEquals(7, MCast.toint("-", 7));
+        assertTrue(MCast.toint("").isEmpty());
+        assertEquals(Long.MAX_VALUE, MCast.tolong("9223372036854775807", 0));
+        assertEquals(1, MCast.tolong("9223372036854775808", 1));
+        assertEquals(1.5e-3, MCast.todouble(" -1.5e-3 ", 0) * -1);
+        assertEquals(2.0, MCast.todouble("2.", 0));
+        assertEquals(7.0, MCast.todouble("1e", 7));
+        assertEquals(7.0, MCast.todouble(".", 7));
+        assertTrue(MCast.toboolean(" Yes ", false));
+        assertTrue(!MCast.toboolean("off", true));
+        assertTrue(MCast.toboolean("maybe").isEmpty());
+        assertTrue(MCast.toboolean("HIja'", false));
+        assertTrue(!MCast.toboolean("\u5514\u4fc2", true));
+        assertTrue(MCast.toboolean("TRUE", false));
+
+        // the one pass parser returns the same values as Double.parseDouble()
+        String[] doubles = { "0", "-0", "123.45", "0.1", "1e22", "1e23", "9007199254740993", "123456789012345678901",
+                "0.000000000000000000000000001", "4.9e-324", "1.7976931348623157e308", "1e400", "+.5", "5.D", "NaN",
+                "-Infinity", "00012.5000" };
+        for (String d : doubles)
+            assertEquals(Double.parseDouble(d), NumberParser.parseDouble(d, 7), d);
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            String d = random.nextLong() % 1000000000L + "." + Math.abs(random.nextInt() % 100000) + "e"
+                    + (random.nextInt(60) - 30);
+            assertEquals(Double.parseDouble(d), NumberParser.parseDouble(d, 7), d);
+        }
+    }
+
     @Test
     public void testLongToBytes() {
         System.out.println(">>> testLongToBytes");
@@ -395,4 +453,50 @@ public class MCastTest extends TestCase {
             System.out.println(res);
         }
     }
+
+    @Test
+    public void testDateFormats() {
+        TimeZone defaultZone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("GMT"));
+            checkDateFormats();
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+
+    private void checkDateFormats() {
+        TimeZone berlin = TimeZone.getTimeZone("Europe/Berlin");
+
+        // iso fast path
+        assertEquals("2020-12-01T11:20:10", MDate.toIso8601(MCast.toDate("2020-12-01T13:20:10+02:00", null)));
+        assertEquals("2020-12-01T13:20:10", MDate.toIso8601(MCast.toDate("2020-12-01T13:20:10Z", null)));
+        assertEquals(500, MCast.toDate("2020-12-01T13:20:10.5", null).getTime() % 1000);
+        ZonedDateTime zdt = DateFormats.parseIso8601("2020-12-01 13:20", ZoneId.of("Europe/Berlin"));
+        assertEquals("2020-12-01T12:20:00", MDate.toIso8601(new Date(zdt.toInstant().toEpochMilli())));
+        assertNull(DateFormats.parseIso8601("2020-02-30", null));
+        assertNull(DateFormats.parseIso8601("2020-12-01 1:00 am", null));
+        Calendar c = MCast.toCalendar("2020-12-01T13:20:10-03:30");
+        assertEquals(-210 * 60 * 1000, c.getTimeZone().getRawOffset());
+        assertEquals(13, c.get(Calendar.HOUR_OF_DAY));
+
+        // lenient fallback
+        assertEquals("2020-03-01T00:00:00", MDate.toIso8601(MCast.toDate("2020-02-30", null)));
+
+        // formatting in zones
+        Date date = MCast.toDate("2020-07-01T10:00:00Z", null);
+        assertEquals("2020-07-01T12:00:00", MDate.toIso8601(date, berlin));
+        assertEquals("12:00", MDate.toTimeString(date, berlin));
+        assertEquals("01.07.2020 10:00:00", MDate.toDateTimeSecondsString(date, Locale.GERMANY));
+        assertEquals("Wed, 01 Jul 2020 10:00:00 GMT", MDate.toHttpHeaderDate(date));
+        assertEquals("2020/07/01", MDate.toString("yyyy/MM/dd", date));
+        // SimpleDateFormat patterns, u is the day of the week
+        assertEquals("3 10:00", MDate.toString("u HH:mm", date));
+        assertEquals("2020 10:00", MDate.toStringWithPattern("u HH:mm", date));
+        TimeZone.setDefault(berlin);
+        assertEquals("12:00", MDate.toString("HH:mm", date));
+        assertEquals("2020-07-01 12:00", MDate.transform("yyyy-MM-dd HH:mm", "2020-07-01T10:00:00Z", null));
+        assertTrue(DateFormats.getFormatter("yyyy/MM/dd", null) == DateFormats.getFormatter("yyyy/MM/dd", null));
+        assertTrue(DateFormats.getLocaleDateFormatter(Locale.US) == DateFormats.getLocaleDateFormatter(Locale.US));
+    }
 }
@@ -15,6 +15,9 @@
  */
 package de.mhus.lib.test;
 
+import de.mhus.commons.io.CSVBufferReader;
+import de.mhus.commons.io.CSVParallelReader;
+import de.mhus.commons.io.CSVReader;
 import de.mhus.commons.tools.MFile;
 import de.mhus.commons.errors.MException;
 import de.mhus.lib.test.util.TestCase;
@@ -22,10 +25,19 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class MFileTest extends TestCase {
 
@@ -70,4 +82,76 @@ public class MFileTest extends TestCase {
             assertEquals("text/html", res);
         }
     }
+
+    @Test
+    public void testCSVBufferReader() throws IOException {
+        String csv = "name, age ,score\r\n\"Doe, \"\"Jane\"\"\",42,1.5\nBob,,-3e2\n\n\"multi\nline\" ,7,0x10";
+
+        // compare with the classic reader, small buffer to force refills
+        CSVReader classic = new CSVReader(new StringReader(csv.replace("0x10", "16")), ',', '"', true, true);
+        try (CSVBufferReader reader = new CSVBufferReader(new StringReader(csv), ',', '"', true, true, 16)) {
+            reader.readHeader(true);
+            assertEquals(2, reader.getIndex("score"));
+            classic.readHeader(true);
+
+            assertTrue(reader.next());
+            assertTrue(classic.next());
+            assertArrayEquals(classic.getCurrentLine(), reader.getCurrentLine());
+            assertEquals("Doe, \"Jane\"", reader.get(0).toString());
+            assertEquals(42, reader.getInt(1));
+            assertEquals(1.5, reader.getDouble(reader.getIndex("score")));
+
+            List<String[]> batch = reader.readBatch(10);
+            assertEquals(3, batch.size());
+            assertArrayEquals(new String[] { "Bob", "", "-3e2" }, batch.get(0));
+            assertArrayEquals(new String[] { "" }, batch.get(1));
+            assertArrayEquals(new String[] { "multi\nline", "7", "0x10" }, batch.get(2));
+            assertFalse(reader.next());
+            assertEquals(6, reader.getLineCount());
+        }
+
+        try (CSVBufferReader reader = new CSVBufferReader(new StringReader("1,x\n"))) {
+            assertTrue(reader.next());
+            assertEquals(1L, reader.getLong(0));
+            assertThrows(NumberFormatException.class, () -> reader.getInt(1));
+        }
+    }
+
+    @Test
+    public void testCSVParallelReader() throws IOException {
+        StringBuilder sb = new StringBuilder("id,text\n");
+        for (int i = 0; i < 500; i++)
+            sb.append(i).append(i % 7 == 0 ? ",\"multi\n\"\"line\"\", ü\"\n" : ",text " + i + "\n");
+        byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+        List<String[]> expected = new LinkedList<>();
+        try (CSVBufferReader reader = new CSVBufferReader(new StringReader(sb.toString()), ',', '"', true, true)) {
+            reader.readHeader(false);
+            expected.addAll(reader.readBatch(1000));
+        }
+        assertEquals(500, expected.size());
+
+        CSVParallelReader reader = new CSVParallelReader(',', '"', true, true);
+        reader.setHeader(true);
+        reader.setChunkSize(100);
+        reader.setBatchSize(7);
+        List<String[]> rows = new LinkedList<>();
+        assertEquals(500, reader.read(ByteBuffer.wrap(data), rows::addAll));
+        assertArrayEquals(new String[] { "id", "text" }, reader.getHeader());
+        assertEquals(expected.size(), rows.size());
+        for (int i = 0; i < rows.size(); i++)
+            assertArrayEquals(expected.get(i), rows.get(i));
+
+        // unordered from a file
+        File file = File.createTempFile("parallel", ".csv");
+        try {
+            Files.write(file.toPath(), data);
+            reader.setOrdered(false);
+            AtomicLong sum = new AtomicLong();
+            assertEquals(500, reader.read(file, batch -> batch.forEach(row -> sum.addAndGet(Long.parseLong(row[0])))));
+            assertEquals(499 * 500 / 2, sum.get());
+        } finally {
+            file.delete();
+        }
+    }
 }
@@ -24,8 +24,11 @@ import de.mhus.commons.services.MService;
 import de.mhus.lib.test.util.TestCase;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class MServiceTest extends TestCase {
@@ -56,6 +59,63 @@ public class MServiceTest extends TestCase {
         assertTrue(service instanceof ServiceWithServiceFactoryImpl);
     }
 
+    @Test
+    public void testRegistry() throws Exception {
+        ServiceNewInstance service = MService.getService(ServiceNewInstance.class);
+        long lookups = MService.getLookupCount(ServiceNewInstance.class);
+        assertSame(service, MService.getService(ServiceNewInstance.class));
+        assertEquals(lookups + 1, MService.getLookupCount(ServiceNewInstance.class));
+
+        // created only once by concurrent lookups
+        long created = MService.getCreateCount();
+        Thread[] threads = new Thread[4];
+        ServiceScoped[] found = new ServiceScoped[threads.length];
+        for (int i = 0; i < threads.length; i++) {
+            int nr = i;
+            threads[i] = new Thread(() -> found[nr] = MService.getService(ServiceScoped.class));
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(created + 1, MService.getCreateCount());
+        for (ServiceScoped s : found)
+            assertSame(found[0], s);
+
+        // scoped override only for the current thread
+        ServiceScoped other = new ServiceScoped();
+        try (MService.Scope scope = MService.scope(ServiceScoped.class, other)) {
+            assertSame(other, MService.getService(ServiceScoped.class));
+            ServiceScoped[] inThread = new ServiceScoped[1];
+            Thread thread = new Thread(() -> inThread[0] = MService.getService(ServiceScoped.class));
+            thread.start();
+            thread.join();
+            assertSame(found[0], inThread[0]);
+            // only the owner can close the scope
+            Throwable[] error = new Throwable[1];
+            thread = new Thread(() -> {
+                try {
+                    scope.close();
+                } catch (Throwable t) {
+                    error[0] = t;
+                }
+            });
+            thread.start();
+            thread.join();
+            assertTrue(error[0] instanceof IllegalStateException);
+            assertSame(other, MService.getService(ServiceScoped.class));
+        }
+        assertSame(found[0], MService.getService(ServiceScoped.class));
+
+        // global override
+        MService.registerService(ServiceScoped.class, other);
+        assertSame(other, MService.getService(ServiceScoped.class));
+        MService.unregisterService(ServiceScoped.class);
+        assertNotSame(other, MService.getService(ServiceScoped.class));
+    }
+
+    public static class ServiceScoped implements IService {
+    }
+
     public static class ServiceNewInstance implements IService {
     }
 
@@ -20,15 +20,29 @@ import de.mhus.commons.tools.MString;
 import de.mhus.commons.errors.MException;
 import de.mhus.commons.tree.IProperties;
 import de.mhus.commons.tree.MProperties;
+import de.mhus.commons.parser.CompiledString;
 import de.mhus.commons.parser.StringCompiler;
+import de.mhus.commons.io.StringPropertyRewriter;
+import de.mhus.commons.parser.StringPropertyReplacer;
+import de.mhus.commons.parser.StringPropertyReplacerReader;
+import de.mhus.commons.tools.MFile;
+import de.mhus.commons.parser.TemplateCache;
 import de.mhus.lib.test.util.TestCase;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.Map.Entry;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class MStringTest extends TestCase {
 
@@ -400,4 +414,82 @@ public class MStringTest extends TestCase {
             assertEquals("abcdef...z", res);
         }
     }
+
+    @Test
+    public void testTemplateCache() throws Exception {
+        TemplateCache<CompiledString> cache = new TemplateCache<>(2, 1000);
+        CompiledString first = cache.get(StringCompiler.class, "Name $name$", StringCompiler::compile);
+        assertSame(first, cache.get(StringCompiler.class, "Name $name$", StringCompiler::compile));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        cache.get(StringCompiler.class, "A $a$", StringCompiler::compile);
+        cache.get(StringCompiler.class, "B $b$", StringCompiler::compile);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        // weight of the two remaining templates, "Name $name$" has 11 and the others 5 characters
+        assertTrue(cache.getWeight() == 10 || cache.getWeight() == 16, "weight " + cache.getWeight());
+
+        // the weight limit works after the size limit was exceeded
+        TemplateCache<CompiledString> weighted = new TemplateCache<>(3, 20);
+        for (int i = 0; i < 20; i++)
+            weighted.get(StringCompiler.class, "Template $" + i + "$", StringCompiler::compile);
+        assertTrue(weighted.getWeight() > 0 && weighted.getWeight() <= 20, "weight " + weighted.getWeight());
+        assertTrue(weighted.size() <= 3);
+        weighted.clear();
+        assertEquals(0, weighted.getWeight());
+
+        // write into a given buffer
+        StringWriter out = new StringWriter();
+        first.execute(out, IProperties.to("name", "Mickey"));
+        assertEquals("Name Mickey", out.toString());
+        StringBuilder sb = new StringBuilder("> ");
+        first.execute((Appendable) sb, IProperties.to("name", "Minnie"));
+        assertEquals("> Name Minnie", sb.toString());
+
+        StringPropertyReplacer replacer = new StringPropertyReplacer() {
+            @Override
+            public String findValueFor(String key) {
+                return "name".equals(key) ? "Mickey" : null;
+            }
+        };
+        assertEquals("Name Mickey, ${other} ${open", replacer.process("Name ${name}, ${other} ${open"));
+        assertEquals("Mickey", replacer.process("${name}"));
+    }
+
+    @Test
+    public void testStreamingReplacer() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+        StringPropertyReplacer replacer = new StringPropertyReplacer() {
+            @Override
+            public String findValueFor(String key) {
+                lookups.incrementAndGet();
+                return "name".equals(key) ? "M\u00fcckey \ud83d\ude00" : null;
+            }
+        };
+        String[] templates = new String[] { "", "plain", "Name ${name}, ${other} ${open", "$$${name}$", "$ {name}",
+                "${a${name}", "x".repeat(8190) + "${name}" + "y".repeat(8190) + "${name}$" };
+        for (String template : templates) {
+            StringWriter out = new StringWriter();
+            replacer.process(new StringReader(template), out, false);
+            assertEquals(replacer.process(template), out.toString(), template);
+        }
+
+        // each key is looked up once with cache
+        lookups.set(0);
+        StringWriter out = new StringWriter();
+        replacer.process(new StringReader("${name} ${name} ${x} ${x}"), out, true);
+        assertEquals(2, lookups.get());
+
+        // too long keys are not replaced
+        StringPropertyReplacerReader reader = new StringPropertyReplacerReader(new StringReader("${name} ${longname}"),
+                replacer);
+        reader.setMaxKeyLength(4);
+        assertEquals("M\u00fcckey \ud83d\ude00 ${longname}", MFile.readFile(reader));
+
+        // rewrite a stream
+        String content = "\u00c4 ${name} ".repeat(2000);
+        InputStream is = new StringPropertyRewriter(replacer, true).rewriteContent("test",
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(replacer.process(content), new String(is.readAllBytes(), StandardCharsets.UTF_8));
+    }
 }
@@ -27,17 +27,27 @@ import de.mhus.lib.test.util.TestCase;
 import org.junit.jupiter.api.Test;
 import org.w3c.dom.Document;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 public class MTreeTest extends TestCase {
 
@@ -237,6 +247,30 @@ public class MTreeTest extends TestCase {
 
     }
 
+    @Test
+    public void testExtracted() throws MException {
+        ITreeNode root = new TreeNode();
+        root.setString("name", "root");
+        ITreeNode a = root.createObject("a");
+        a.setString("name", "a");
+        a.setString("value", "${name}-${../name}-${/name}-${>root:name}-${missing,def}");
+        ITreeNode b = root.createObject("b");
+        b.setString("name", "b");
+        b.setString("value", "${name}-${../name}-${/name}-${>root:name}-${missing,def}");
+
+        // the same template is compiled once and executed for each node
+        assertEquals("a-root-root-root-def", a.getExtracted("value"));
+        assertEquals("b-root-root-root-def", b.getExtracted("value"));
+        a.setString("name", "changed");
+        assertEquals("changed-root-root-root-def", a.getExtracted("value"));
+        assertEquals("b-root-root-root-def", b.getExtracted("value"));
+        assertEquals("def", root.getExtracted("missing", "def"));
+
+        // recursion is limited
+        root.setString("loop", "x${loop}");
+        assertTrue(root.getExtracted("loop").startsWith("xxxxxxxxxx"));
+    }
+
     @Test
     public void testXml() throws Exception {
 
@@ -342,6 +376,189 @@ public class MTreeTest extends TestCase {
         validateTree(c, true);
     }
 
+    @Test
+    public void testCompactStore() throws Exception {
+
+        ITreeNode c = new TreeNode(new CompactPropertiesStore());
+        c.setString("test1", "wow");
+        c.setString("test2", "alf");
+        TreeNodeList a = c.createArray("sub");
+        for (int i = 1; i <= 3; i++) {
+            ITreeNode s = a.createObject();
+            s.setString("test1", "wow" + i);
+            s.setString("test2", "alf" + i);
+        }
+        validateTree(c, true);
+
+        // grow, remove and re-add to exercise rehash and tombstones
+        for (int i = 0; i < 100; i++)
+            c.setInt("k" + i, i);
+        for (int i = 0; i < 100; i += 2)
+            c.remove("k" + i);
+        assertEquals(50 + 4, c.size());
+        assertFalse(c.containsKey("k10"));
+        assertEquals(11, c.getInt("k11", 0));
+        c.setInt("k10", 10);
+        assertEquals(10, c.getInt("k10", 0));
+
+        // children use the same kind of store
+        String json = MString.replaceAll("{'test1':'wow','test2':'alf','sub': [  "
+                + "{'test1':'wow1','test2':'alf1'} , {'test1':'wow2','test2':'alf2'} , "
+                + "{'test1':'wow3','test2':'alf3'}  ] }", "'", "\"");
+        DefaultNodeFactory dcf = new DefaultNodeFactory();
+        dcf.setStoreFactory(CompactPropertiesStore::new);
+        ITreeNode c2 = dcf.getBuilder("json").readFromString(json);
+        validateTree(c2, true);
+
+        // also nested children created by the node or the list
+        assertTrue(getStore(c.createObject("a").createObject("b")) instanceof CompactPropertiesStore);
+        assertTrue(getStore(c.getList("test1").get(0)) instanceof CompactPropertiesStore);
+        MProperties props = new MProperties();
+        props.setString("x", "y");
+        a.add(props);
+        assertTrue(getStore(a.get(3)) instanceof CompactPropertiesStore);
+        assertTrue(getStore(c2.getArray("sub").get().get(0)) instanceof CompactPropertiesStore);
+    }
+
+    private Object getStore(ITreeNode node) throws Exception {
+        Field field = MProperties.class.getDeclaredField("properties");
+        field.setAccessible(true);
+        return field.get(node);
+    }
+
+    @Test
+    public void testFreeze() throws Exception {
+        String json = MString.replaceAll("{'test1':'wow','test2':'alf','sub': [  "
+                + "{'test1':'wow1','test2':'alf1'} , {'test1':'wow2','test2':'alf2'} , "
+                + "{'test1':'wow3','test2':'alf3'}  ], 'obj': {'a':'b'} }", "'", "\"");
+        ITreeNode c1 = MTree.readFromJsonString(json);
+        ITreeNode c2 = MTree.readFromJsonString(json);
+        c2.setString("test1", "other");
+
+        ITreeNode f1 = MTree.snapshot(c1);
+        ITreeNode f2 = c2.freeze();
+        assertTrue(f1 instanceof FrozenTreeNode);
+        assertTrue(f1.freeze() == f1);
+        assertEquals("wow", f1.getString("test1", null));
+        assertEquals("other", f2.getString("test1", null));
+        assertEquals(3, f1.getArray("sub").get().size());
+        assertEquals("wow2", f1.getArray("sub").get().get(1).getString("test1", null));
+        assertEquals("b", f1.getObjectByPath("obj").get().getString("a", null));
+
+        // equal sub trees are shared
+        assertTrue(f1.getArray("sub").get() == f2.getArray("sub").get());
+        assertTrue(f1.getObject("obj").get() == f2.getObject("obj").get());
+        assertFalse(f1 == f2);
+        assertTrue(MTree.snapshot(c1) == f1);
+
+        // immutable
+        try {
+            f1.setString("test1", "x");
+            throw new Exception("frozen node is editable");
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            f1.getArray("sub").get().createObject();
+            throw new Exception("frozen array is editable");
+        } catch (UnsupportedOperationException e) {
+        }
+
+        // source is untouched and frozen nodes can be used in mutable trees
+        c1.setObject("shared", f1.getObject("obj").get());
+        assertEquals("b", c1.getObjectByPath("shared").get().getString("a", null));
+        assertEquals("obj", f1.getObject("obj").get().getName());
+    }
+
+    @Test
+    public void testLazyJson() throws Exception {
+        String json = MString.replaceAll("{'test1':'wow','test2':'alf','sub': [  "
+                + "{'test1':'wow1','test2':'alf1'} , {'test1':'wow2','test2':'alf2'} , "
+                + "{'test1':'wow3','test2':'alf3'}  ], 'obj': {'a':'b\\n\\u00b0', 'n': -12, 'd': 1.5e2, 'x': null,"
+                + " 'list': [1, true, [2]]} }", "'", "\"");
+        ITreeNode c = MTree.readFromJsonString(json, true);
+        validateTree(c, true);
+        ITreeNode obj = c.getObject("obj").get();
+        assertEquals("b\n\u00b0", obj.getString("a", null));
+        assertEquals(-12L, obj.get("n"));
+        assertEquals(150.0, obj.get("d"));
+        assertFalse(obj.containsKey("x"));
+        TreeNodeList list = obj.getArray("list").get();
+        assertEquals(3, list.size());
+        assertEquals(true, list.get(1).get(ITreeNode.NAMELESS_VALUE));
+        assertTrue(list.get(0).getParent() == obj);
+        assertTrue(obj.getParent() == c);
+        String compact = MTree.toCompactJsonString(c);
+        assertEquals(compact, MTree.toCompactJsonString(MTree.readFromJsonString(compact, true)));
+
+        ITreeNode array = MTree.readFromJsonString("[{'a':1},{'a':2}]".replace('\'', '"'), true);
+        assertEquals(2, array.getArray(ITreeNode.NAMELESS_VALUE).get().size());
+
+        File file = new File("target/lazy.json");
+        MFile.writeFile(file, json);
+        LazyJsonNodeBuilder builder = new LazyJsonNodeBuilder();
+        builder.setMapThreshold(0);
+        validateTree(builder.readFromFile(file), true);
+
+        try {
+            MTree.readFromJsonString("{'a':1,}".replace('\'', '"'), true);
+            throw new Exception("invalid json accepted");
+        } catch (MException e) {
+        }
+
+        // numbers like the stream builder
+        String numbersJson = "{'a':0,'b':-0.5e-3,'c':1E+2,'d':-9223372036854775808,'e':12}".replace('\'', '"');
+        ITreeNode numbers = MTree.readFromJsonString(numbersJson, true);
+        ITreeNode eager = MTree.readFromJsonString(numbersJson);
+        assertEquals(MTree.toCompactJsonString(eager), MTree.toCompactJsonString(numbers));
+        for (String key : new String[] { "a", "b", "c", "d", "e" })
+            assertEquals(eager.get(key), numbers.get(key));
+        for (String invalid : new String[] { "1-2", "+-", "+1", "01", "1.", ".5", "-", "1e", "1e+", "--1",
+                "9223372036854775808" }) {
+            try {
+                MTree.readFromJsonString("{\"a\":" + invalid + "}", true);
+                throw new Exception("invalid number accepted: " + invalid);
+            } catch (MException e) {
+            }
+        }
+    }
+
+    @Test
+    public void testVisitor() throws Exception {
+        String json = MString.replaceAll("{'test1':'wow','test2':'alf','sub': [  "
+                + "{'test1':'wow1','test2':'alf1'} , {'test1':'wow2','test2':'alf2'} , "
+                + "{'test1':'wow3','test2':'alf3'}  ] }", "'", "\"");
+        JsonStreamNodeBuilder builder = new JsonStreamNodeBuilder();
+
+        TreeNodeBuildVisitor visitor = new TreeNodeBuildVisitor(CompactPropertiesStore::new);
+        builder.read(toStream(json), visitor);
+        validateTree(visitor.getRoot(), true);
+
+        List<ITreeNode> subs = builder.read(toStream(json), "/sub/*");
+        assertEquals(3, subs.size());
+        assertEquals("wow2", subs.get(1).getString("test1", null));
+        List<ITreeNode> single = builder.read(toStream(json), "/sub/2/test2");
+        assertEquals(1, single.size());
+        assertEquals("alf3", single.get(0).getString(ITreeNode.NAMELESS_VALUE, null));
+
+        // visit a built tree
+        visitor = new TreeNodeBuildVisitor(CompactPropertiesStore::new);
+        MTree.visit(MTree.readFromJsonString(json), visitor);
+        validateTree(visitor.getRoot(), true);
+
+        String yaml = "test1: wow\ntest2: alf\nsub:\n- test1: wow1\n  test2: alf1\n- test1: wow2\n  test2: alf2\n"
+                + "- test1: wow3\n  test2: alf3\nnum: 5\n";
+        visitor = new TreeNodeBuildVisitor(CompactPropertiesStore::new);
+        new YamlTreeNodeBuilder().read(toStream(yaml), visitor);
+        validateTree(visitor.getRoot(), true);
+        assertEquals(5, visitor.getRoot().get("num"));
+
+        String xml = "<root test1='wow' test2='alf'><sub test1='wow1' test2='alf1'/><sub test1='wow2' test2='alf2'/>"
+                + "<sub test1='wow3' test2='alf3'/></root>";
+        visitor = new TreeNodeBuildVisitor(CompactPropertiesStore::new);
+        new XmlTreeNodeBuilder().read(toStream(xml), visitor);
+        validateTree(visitor.getRoot(), true);
+    }
+
     // @Test
     // public void testClone() throws Exception {
     //
@@ -366,7 +583,157 @@ public class MTreeTest extends TestCase {
     // derTeschd(tar3, true);
     // }
 
-    // @Test
+    @Test
+    public void testXmlStream() throws Exception {
+        String xml = "<root xmlns:node='http://www.mhus.de/schemas/node.html' a='1'>"
+                + "<sub b='1'/><sub b='2'/><sub b='3'/>"
+                + "<list node:type='array' x='1'/><list node:type='array' x='2'/>"
+                + "<obj node:type='object'><inner>text</inner><data><![CDATA[<cdata>]]></data></obj>"
+                + "<val node:type='value'>value<ignore/> more</val>" + "<mixed>text<!-- comment --></mixed>"
+                + "</root>";
+        ITreeNode dom = new XmlTreeNodeBuilder().readFromElement(MXml.loadXml(xml).getDocumentElement());
+        ITreeNode stax = new XmlTreeNodeBuilder().read(toStream(xml));
+        assertEquals(MTree.toCompactJsonString(dom), MTree.toCompactJsonString(stax));
+        assertEquals(3, stax.getArray("sub").get().size());
+        assertEquals("<cdata>",
+                stax.getObject("obj").get().getObject("data").get().getString(ITreeNode.NAMELESS_VALUE).get());
+
+        // text split into several events and text next to CDATA like the DOM nodes
+        String longText = "x".repeat(100000);
+        String text = "<root><split>one<![CDATA[two]]></split><cdatas><![CDATA[a]]><![CDATA[b]]></cdatas>"
+                + "<entity>a &amp; b &lt; c</entity><pi>one<?pi data?>two</pi><long>" + longText + "</long></root>";
+        dom = new XmlTreeNodeBuilder().readFromElement(MXml.loadXml(text).getDocumentElement());
+        stax = new XmlTreeNodeBuilder().read(toStream(text));
+        assertEquals(MTree.toCompactJsonString(dom), MTree.toCompactJsonString(stax));
+        assertEquals("a & b < c", stax.getObject("entity").get().getString(ITreeNode.NAMELESS_VALUE).get());
+        assertEquals(longText, stax.getObject("long").get().getString(ITreeNode.NAMELESS_VALUE).get());
+        assertFalse(stax.getObject("split").get().containsKey(ITreeNode.NAMELESS_VALUE));
+
+        // pooled builders and transformers are reused
+        String out1 = MXml.toString(MXml.loadXml(xml), false);
+        String out2 = MXml.toString(MXml.loadXml(out1), false);
+        assertEquals(out1, out2);
+    }
+
+    @Test
+    public void testStreamVisitorLikeBuilder() throws Exception {
+        String xml = "<root xmlns:node='http://www.mhus.de/schemas/node.html' xmlns:p='urn:p' a='1' p:b='2'>"
+                + "<sub b='1'/><sub b='2'/><sub b='3'><sub b='4'/><sub b='5'/></sub>"
+                + "<list node:type='array' x='1'/><list node:type='array' x='2'/>"
+                + "<p:item>prefixed</p:item><p:item>again</p:item>" + "<mixed>text<!-- comment -->more</mixed>"
+                + "<both>text<child/>tail</both><split>one<![CDATA[two]]></split>"
+                + "<val node:type='value'>value<ignore/> more</val><single>x</single></root>";
+        XmlTreeNodeBuilder builder = new XmlTreeNodeBuilder();
+        TreeNodeBuildVisitor visitor = new TreeNodeBuildVisitor();
+        builder.read(toStream(xml), visitor);
+        assertEquals(MTree.toCompactJsonString(builder.read(toStream(xml))),
+                MTree.toCompactJsonString(visitor.getRoot()));
+
+        // consecutive elements are one array
+        StringBuilder events = new StringBuilder();
+        builder.read(toStream(xml), new ITreeNodeVisitor() {
+            @Override
+            public void startObject(String name) {
+                events.append("{").append(name);
+            }
+
+            @Override
+            public void endObject() {
+                events.append("}");
+            }
+
+            @Override
+            public void startArray(String name) {
+                events.append("[").append(name);
+            }
+
+            @Override
+            public void endArray() {
+                events.append("]");
+            }
+
+            @Override
+            public void value(String name, Object value) {
+            }
+        });
+        assertEquals("{null[sub{null}{null}{null[sub{null}{null}]}][list{null}{null}][p:item{null}{null}]"
+                + "{mixed}{both{child}}{split}{single}}", events.toString());
+        List<ITreeNode> subs = builder.read(toStream(xml), "/sub/*");
+        assertEquals(3, subs.size());
+        assertEquals("3", builder.read(toStream(xml), "/sub/2").get(0).getString("b", null));
+
+        String yaml = "base: &base\n  a: 1\n  b: [x, y]\nname: &name test\ncopy: *base\nref: *name\n"
+                + "list:\n- *base\n- *name\nmerged:\n  <<: *base\n  c: 3\n";
+        YamlTreeNodeBuilder yamlBuilder = new YamlTreeNodeBuilder();
+        visitor = new TreeNodeBuildVisitor();
+        yamlBuilder.read(toStream(yaml), visitor);
+        assertEquals(MTree.toCompactJsonString(yamlBuilder.read(toStream(yaml))),
+                MTree.toCompactJsonString(visitor.getRoot()));
+        assertEquals("test", visitor.getRoot().getString("ref", null));
+        assertEquals(3, visitor.getRoot().getObject("merged").get().getInt("c", 0));
+        assertEquals(1, visitor.getRoot().getObject("merged").get().getInt("a", 0));
+    }
+
+    @Test
+    public void testStreamVisitorLookahead() throws Exception {
+        // a large single wrapper is emitted before it is completely read
+        StringBuilder xml = new StringBuilder("<root><items>");
+        for (int i = 0; i < 20000; i++)
+            xml.append("<item nr='").append(i).append("'/>");
+        xml.append("</items><items/><end/></root>");
+        byte[] data = xml.toString().getBytes(StandardCharsets.UTF_8);
+        AtomicLong read = new AtomicLong();
+        InputStream is = new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                int cnt = super.read(b, off, len);
+                if (cnt > 0)
+                    read.addAndGet(cnt);
+                return cnt;
+            }
+        };
+        AtomicLong readAtStart = new AtomicLong(-1);
+        StringBuilder events = new StringBuilder();
+        AtomicInteger items = new AtomicInteger();
+        new XmlTreeNodeBuilder().read(is, new ITreeNodeVisitor() {
+            @Override
+            public void startObject(String name) {
+                if ("items".equals(name) && readAtStart.get() < 0)
+                    readAtStart.set(read.get());
+                if (name == null)
+                    items.incrementAndGet();
+                else
+                    events.append("{").append(name);
+            }
+
+            @Override
+            public void endObject() {
+            }
+
+            @Override
+            public void startArray(String name) {
+                events.append("[").append(name);
+            }
+
+            @Override
+            public void endArray() {
+                events.append("]");
+            }
+
+            @Override
+            public void value(String name, Object value) {
+            }
+        });
+        assertTrue(readAtStart.get() > 0 && readAtStart.get() < data.length / 2);
+        // the second items element is a separate entry, the items inside are still one array
+        assertEquals("{items[item]{items{end", events.toString());
+        assertEquals(20001, items.get());
+    }
+
+    private InputStream toStream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
     private void validateTree(ITreeNode c, boolean testsub) throws MException {
         System.out.println(MSystem.findCallingMethod(3) + ": " + c);
         assertEquals("wow", c.getString("test1", "no"));
@@ -422,4 +789,86 @@ public class MTreeTest extends TestCase {
         // assertEquals( 3, c.moveConfig(sub, WritableResourceNode.MOVE_LAST) );
 
     }
+
+    @Test
+    public void testTreeNodeCache() throws Exception {
+        File file = new File("target/cached.json");
+        MFile.writeFile(file, "{\"a\":\"1\"}");
+        TreeNodeCache cache = new TreeNodeCache(null, 0);
+        ITreeNode[] reloaded = new ITreeNode[1];
+        cache.addListener((f, n) -> reloaded[0] = n);
+
+        ITreeNode node = cache.load(file);
+        assertEquals("1", node.getString("a", null));
+        assertFalse(node.isEditable());
+        assertTrue(node == cache.load(new File("target/../target/cached.json")));
+        assertEquals(1, cache.getLoads());
+        assertEquals(1, cache.size());
+        assertNull(reloaded[0]);
+
+        MFile.writeFile(file, "{\"a\":\"22\"}");
+        ITreeNode next = cache.load(file);
+        assertEquals("22", next.getString("a", null));
+        assertTrue(next == reloaded[0]);
+        assertEquals(2, cache.getLoads());
+
+        // within the check interval the file is not checked
+        cache.setCheckInterval(60000);
+        MFile.writeFile(file, "{\"a\":\"333\"}");
+        assertTrue(next == cache.load(file));
+        cache.invalidate(file);
+        assertEquals("333", cache.load(file).getString("a", null));
+
+        file.delete();
+        cache.setCheckInterval(0);
+        try {
+            cache.load(file);
+            fail();
+        } catch (NotFoundException e) {
+        }
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testTreeNodeCacheLinkSwap() throws Exception {
+        // the pattern used by mounted config maps: cfg.json -> ..data/cfg.json, ..data -> data1 is replaced
+        Path dir = Files.createTempDirectory("treecache");
+        try {
+            Files.createDirectory(dir.resolve("data1"));
+            Files.createDirectory(dir.resolve("data2"));
+            Files.writeString(dir.resolve("data1/cfg.json"), "{\"a\":\"1\"}");
+            Files.writeString(dir.resolve("data2/cfg.json"), "{\"a\":\"2\"}");
+            Files.createSymbolicLink(dir.resolve("..data"), Path.of("data1"));
+            Files.createSymbolicLink(dir.resolve("cfg.json"), Path.of("..data/cfg.json"));
+            File file = dir.resolve("cfg.json").toFile();
+
+            TreeNodeCache cache = new TreeNodeCache(null, 0);
+            ITreeNode[] reloaded = new ITreeNode[1];
+            AtomicInteger calls = new AtomicInteger();
+            cache.addListener((f, n) -> {
+                reloaded[0] = n;
+                calls.incrementAndGet();
+            });
+            assertEquals("1", cache.load(file).getString("a", null));
+            // the target is cached and changed before the swap
+            assertEquals("2", cache.load(dir.resolve("data2/cfg.json").toFile()).getString("a", null));
+            Files.writeString(dir.resolve("data2/cfg.json"), "{\"a\":\"22\"}");
+
+            Files.createSymbolicLink(dir.resolve("..data_tmp"), Path.of("data2"));
+            Files.move(dir.resolve("..data_tmp"), dir.resolve("..data"), StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(dir.resolve("data1/cfg.json"));
+            Files.delete(dir.resolve("data1"));
+
+            ITreeNode node = cache.load(file);
+            assertEquals("22", node.getString("a", null));
+            assertTrue(node == reloaded[0]);
+            // one reload, one notification
+            assertEquals(1, calls.get());
+            assertEquals(1, cache.size());
+        } finally {
+            for (String name : new String[] { "cfg.json", "..data", "data2/cfg.json", "data2" })
+                Files.deleteIfExists(dir.resolve(name));
+            Files.delete(dir);
+        }
+    }
 }
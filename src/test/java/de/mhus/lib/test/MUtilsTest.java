@@ -17,12 +17,19 @@ package de.mhus.lib.test;
 
 import de.mhus.commons.io.StreamBuffer;
 import de.mhus.commons.util.ByteBuffer;
+import de.mhus.commons.util.ConcurrentSoftHashMap;
+import de.mhus.commons.util.TimeoutCache;
+import de.mhus.commons.util.TimeoutMap;
 import de.mhus.lib.test.util.TestCase;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class MUtilsTest extends TestCase {
 
@@ -75,4 +82,125 @@ public class MUtilsTest extends TestCase {
         }
         assertEquals(0, stream.size());
     }
+
+    @Test
+    public void testTimeoutCache() throws Exception {
+        // the time is controlled by the test
+        AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+        TimeoutMap<String, String> map = new TimeoutMap<>(100) {
+            @Override
+            protected long currentTime() {
+                return clock.get();
+            }
+        };
+        map.put("a", "A");
+        map.put("b", "B");
+        assertEquals("A", map.get("a"));
+        assertEquals(1, map.getAccessCount("a"));
+        clock.addAndGet(150);
+        assertNull(map.get("a"));
+        map.put("c", "C"); // expires b from the head
+        assertEquals(1, map.size());
+        assertEquals(2, map.getExpirations());
+        assertEquals(1, map.getHits());
+        assertEquals(1, map.getMisses());
+
+        // invalidator decides alone
+        map.setInvalidator((k, v, t, a) -> k.equals("x"));
+        map.put("x", "X");
+        assertNull(map.get("x"));
+        clock.addAndGet(150);
+        assertEquals("C", map.get("c"));
+        map.setInvalidator(null);
+
+        // refresh on access
+        TimeoutCache<String, String> cache = new TimeoutCache<>(200) {
+            @Override
+            protected long currentTime() {
+                return clock.get();
+            }
+        };
+        cache.setRefreshOnAccess(true);
+        cache.put("a", "A");
+        for (int i = 0; i < 4; i++) {
+            clock.addAndGet(150);
+            assertEquals("A", cache.get("a"));
+        }
+        clock.addAndGet(250);
+        assertNull(cache.get("a"));
+
+        // clear detaches the old entries
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.clear();
+        cache.put("c", "C");
+        assertNull(cache.remove("a"));
+        assertEquals("C", cache.get("c"));
+        assertEquals(1, cache.size());
+
+        // max size with second chance
+        cache = new TimeoutCache<>(60000, 3);
+        cache.put("1", "1");
+        cache.put("2", "2");
+        cache.put("3", "3");
+        cache.get("1");
+        cache.put("4", "4");
+        assertEquals(3, cache.size());
+        assertEquals("1", cache.get("1"));
+        assertNull(cache.get("2"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals("5", cache.computeIfAbsent("5", k -> k));
+        assertEquals("5", cache.putIfAbsent("5", "x"));
+
+        // concurrent access
+        TimeoutCache<Integer, Integer> shared = new TimeoutCache<>(60000, 100);
+        Thread[] threads = new Thread[4];
+        AtomicInteger errors = new AtomicInteger();
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    int k = i % 200;
+                    shared.put(k, k);
+                    Integer v = shared.get(k);
+                    if (v != null && v != k)
+                        errors.incrementAndGet();
+                    if (i % 7 == 0)
+                        shared.remove(k);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(0, errors.get());
+        assertTrue(shared.size() <= 100 + threads.length);
+        shared.clear();
+        assertEquals(0, shared.size());
+    }
+
+    @Test
+    public void testConcurrentSoftHashMap() throws Exception {
+        ConcurrentSoftHashMap<String, String> map = new ConcurrentSoftHashMap<>();
+        assertNull(map.putIfAbsent("a", "A"));
+        assertEquals("A", map.putIfAbsent("a", "X"));
+        assertEquals("B", map.computeIfAbsent("b", k -> "B"));
+        assertTrue(map.replace("b", "B", "C"));
+        assertEquals("C", map.get("b"));
+        assertTrue(map.remove("b", "C"));
+        assertEquals(1, map.size());
+        assertEquals(1, map.entrySet().size());
+
+        // cleared values are removed by the reference queue
+        ConcurrentSoftHashMap<Integer, Object> weak = new ConcurrentSoftHashMap<>(true);
+        Object hold = new Object();
+        weak.put(0, hold);
+        for (int i = 1; i < 100; i++)
+            weak.put(i, new Object());
+        for (int i = 0; i < 50 && weak.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(1, weak.size());
+        assertTrue(weak.get(0) == hold);
+    }
 }
@@ -19,15 +19,21 @@ import de.mhus.commons.tools.MXml;
 import de.mhus.lib.test.util.TestCase;
 import org.junit.jupiter.api.Test;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Locale;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class MXmlTest extends TestCase {
@@ -113,4 +119,45 @@ public class MXmlTest extends TestCase {
             // fine !!!
         }
     }
+
+    @Test
+    public void testXPathCache() throws Exception {
+        Document doc = MXml.loadXml("<root><a id='1'/><a id='2'><b/></a><c/></root>");
+        Element root = doc.getDocumentElement();
+
+        String query = "/root/a[@id]";
+        assertSame(MXml.getXPathExpression(query), MXml.getXPathExpression(query));
+        long hits = MXml.getXPathCache().getHits();
+        long compiles = MXml.getXPathCompileCount();
+        int cnt = 0;
+        for (Element e : MXml.queryXPathElements(root, query))
+            cnt++;
+        assertEquals(2, cnt);
+        assertTrue(MXml.getXPathCache().getHits() > hits);
+        assertEquals(compiles, MXml.getXPathCompileCount());
+
+        // expressions are not shared between threads
+        XPathExpression[] other = new XPathExpression[1];
+        Thread thread = new Thread(() -> {
+            try {
+                other[0] = MXml.getXPathExpression(query);
+            } catch (XPathExpressionException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNotNull(other[0]);
+        assertTrue(other[0] != MXml.getXPathExpression(query));
+        // a hit of the shared cache but compiled for the new thread
+        assertEquals(compiles + 1, MXml.getXPathCompileCount());
+
+        List<MXml.NodeIterator> res = MXml.queryXPath(root, Arrays.asList("//b", "/root/c", "//x", "//b"));
+        assertEquals(4, res.size());
+        assertTrue(res.get(0).hasNext());
+        assertTrue(res.get(1).hasNext());
+        assertTrue(!res.get(2).hasNext());
+        assertTrue(res.get(3).hasNext());
+        assertTrue(res.get(0) != res.get(3));
+    }
 }
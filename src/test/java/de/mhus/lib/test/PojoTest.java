@@ -15,22 +15,33 @@
  */
 package de.mhus.lib.test;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.mhus.commons.tools.MJson;
 import de.mhus.commons.tools.MString;
 import de.mhus.commons.pojo.AttributesStrategy;
 import de.mhus.commons.pojo.DefaultFilter;
 import de.mhus.commons.pojo.DefaultStrategy;
+import de.mhus.commons.pojo.MPojo;
 import de.mhus.commons.pojo.FunctionsStrategy;
 import de.mhus.commons.pojo.PojoAction;
 import de.mhus.commons.pojo.PojoAttribute;
 import de.mhus.commons.pojo.PojoModel;
 import de.mhus.commons.pojo.PojoParser;
+import de.mhus.commons.tree.ITreeNode;
+import de.mhus.commons.tree.TreeNode;
 import de.mhus.lib.test.util.TestCase;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class PojoTest extends TestCase {
@@ -204,4 +215,65 @@ public class PojoTest extends TestCase {
         assertTrue(myReadOnly.canRead());
         assertFalse(myReadOnly.canWrite());
     }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testModelCache() throws Exception {
+        PojoModel model = MPojo.getDefaultModelFactory().createPojoModel(PojoExample.class);
+        assertSame(model, MPojo.getDefaultModelFactory().createPojoModel(PojoExample.class));
+        assertSame(PojoExample.class, model.getManagedClass());
+
+        PojoExample example = new PojoExample();
+        example.setMyString("aloha");
+        example.setMyInt(5);
+        ITreeNode node = new TreeNode();
+        MPojo.pojoToNode(example, node);
+        assertEquals("aloha", node.getString("mystring", null));
+
+        node.setString("mystring", "cleopatra");
+        node.setInt("myint", 7);
+        PojoExample copy = new PojoExample();
+        MPojo.nodeToPojo(node, copy);
+        assertEquals("cleopatra", copy.getMyString());
+        assertEquals(7, copy.getMyInt());
+
+        // private fields are read and written by the attributes model
+        PojoModel attributes = MPojo.getAttributesModelFactory().createPojoModel(PojoExample.class);
+        assertSame(attributes, MPojo.getAttributesModelFactory().createPojoModel(PojoExample.class));
+        PojoAttribute<Integer> myInt = attributes.getAttribute("myint");
+        myInt.set(copy, 9, false);
+        assertEquals(9, myInt.get(copy));
+    }
+
+    @Test
+    public void testJsonCodec() throws Exception {
+        PojoExample example = new PojoExample();
+        example.setMyString("aloha");
+        example.setMyInt(5);
+        example.setMyDouble(1.5);
+        example.setMyBoolean(true);
+        example.getMyEmbedded().setLine1("cleopatra");
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        MPojo.pojoToJson(example, os);
+        String json = os.toString(StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("{"));
+        assertTrue(json.contains("\"aloha\""));
+        assertTrue(json.contains("\"cleopatra\""));
+
+        // same document as the tree based transformation, number node types may differ
+        ObjectNode tree = MJson.createObjectNode();
+        MPojo.pojoToJson(example, tree);
+        JsonNode streamed = MJson.load(new ByteArrayInputStream(os.toByteArray()));
+        assertEquals(tree.toString(), streamed.toString());
+        assertEquals(tree.toString(), json);
+
+        PojoExample copy = new PojoExample();
+        MPojo.jsonToPojo(new ByteArrayInputStream(os.toByteArray()), copy);
+        assertEquals("aloha", copy.getMyString());
+        assertEquals(5, copy.getMyInt());
+        assertEquals(1.5, copy.getMyDouble());
+        assertTrue(copy.isMyBoolean());
+        assertEquals("cleopatra", copy.getMyEmbedded().getLine1());
+    }
 }
@@ -21,6 +21,7 @@ import de.mhus.commons.tools.MPeriod;
 import de.mhus.commons.tools.MString;
 import de.mhus.commons.crypt.CryptedString;
 import de.mhus.commons.crypt.MBouncy;
+import de.mhus.commons.crypt.RsaKeyPool;
 import de.mhus.commons.util.Lorem;
 import de.mhus.commons.util.SecureString;
 import de.mhus.lib.test.util.TestCase;
@@ -36,6 +37,8 @@ import java.security.PublicKey;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class SecureStringTest extends TestCase {
 
@@ -204,6 +207,34 @@ public class SecureStringTest extends TestCase {
         assertEquals(text, text2);
     }
 
+    @Test
+    public void testRsaKeyPool() throws InterruptedException {
+        RsaKeyPool pool = new RsaKeyPool(MBouncy.RSA_KEY_SIZE.B1024, 2, 500);
+        try {
+            assertNotNull(pool.get());
+            assertTrue(pool.isGeneratorRunning());
+            for (int i = 0; i < 500 && pool.getDepth() < 2; i++)
+                Thread.sleep(10);
+            assertEquals(2, pool.getDepth());
+
+            // a filled pool is served without generating keys
+            long misses = pool.getMisses();
+            for (int i = 0; i < 100; i++)
+                assertNotNull(pool.get());
+            assertEquals(misses, pool.getMisses());
+            assertEquals(101, pool.getRequests());
+
+            // keys are renewed in the background
+            long generated = pool.getGenerated();
+            for (int i = 0; i < 500 && pool.getGenerated() == generated; i++)
+                Thread.sleep(10);
+            assertTrue(pool.getGenerated() > generated);
+            assertEquals(2, pool.getDepth());
+        } finally {
+            pool.close();
+        }
+    }
+
     /**
      * The trusted other side, but not a trusted transfer way
      *